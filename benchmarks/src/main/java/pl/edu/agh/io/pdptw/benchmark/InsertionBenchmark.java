@@ -0,0 +1,41 @@
+package pl.edu.agh.io.pdptw.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.edu.agh.io.pdptw.algorithm.insertion.GreedyInsertion;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+
+public class InsertionBenchmark {
+	private final GreedyInsertion insertion = new GreedyInsertion();
+
+	/* the pickup and the delivery in the middle of the route */
+
+	@Benchmark
+	public boolean isInsertionPossible(InstanceState state) {
+		int position = state.vehicle.getRoute().getRequests().size() / 2;
+
+		return state.vehicle.isInsertionPossible(state.pickup, position, position + 1);
+	}
+
+	@Benchmark
+	public RequestPositions findBestInsertionPositions(InstanceState state) {
+		return insertion.findBestInsertionPositions(state.pickup, state.vehicle, state.configuration);
+	}
+}
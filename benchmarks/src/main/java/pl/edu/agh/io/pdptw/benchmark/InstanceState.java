@@ -0,0 +1,106 @@
+package pl.edu.agh.io.pdptw.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import pl.edu.agh.io.pdptw.algorithm.generation.GreedyGeneration;
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.AlgorithmConfiguration;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.configuration.DefaultConfigReader;
+import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* A Li & Lim instance (from resources/test/data, see
+ * the pdptw.data property) with an initial solution built
+ * by the greedy generation, like in the tests. The benchmarks
+ * work on the longest route of the solution and a pickup
+ * taken from another one. */
+
+@State(Scope.Benchmark)
+
+public class InstanceState {
+	private static final String[] DATA_DIRECTORIES = {
+			"resources/test/data", "../resources/test/data" };
+
+	/* one instance of each class: clustered, random
+	 * and mixed, with short and long routes */
+
+	@Param({ "lc101", "lr101", "lrc201" })
+	public String instanceName;
+
+	public Configuration configuration;
+	public ProblemInstance instance;
+	public Solution solution;
+	public Vehicle vehicle;
+	public PickupRequest pickup;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Vehicle.setScheduler(new DriveFirstScheduler());
+		configuration = new Configuration(findRequestsPath(), "", "", false,
+				100, 3, 3, 5, 0, 0, 2, 0, new Location(0, 0),
+				AlgorithmConfiguration.createDefault());
+		instance = new DefaultConfigReader().loadProblemInstance(configuration);
+		ProblemInstance.install(instance);
+
+		List<Vehicle> vehicles = new ArrayList<>();
+
+		for (int i = 0; i < instance.getSize() / 2; i++) {
+			vehicles.add(new Vehicle("truck" + i, 200, configuration.getWarehouseLocation()));
+		}
+
+		solution = new GreedyGeneration().generateSolution(
+				instance.getRequests(), vehicles, configuration);
+		solution.updateOjectiveValue(configuration.getAlgorithms().getObjective());
+
+		List<Vehicle> byRouteLength = solution.getVehicles().stream()
+				.sorted(Comparator.comparingInt((Vehicle v) -> v.getRoute().getRequests().size()).reversed())
+				.collect(Collectors.toList());
+		vehicle = byRouteLength.get(0);
+		pickup = (PickupRequest) byRouteLength.get(1).getRoute().getRequests().stream()
+				.filter(r -> r.getType() == RequestType.PICKUP)
+				.findFirst()
+				.map(Request::copy)
+				.get();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ProblemInstance.install(null);
+	}
+
+	private String findRequestsPath() {
+		String directory = System.getProperty("pdptw.data");
+
+		if (directory == null) {
+			for (String d : DATA_DIRECTORIES) {
+				if (new File(d).isDirectory()) {
+					directory = d;
+					break;
+				}
+			}
+		}
+
+		if (directory == null) {
+			throw new IllegalStateException("Li & Lim data not found, set the pdptw.data property");
+		}
+
+		return directory + "/" + instanceName + ".txt";
+	}
+}
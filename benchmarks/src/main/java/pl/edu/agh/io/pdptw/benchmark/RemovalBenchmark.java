@@ -0,0 +1,32 @@
+package pl.edu.agh.io.pdptw.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.edu.agh.io.pdptw.algorithm.removal.WorstRemoval;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+
+public class RemovalBenchmark {
+	private final WorstRemoval removal = new WorstRemoval();
+
+	@Benchmark
+	public RequestPositions findBestRemovalPositions(InstanceState state) {
+		return removal.findBestRemovalPositions(state.vehicle, state.configuration);
+	}
+}
@@ -0,0 +1,39 @@
+package pl.edu.agh.io.pdptw.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+
+public class SchedulingBenchmark {
+	private final DriveFirstScheduler scheduler = new DriveFirstScheduler();
+
+	/* the route is already scheduled so the realization
+	 * times don't change between the invocations */
+
+	@Benchmark
+	public Vehicle scheduleRequests(InstanceState state) {
+		Vehicle vehicle = state.vehicle;
+		scheduler.scheduleRequests(vehicle,
+				vehicle.getRoute().getRequests().get(0).getRealizationTime());
+
+		return vehicle;
+	}
+}
@@ -0,0 +1,41 @@
+package pl.edu.agh.io.pdptw.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.edu.agh.io.pdptw.algorithm.optimization.TabuOptimization;
+import pl.edu.agh.io.pdptw.model.Solution;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+
+public class SolutionBenchmark {
+
+	/* the neighborhood of a single tabu search
+	 * iteration (see TabuOptimization.optimize()) */
+
+	private static final int NEIGHBORS_NO = 15;
+	private static final int MAX_CHAIN_LENGTH = 20;
+
+	@Benchmark
+	public Solution copy(InstanceState state) {
+		return state.solution.copy();
+	}
+
+	@Benchmark
+	public List<Solution> generateNeighbors(InstanceState state) {
+		return TabuOptimization.generateNeighbors(state.solution,
+				NEIGHBORS_NO, MAX_CHAIN_LENGTH, state.configuration);
+	}
+}
@@ -13,6 +13,10 @@ import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.configuration.DefaultConfigReader;
 import pl.edu.agh.io.pdptw.configuration.exception.InvalidFileFormatException;
 import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.metrics.ConvergenceTrace;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.metrics.MetricsReporter;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
@@ -22,41 +26,79 @@ public class Main {
 
     public static void main(String[] args) {
     	try {
+    		
+    		/* see MetricsReporter for the snapshot file settings */
+    		Metrics.registerMBean();
+    		MetricsReporter.startFromSystemProperties();
+    		
     		LoggingUtils.info("Loading configuration data");
     		DefaultConfigReader loader = new DefaultConfigReader();
     		List<Configuration> testConfigurations
     			= loader.loadConfiguration("resources/test/config.json");
     		
+    		/* the trace of an interrupted run is closed while exiting */
+    		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+    			ConvergenceTrace current = ConvergenceTrace.getCurrent();
+    			
+    			if (current != null) {
+    				current.close();
+    			}
+    		}));
+    		
     		for (Configuration configuration : testConfigurations) {
     			
     			/* configure logger */
     			LoggingUtils.configure(configuration);
     			
+    			/* the trace of the run, see ConvergenceTrace */
+    			ConvergenceTrace trace = null;
+    			
+    			if (Boolean.getBoolean(ConvergenceTrace.ENABLED_PROPERTY)) {
+    				trace = new ConvergenceTrace(ConvergenceTrace.createPath(configuration));
+    				ConvergenceTrace.install(trace);
+    			}
+    			
     			Vehicle.setScheduler(configuration.getAlgorithms().getScheduler());
-    			List<Request> requests = loader.loadRequests(configuration);
+    			ProblemInstance instance = loader.loadProblemInstance(configuration);
+    			List<Request> requests = instance.getRequests();
     			List<Vehicle> vehicles = loader.loadVehicles(configuration);
+    			ProblemInstance.install(instance);
     			
     			AlgorithmConfiguration algs = configuration.getAlgorithms();
     			GenerationAlgorithm generation = algs.getGenerationAlgorithm();
     			Solution solution = null;
     			
+    			/* the instance is installed globally so we have to
+    			 * wait for the run to finish before the next one */
+    			
     			if (configuration.isDynamic()) {
     				LoggingUtils.info("Dynamic version detected");
     				RequestDispatcher dispatcher = new RequestDispatcher(requests, vehicles, configuration);
+    				dispatcher.awaitTermination();
     			} else {
     				LoggingUtils.info("Static version detected");
     				solution = generation.generateSolution(requests, vehicles, configuration);
     				LoggingUtils.info("Original objective value: " + solution.getObjectiveValue());
-    				DecompositionOptimizer optimizer = new DecompositionOptimizer(solution, configuration);
-    				optimizer.startThread();
+    				try (DecompositionOptimizer optimizer = new DecompositionOptimizer(solution, configuration)) {
+    					optimizer.startThread().join();
+    				}
+    			}
+    			
+    			/* the run has finished so nobody writes
+    			 * to its trace anymore (see ConvergenceTrace) */
+    			if (trace != null) {
+    				trace.close();
     			}
     		}
 
-		} catch (InvalidFileFormatException | ParseException | IllegalArgumentException e) {
+		} catch (InvalidFileFormatException | ParseException | IllegalArgumentException | IllegalStateException e) {
 			LoggingUtils.logStackTrace(e);
 		} catch (IOException e) {
 			LoggingUtils.logStackTrace(e);
 			LoggingUtils.error("An error occurred while reading input file");
+		} catch (InterruptedException e) {
+			LoggingUtils.logStackTrace(e);
+			Thread.currentThread().interrupt();
 		}
 	}
 }
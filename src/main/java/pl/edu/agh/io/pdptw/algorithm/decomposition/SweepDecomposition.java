@@ -1,17 +1,16 @@
 package pl.edu.agh.io.pdptw.algorithm.decomposition;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.model.Location;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.SpatialIndex;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 public class SweepDecomposition implements DecompositionAlgorithm {
@@ -23,45 +22,37 @@ public class SweepDecomposition implements DecompositionAlgorithm {
 		final int MAX_VEHICLES = configuration.getMaxVehiclesInGroup();
 		List<Vehicle> vehicles = solution.getVehicles();
 		Location warehouseLocation = vehicles.get(0).getStartLocation();
-		Map<Vehicle, Double> anglesForVehicles = new HashMap<>();
-		vehicles.stream()
-			.forEach(v -> anglesForVehicles.put(v, 
-				Location.calculatePolarAngle(warehouseLocation,
-				Location.findCentroid(v.getRoute()
-						.getRequests()
-						.stream()
-						.map(Request::getLocation)
-						.collect(Collectors.toList())
-				))));
 		
 		/* we need to sort the vehicles
 		 * based on the location of their
 		 * routes' centroids */
 		
-		vehicles = vehicles.stream()
-				.sorted((v1, v2) -> (anglesForVehicles.get(v1)
-						> anglesForVehicles.get(v2)) ? 1 : -1)
-				.collect(Collectors.toList());
+		SpatialIndex<Vehicle> centroidsIndex = new SpatialIndex<>(vehicles,
+				v -> Location.findCentroid(v.getRoute()
+						.getRequests()
+						.stream()
+						.map(Request::getLocation)
+						.collect(Collectors.toList())),
+				warehouseLocation);
+		vehicles = centroidsIndex.getSortedByAngle();
 		
 		/* we assume that that each partial solution
 		 * is made of at most MAX_VEHICLES routes */
 		
 		List<Solution> solutions = new ArrayList<>(solution.getRequests().size() / MAX_VEHICLES);
 		double startAngle = (Math.random() * (2 * Math.PI));
-		double curAngle = -1.0;
-		Iterator<Vehicle> it = vehicles.iterator();
-		Vehicle startVehicle = null;
-		int skipped = 0;
 				
 		/* skip the vehicles whose centroids 
 		 * make up with the warehouse location
-		 * an angle less than the starting one */
+		 * an angle less than the starting one 
+		 * (the first one not skipped starts the first 
+		 * partial solution, if there's no such vehicle 
+		 * we start with the last one) */
 		
-		while (it.hasNext() && curAngle < startAngle) {
-			startVehicle = it.next();
-			curAngle = anglesForVehicles.get(startVehicle);
-			skipped++;
-		}
+		int skipped = Math.min(vehicles.size(), 
+				vehicles.size() - centroidsIndex.findInAngleRange(startAngle, Double.POSITIVE_INFINITY).size() + 1);
+		Iterator<Vehicle> it = vehicles.listIterator(skipped);
+		Vehicle startVehicle = vehicles.get(skipped - 1);
 		
 		int vehiclesAddedToCurrentSolution = 1;
 		Solution curSolution = new Solution(new LinkedList<>());
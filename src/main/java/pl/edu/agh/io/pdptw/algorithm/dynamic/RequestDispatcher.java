@@ -3,6 +3,7 @@ package pl.edu.agh.io.pdptw.algorithm.dynamic;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -35,8 +36,18 @@ public class RequestDispatcher {
 	@Getter private Configuration configuration;
 	private InsertionWorker insertionWorker;
 	private DecompositionOptimizer optimizer;
-	private Thread optimizerThread;
+	
+	/* null if the optimizer isn't running (e.g. the
+	 * solution has got only one vehicle) */
+	
+	private volatile Thread optimizerThread;
 	private ScheduledExecutorService executionService;
+	private final CountDownLatch finished = new CountDownLatch(1);
+	
+	/* the exception which has stopped the insertion task
+	 * (the executor would swallow it), see awaitTermination() */
+	
+	private volatile Throwable failure;
 	
 	private class InsertionWorker implements Runnable {
 		private InsertionAlgorithm insertion;
@@ -47,8 +58,30 @@ public class RequestDispatcher {
 			this.objective = configuration.getAlgorithms().getObjective();
 		}
 		
+		/* the last run (the one which isn't rescheduled,
+		 * also a failed one) lets awaitTermination() return */
+		
 		@Override
 		public void run() {
+			boolean isRescheduled = false;
+			
+			try {
+				isRescheduled = insertRequests();
+			} catch (RuntimeException | Error e) {
+				LoggingUtils.logStackTrace(e);
+				failure = e;
+				closeOptimizer();
+				executionService.shutdown();
+			} finally {
+				if (!isRescheduled) {
+					finished.countDown();
+				}
+			}
+		}
+		
+		/* returns true if the task has been rescheduled */
+		
+		private boolean insertRequests() {
 			int curTime = time.addAndGet(TIME_DELTA);
 			LoggingUtils.info("Current time: " + curTime);
 			
@@ -74,7 +107,11 @@ public class RequestDispatcher {
 			try {
 				LoggingUtils.info("Attempting to stop the optimization thread");
 				optimizer.stopOptimization();
-				optimizerThread.join();
+				
+				if (optimizerThread != null) {
+					optimizerThread.join();
+					optimizerThread = null;
+				}
 			} catch (InterruptedException e) {
 				LoggingUtils.logStackTrace(e);
 			}
@@ -222,7 +259,33 @@ public class RequestDispatcher {
 				
 				LoggingUtils.info("Rescheduling the insertion task");
 				executionService.schedule(this, INSERTION_CHECK_RATE, TimeUnit.SECONDS);
+				
+				return true;
 			}
+			
+			closeOptimizer();
+			executionService.shutdown();
+			
+			return false;
+		}
+		
+		/* the optimizer isn't started again so
+		 * its pool is shut down once it's finished */
+		
+		private void closeOptimizer() {
+			optimizer.stopOptimization();
+			Thread thread = optimizerThread;
+			
+			try {
+				if (thread != null) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				LoggingUtils.logStackTrace(e);
+				Thread.currentThread().interrupt();
+			}
+			
+			optimizer.close();
 		}
 	}
 	
@@ -254,5 +317,22 @@ public class RequestDispatcher {
 		this.executionService.schedule(this.insertionWorker, INSERTION_CHECK_RATE, TimeUnit.SECONDS);
 	}
 	
+	/* waits until all the requests have been served
+	 * (the insertion task isn't rescheduled anymore);
+	 * the failure of the insertion task is rethrown */
+	
+	public void awaitTermination() throws InterruptedException {
+		finished.await();
+		Thread thread = optimizerThread;
+		
+		if (thread != null) {
+			thread.join();
+		}
+		
+		if (failure != null) {
+			throw new IllegalStateException("The insertion task has failed", failure);
+		}
+	}
+	
 	
 }
@@ -13,6 +13,7 @@ import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.RequestType;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.SpatialIndex;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 public class SectorBasedGeneration implements GenerationAlgorithm {
@@ -40,19 +41,14 @@ public class SectorBasedGeneration implements GenerationAlgorithm {
 		
 		requestPool.forEach(r -> r.getLocation().updatePolarAngle(warehouseLocation));
 		
-		/* sort requests by the increasing polar angle */
+		/* index the requests by the increasing polar angle
+		 * (the inserted ones are removed from the index) */
 		
-		List<PickupRequest> pickupRequests = requestPool.stream()
+		SpatialIndex<PickupRequest> pickupRequests = new SpatialIndex<>(requestPool.stream()
 				.filter(r -> r.getType() == RequestType.PICKUP)
 				.map(r -> (PickupRequest) r)
-				.sorted((r1, r2) -> {
-					double r1Angle = r1.getLocation().getPolarAngle();
-					double r2Angle = r2.getLocation().getPolarAngle();
-					
-					return (r1Angle < r2Angle) 
-							? -1 
-							: (r1Angle > r2Angle) ? 1 : 0;
-				}).collect(Collectors.toCollection(LinkedList::new));
+				.collect(Collectors.toList()),
+				Request::getLocation, warehouseLocation);
 		
 		Iterator<Vehicle> vehiclesIt = vehicles.iterator();
 		boolean insertedSuccessfully = true;
@@ -60,7 +56,8 @@ public class SectorBasedGeneration implements GenerationAlgorithm {
 		while (pickupRequests.size() > 0
 				&& vehiclesIt.hasNext()) {
 			
-			PickupRequest curRequest = pickupRequests.remove(0); 
+			PickupRequest curRequest = pickupRequests.first(); 
+			pickupRequests.remove(curRequest);
 			Vehicle curVehicle = vehiclesIt.next();
 			insertedSuccessfully = insertionAlg.insertRequestForVehicle(curRequest, curVehicle, configuration);
 			Location pickupLocation = curRequest.getLocation();
@@ -79,14 +76,13 @@ public class SectorBasedGeneration implements GenerationAlgorithm {
 			 *  i.e. lying in the area within the 
 			 *  lower boundary - warehouse - upper boundary angle */
 			
-			List<PickupRequest> pickupsInSector = pickupRequests.stream()
+			List<PickupRequest> pickupsInSector = pickupRequests
+					.findInAngleRange(lowerBoundary, upperBoundary)
+					.stream()
 					.filter(r -> {
-						Location p = r.getLocation();
 						Location d = r.getSibling().getLocation();
 						
-						return p.getPolarAngle() >= lowerBoundary
-							&& p.getPolarAngle() <= upperBoundary
-							&& d.getPolarAngle() >= lowerBoundary
+						return d.getPolarAngle() >= lowerBoundary
 							&& d.getPolarAngle() <= lowerBoundary;
 							
  					}).collect(Collectors.toList());
@@ -111,27 +107,15 @@ public class SectorBasedGeneration implements GenerationAlgorithm {
 			/* We've inserted all requests in the current
 			 * sector. Now we should check whether we can
 			 * add some more requests. In order to do this
-			 * we'll sort the remaining pickup requests by
-			 * the angle between them and the upper boundary. */
+			 * we'll go through the remaining pickup requests 
+			 * in the order of the angle between them and 
+			 * the upper boundary. */
 			
 			if (pickupsInSector.size() == 0
 					&& insertedSuccessfully) {
 				
 				double curAngle = curRequest.getLocation().getPolarAngle();
-				Iterator<PickupRequest> nearestIt = pickupRequests.stream()
-						.sorted((r1, r2) -> {
-							Location p1 = r1.getLocation();
-							Location p2 = r2.getLocation();
-							double diff1 = Math.abs(p1.getPolarAngle() - curAngle);
-							double diff2 = Math.abs(p2.getPolarAngle() - curAngle);
-							
-							return (diff1 < diff2)
-									? -1
-									: (diff1 > diff2) ? 1 : 0;
-									
-						})
-						.collect(Collectors.toList())
-						.iterator();
+				Iterator<PickupRequest> nearestIt = pickupRequests.iterateByAngularDistance(curAngle);
 				
 				while (insertedSuccessfully && nearestIt.hasNext()) {
 					PickupRequest nearestRequest = nearestIt.next();
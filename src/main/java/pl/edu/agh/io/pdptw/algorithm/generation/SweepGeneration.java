@@ -13,6 +13,7 @@ import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.RequestType;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.SpatialIndex;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 public class SweepGeneration implements GenerationAlgorithm {
@@ -44,17 +45,12 @@ public class SweepGeneration implements GenerationAlgorithm {
 		
 		/* sort requests by the increasing polar angle */
 		
-		List<PickupRequest> pickupRequests = requestPool.stream()
+		List<PickupRequest> pickupRequests = new SpatialIndex<>(requestPool.stream()
 				.filter(r -> r.getType() == RequestType.PICKUP)
 				.map(r -> (PickupRequest) r)
-				.sorted((r1, r2) -> {
-					double r1Angle = r1.getLocation().getPolarAngle();
-					double r2Angle = r2.getLocation().getPolarAngle();
-					
-					return (r1Angle < r2Angle) 
-							? -1 
-							: (r1Angle > r2Angle) ? 1 : 0;
-				}).collect(Collectors.toCollection(LinkedList::new));
+				.collect(Collectors.toList()),
+				Request::getLocation, warehouseLocation)
+				.getSortedByAngle();
 		
 		Iterator<Vehicle> vehiclesIt = vehicles.iterator();
 		Iterator<PickupRequest> pickupIt = pickupRequests.iterator();
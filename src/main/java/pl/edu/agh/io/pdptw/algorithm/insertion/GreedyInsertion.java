@@ -2,12 +2,22 @@ package pl.edu.agh.io.pdptw.algorithm.insertion;
 
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Histogram;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
 import pl.edu.agh.io.pdptw.model.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class GreedyInsertion implements InsertionAlgorithm {
 	
+	/* the nearest requests lists used in the granular mode
+	 * (shared by all the instances of the algorithm, 
+	 * rebuilt when the problem instance changes) */
+	
+	private static volatile RelatednessLists nearestRequests;
+	
 	/* The returned value is equal to the position
      * of the newly inserted pickup request in the
      * requests pool */
@@ -30,38 +40,193 @@ public class GreedyInsertion implements InsertionAlgorithm {
 		return inserted;
 	}
 
+	/* In the granular mode (configuration.granularity > 0)
+	 * the pickup is put only next to (before or after) one of its
+	 * nearest requests and the delivery either right after
+	 * the pickup or next to one of its own nearest requests
+	 * (see RelatednessLists.createNearest()). If none of these
+	 * positions is feasible the search is repeated with the
+	 * neighbourhood widened configuration.granularityWidening times
+	 * and then all the positions are checked. All the positions
+	 * are checked at once if the route is short or if the problem
+	 * instance isn't installed */
+	
 	@Override
 	public RequestPositions findBestInsertionPositions(
 			PickupRequest pickup, Vehicle vehicle, Configuration configuration) {
 		
+		long start = Metrics.now();
+		RequestPositions bestPositions = RequestPositions.createDefault();
+		List<Request> requests = vehicle.getRoute().getRequests();
+		ProblemInstance instance = ProblemInstance.getCurrent();
+		int granularity = configuration.getGranularity();
+		int widenedGranularity = granularity * Math.max(1, configuration.getGranularityWidening());
+		
+		/* each neighbour gives at most two slots so
+		 * in the short routes we can check all of them */
+		
+		if (granularity > 0 && 2 * granularity < requests.size() + 1
+				&& instance != null && instance.contains(pickup)
+				&& isIndexed(instance, requests)) {
+			
+			/* the lists are built for the widened neighbourhood,
+			 * the first granularity requests of each are the nearest */
+			
+			RelatednessLists lists = getNearestRequests(instance, widenedGranularity);
+			bestPositions = findBestInsertionPositions(pickup, vehicle, lists, granularity, configuration);
+			
+			if (bestPositions.getPickupPosition() == Integer.MAX_VALUE
+					&& widenedGranularity > granularity) {
+				bestPositions = findBestInsertionPositions(pickup, vehicle, 
+						lists, widenedGranularity, configuration);
+			}
+		}
+		
+		if (bestPositions.getPickupPosition() == Integer.MAX_VALUE) {
+			bestPositions = findBestInsertionPositions(pickup, vehicle, 
+					null, null, configuration);
+		}
+		
+		Metrics.increment(Counter.INSERTION_EVALUATIONS);
+		Metrics.recordTime(Histogram.INSERTION_EVALUATION_TIME, start);
+		
+		return bestPositions;
+	}
+	
+	private RequestPositions findBestInsertionPositions(PickupRequest pickup, Vehicle vehicle,
+			RelatednessLists lists, int k, Configuration configuration) {
+		
+		List<Request> requests = vehicle.getRoute().getRequests();
+		
+		return findBestInsertionPositions(pickup, vehicle, 
+				findSlots(lists, pickup.getIndex(), requests, k), 
+				findSlots(lists, pickup.getSibling().getIndex(), requests, k), 
+				configuration);
+	}
+	
+	private static boolean isIndexed(ProblemInstance instance, List<Request> requests) {
+		for (Request request : requests) {
+			if (!instance.contains(request)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/* the slots (ascending) next to the route's requests which 
+	 * are among the k nearest ones of the given request; the s-th
+	 * slot is the position before the s-th request of the route
+	 * (s == size means the end of the route) */
+	
+	private static int[] findSlots(RelatednessLists lists, int index, List<Request> requests, int k) {
+		int[] slots = new int[2 * Math.min(k, requests.size())];
+		int slotsNo = 0;
+		
+		for (int i = 0; i < requests.size(); i++) {
+			int rank = lists.getRank(index, requests.get(i).getIndex());
+			
+			if (rank >= 0 && rank < k) {
+				if (slotsNo == 0 || slots[slotsNo - 1] != i) {
+					slots[slotsNo++] = i;
+				}
+				
+				slots[slotsNo++] = i + 1;
+			}
+		}
+		
+		return Arrays.copyOf(slots, slotsNo);
+	}
+	
+	/* only the given slots (see findSlots()) are checked; 
+	 * null - all the slots */
+	
+	private RequestPositions findBestInsertionPositions(PickupRequest pickup, Vehicle vehicle,
+			int[] pickupSlots, int[] deliverySlots, Configuration configuration) {
+		
 		Objective objective = configuration.getAlgorithms().getObjective();
 		int pickupPosition = Integer.MAX_VALUE;
 		int deliveryPosition = Integer.MAX_VALUE;
 		double minObjective = Integer.MAX_VALUE;
 		double newObjective = Integer.MAX_VALUE;
-		List<Request> requests = vehicle.getRoute().getRequests();
 		RequestPositions bestPositions = RequestPositions.createDefault();
+		
+		/* the route is not modified while looking for the
+		 * best positions - the objective value after the insertion
+		 * is obtained from the current one and the delta
+		 * (it still has to be the value for the whole vehicle
+		 * as the results for different vehicles are compared
+		 * in insertRequestToSolution()) */
+		
+		double curObjective = objective.calculateForVehicle(vehicle);
+		
 		/* looking for the best position
-		 * to add the new pickup request */
+		 * to add the new pickup request; the delivery
+		 * put in the same slot follows the pickup */
+		
+		/* the positions for which the insertion 
+		 * is surely infeasible are skipped (the further 
+		 * positions are dropped as soon as the time windows
+		 * or the capacity can't be met) */
+		
+		int pickupPositionsEnd = vehicle.findPickupPositionsEnd(pickup);
+		int pickupSlotsNo = (pickupSlots != null) ? pickupSlots.length : pickupPositionsEnd;
+		
+		/* the first of the delivery slots after the current 
+		 * pickup position (they're both ascending) */
+		
+		int firstDeliverySlot = 0;
+		
+		/* the checks are counted locally, the hot loop
+		 * touches the metrics only once */
+		
+		long checksNo = 0;
 		
-		for (int pPos = 0; pPos <= requests.size(); pPos++) {
-			for (int dPos = pPos + 1; dPos <= requests.size() + 1; dPos++) {
+		for (int p = 0; p < pickupSlotsNo; p++) {
+			int pPos = (pickupSlots != null) ? pickupSlots[p] : p;
+			
+			if (pPos >= pickupPositionsEnd) {
+				break;
+			}
+			
+			int deliveryPositionsEnd = vehicle.findDeliveryPositionsEnd(pickup, pPos);
+			
+			while (deliverySlots != null && firstDeliverySlot < deliverySlots.length
+					&& deliverySlots[firstDeliverySlot] <= pPos) {
+				firstDeliverySlot++;
+			}
+			
+			int d = firstDeliverySlot;
+			
+			for (int dPos = pPos + 1; dPos < deliveryPositionsEnd; ) {
+				checksNo++;
 				
 				if (vehicle.isInsertionPossible(pickup, pPos, dPos)) {
-					vehicle.insertRequest(pickup, pPos, dPos);
-					newObjective = objective.calculateForVehicle(vehicle);
-					vehicle.removeRequest(pickup);
+					newObjective = curObjective 
+							+ objective.calculateInsertionDelta(vehicle, pickup, pPos, dPos);
 					
 					if (newObjective < minObjective) {
 						minObjective = newObjective;
 						pickupPosition = pPos;
 						deliveryPosition = dPos;
 					}
-					
+				}
+				
+				/* the delivery slot s means the position s + 1 
+				 * as the pickup is already in front of it */
+				
+				if (deliverySlots == null) {
+					dPos++;
+				} else {
+					dPos = (d < deliverySlots.length) 
+							? deliverySlots[d++] + 1 
+							: Integer.MAX_VALUE;
 				}
 			}
 		}
 		
+		Metrics.add(Counter.FEASIBILITY_CHECKS, checksNo);
+		
 		if (pickupPosition != Integer.MAX_VALUE
 				&& deliveryPosition != Integer.MAX_VALUE) {
 			bestPositions = new RequestPositions(pickupPosition, deliveryPosition, minObjective);
@@ -69,6 +234,17 @@ public class GreedyInsertion implements InsertionAlgorithm {
 		
 		return bestPositions;
 	}
+	
+	private static RelatednessLists getNearestRequests(ProblemInstance instance, int k) {
+		RelatednessLists lists = nearestRequests;
+		
+		if (lists == null || lists.getInstance() != instance || lists.getK() != k) {
+			lists = RelatednessLists.createNearest(instance, k);
+			nearestRequests = lists;
+		}
+		
+		return lists;
+	}
 
 	@Override
 	public boolean insertRequestToSolution(PickupRequest pickup,
@@ -76,22 +252,22 @@ public class GreedyInsertion implements InsertionAlgorithm {
 		
 		double minValue = Integer.MAX_VALUE;
 		RequestPositions bestPosition = RequestPositions.createDefault();
-		Vehicle bestVehicle = null;
+		int bestVehicle = -1;
 		boolean inserted = false;
 		
-		for (Vehicle vehicle : solution.getVehicles()) {
-			RequestPositions curPosition = 
-					findBestInsertionPositions(pickup, vehicle, configuration);		
+		for (int v = 0; v < solution.getVehicles().size(); v++) {
+			RequestPositions curPosition = findBestInsertionPositions(
+					pickup, solution.getVehicles().get(v), configuration);		
 			
 			if (curPosition.getObjectiveValue() < minValue) {
 				bestPosition = curPosition;
-				bestVehicle = vehicle;
+				bestVehicle = v;
 				minValue = curPosition.getObjectiveValue();
 			}
 		}
 		
 		if (minValue < Integer.MAX_VALUE) {
-			bestVehicle.insertRequest(pickup, 
+			solution.getVehicleForUpdate(bestVehicle).insertRequest(pickup, 
 					bestPosition.getPickupPosition(), bestPosition.getDeliveryPosition());
 			inserted = true;
 		}
@@ -1,5 +1,8 @@
 package pl.edu.agh.io.pdptw.algorithm.insertion;
 
+import java.util.List;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.RequestPositions;
@@ -12,4 +15,57 @@ public interface InsertionAlgorithm {
 			PickupRequest pickup, Vehicle vehicle, Configuration configuration);
 	boolean insertRequestForVehicle(PickupRequest pickup, Vehicle vehicle, Configuration configuration);
 	boolean insertRequestToSolution(PickupRequest pickup, Solution solution,Configuration configuration);
+	
+	/* inserts all the requests into the solution (in the order
+	 * chosen by the algorithm); returns false as soon as one of
+	 * them can't be inserted (the ones inserted earlier stay
+	 * in the solution).
+	 * 
+	 * The default implementation inserts the requests in the
+	 * given order, each one in the positions found by 
+	 * findBestInsertionPositions() in the vehicle whose objective
+	 * value grows the least (note that insertRequestToSolution()
+	 * of the GreedyInsertion compares the values for whole vehicles).
+	 * 
+	 * The vehicles are modified via Solution.getVehicleForUpdate()
+	 * (here and in the implementations) so the solution may be 
+	 * a copy-on-write copy */
+	
+	default boolean insertRequestsToSolution(List<PickupRequest> pickups, 
+			Solution solution, Configuration configuration) {
+		
+		Objective objective = configuration.getAlgorithms().getObjective();
+		
+		for (PickupRequest pickup : pickups) {
+			RequestPositions bestPositions = null;
+			int bestVehicle = -1;
+			double minIncrease = Double.MAX_VALUE;
+
+			for (int v = 0; v < solution.getVehicles().size(); v++) {
+				Vehicle vehicle = solution.getVehicles().get(v);
+				RequestPositions positions = findBestInsertionPositions(
+						pickup, vehicle, configuration);
+
+				if (positions.getPickupPosition() != Integer.MAX_VALUE) {
+					double increase = positions.getObjectiveValue() 
+							- objective.calculateForVehicle(vehicle);
+
+					if (increase < minIncrease) {
+						minIncrease = increase;
+						bestPositions = positions;
+						bestVehicle = v;
+					}
+				}
+			}
+
+			if (bestVehicle < 0) {
+				return false;
+			}
+			
+			solution.getVehicleForUpdate(bestVehicle).insertRequest(pickup, 
+					bestPositions.getPickupPosition(), bestPositions.getDeliveryPosition());
+		}
+		
+		return true;
+	}
 }
@@ -0,0 +1,151 @@
+package pl.edu.agh.io.pdptw.algorithm.insertion;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* Cache of the best insertion positions of the requests.
+ *
+ * The ejection chains evaluate the insertion of the same
+ * request into the same route over and over again (in different
+ * neighbors and iterations) while most of the routes don't change.
+ * The positions are kept for the (pickup, route version) pairs;
+ * the version of the route is its modification number (see
+ * Route.getModificationNo()) so a modified route simply gets
+ * a new version and the copies of an unchanged route (e.g. in
+ * the copy-on-write solutions) share the entries.
+ *
+ * The entries are kept in a fixed-size table indexed by the hash
+ * of the pair (a colliding entry is overwritten), so a lookup
+ * doesn't allocate anything. The cached positions are checked
+ * for feasibility again before they are returned (in constant
+ * time, see Vehicle.isInsertionPossible()), so an outdated
+ * entry is recomputed instead of being used.
+ *
+ * The results depend on the insertion algorithm, the objective
+ * and the configuration so a cache must be used only with one
+ * of each (e.g. during a single optimization run). It may be
+ * used by many threads at the same time. */
+
+public final class InsertionCache {
+	private static final int ENTRIES_NO = 1 << 16;
+	private static final int NOT_FOUND = Integer.MAX_VALUE;
+
+	/* the entries are immutable so the table needs
+	 * no locking (a thread may only miss the entry
+	 * written by another one) */
+
+	private final Entry[] entries = new Entry[ENTRIES_NO];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/* the returned object may be shared with
+	 * the cache so it mustn't be modified */
+
+	public RequestPositions findBestInsertionPositions(InsertionAlgorithm insertion,
+			PickupRequest pickup, Vehicle vehicle, Configuration configuration) {
+
+		long modificationNo = vehicle.getRoute().getModificationNo();
+		int startTime = getStartTime(vehicle.getRoute().getRequests());
+		int index = getIndex(modificationNo, pickup.getId());
+		Entry entry = entries[index];
+
+		if (entry != null
+				&& entry.isFor(pickup, vehicle, modificationNo, startTime)
+				&& isStillPossible(entry.positions, pickup, vehicle)) {
+
+			/* a hit stands for an evaluation
+			 * of the insertion as well */
+
+			Metrics.increment(Counter.INSERTION_EVALUATIONS);
+			hits.increment();
+
+			return entry.positions;
+		}
+
+		misses.increment();
+		RequestPositions found = insertion.findBestInsertionPositions(pickup, vehicle, configuration);
+		entries[index] = new Entry(pickup, vehicle, modificationNo, startTime, found);
+
+		return found;
+	}
+
+	public long getHitsNo() {
+		return hits.sum();
+	}
+
+	public long getMissesNo() {
+		return misses.sum();
+	}
+
+	private static boolean isStillPossible(RequestPositions positions,
+			PickupRequest pickup, Vehicle vehicle) {
+
+		if (positions.getPickupPosition() == NOT_FOUND
+				|| positions.getDeliveryPosition() == NOT_FOUND) {
+			return true;
+		}
+
+		Metrics.increment(Counter.FEASIBILITY_CHECKS);
+
+		return vehicle.isInsertionPossible(pickup,
+				positions.getPickupPosition(), positions.getDeliveryPosition());
+	}
+
+	private static int getIndex(long modificationNo, int pickupId) {
+		long hash = (modificationNo * 0x9E3779B97F4A7C15L) ^ pickupId;
+		hash ^= (hash >>> 32);
+		hash ^= (hash >>> 16);
+
+		return (int) hash & (ENTRIES_NO - 1);
+	}
+
+	private static int getStartTime(List<Request> requests) {
+		return (requests.size() > 0)
+				? requests.get(0).getRealizationTime()
+				: 0;
+	}
+
+	/* besides the route itself the positions depend on
+	 * the vehicle (its capacity and start location) and the
+	 * realization times of the first request of the route and
+	 * of the inserted pickup (which aren't recomputed by the
+	 * scheduler) */
+
+	private static final class Entry {
+		private final int pickupId;
+		private final int pickupTime;
+		private final String vehicleId;
+		private final long modificationNo;
+		private final int startTime;
+		private final RequestPositions positions;
+
+		private Entry(PickupRequest pickup, Vehicle vehicle,
+				long modificationNo, int startTime, RequestPositions positions) {
+
+			this.pickupId = pickup.getId();
+			this.pickupTime = pickup.getRealizationTime();
+			this.vehicleId = vehicle.getId();
+			this.modificationNo = modificationNo;
+			this.startTime = startTime;
+			this.positions = positions;
+		}
+
+		private boolean isFor(PickupRequest pickup, Vehicle vehicle,
+				long modificationNo, int startTime) {
+
+			return this.modificationNo == modificationNo
+					&& pickupId == pickup.getId()
+					&& pickupTime == pickup.getRealizationTime()
+					&& startTime == this.startTime
+					&& vehicleId.equals(vehicle.getId());
+		}
+	}
+}
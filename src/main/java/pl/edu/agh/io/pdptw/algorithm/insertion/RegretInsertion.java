@@ -1,35 +1,177 @@
 package pl.edu.agh.io.pdptw.algorithm.insertion;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.RequestPositions;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
-public class RegretInsertion implements InsertionAlgorithm {
+/* Regret-k insertion (Ropke, Pisinger)
+ *
+ * In each step we insert the request whose regret
+ * is the greatest - the regret is the sum of the differences
+ * between the cost of inserting the request into its best
+ * vehicle and into the next k - 1 ones. The requests which
+ * can be inserted into fewer than k vehicles go first.
+ *
+ * The best positions of every request in every vehicle
+ * (found as in the GreedyInsertion) are kept in a table;
+ * inserting a request changes only one route so only one
+ * column of the table has to be recomputed in the next step. */
 
-	@Override
-	public RequestPositions findBestInsertionPositions(PickupRequest pickup,
-			Vehicle vehicle, Configuration configuration) {
-		// TODO Auto-generated method stub
-		return null;
+public class RegretInsertion extends GreedyInsertion {
+	private static final int DEFAULT_K = 3;
+
+	private final int k;
+
+	public RegretInsertion() {
+		this(DEFAULT_K);
 	}
 
-	@Override
-	public boolean insertRequestForVehicle(PickupRequest pickup,
-			Vehicle vehicle, Configuration configuration) {
-		// TODO Auto-generated method stub
-		return false;
+	public RegretInsertion(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Invalid k value. Should be positive");
+		}
+
+		this.k = k;
 	}
 
+	/* a single request is simply inserted
+	 * in the cheapest feasible place */
+
 	@Override
 	public boolean insertRequestToSolution(PickupRequest pickup,
 			Solution solution, Configuration configuration) {
-		// TODO Auto-generated method stub
-		return false;
+
+		return insertRequestsToSolution(Collections.singletonList(pickup),
+				solution, configuration);
+	}
+
+	@Override
+	public boolean insertRequestsToSolution(List<PickupRequest> pickups,
+			Solution solution, Configuration configuration) {
+
+		Objective objective = configuration.getAlgorithms().getObjective();
+		List<Vehicle> vehicles = solution.getVehicles();
+		List<PickupRequest> left = new ArrayList<>(pickups);
+		int vehiclesNo = vehicles.size();
+
+		/* costs[p][v] - increase of the objective value after
+		 * inserting the p-th request into the v-th vehicle
+		 * (in the positions[p][v]); infinity if it's not possible */
+
+		double[][] costs = new double[left.size()][vehiclesNo];
+		RequestPositions[][] positions = new RequestPositions[left.size()][vehiclesNo];
+
+		for (int v = 0; v < vehiclesNo; v++) {
+			updateCosts(left, vehicles.get(v), v, costs, positions, objective, configuration);
+		}
+
+		double[] bestCosts = new double[k];
+
+		while (left.size() > 0) {
+			int chosen = -1;
+			int chosenVehicle = -1;
+			int chosenOptionsNo = 0;
+			double chosenRegret = 0;
+			double chosenCost = 0;
+
+			for (int p = 0; p < left.size(); p++) {
+
+				/* the k cheapest insertions of the request (sorted) */
+
+				Arrays.fill(bestCosts, Double.POSITIVE_INFINITY);
+				int bestVehicle = -1;
+
+				for (int v = 0; v < vehiclesNo; v++) {
+					double cost = costs[p][v];
+
+					if (cost < bestCosts[k - 1]) {
+						int j = k - 1;
+
+						while (j > 0 && bestCosts[j - 1] > cost) {
+							bestCosts[j] = bestCosts[j - 1];
+							j--;
+						}
+
+						bestCosts[j] = cost;
+
+						if (j == 0) {
+							bestVehicle = v;
+						}
+					}
+				}
+
+				/* adding requests to the routes can't make
+				 * the insertion possible so we can give up */
+
+				if (bestVehicle < 0) {
+					return false;
+				}
+
+				int optionsNo = 0;
+				double regret = 0;
+
+				while (optionsNo < k && bestCosts[optionsNo] != Double.POSITIVE_INFINITY) {
+					regret += bestCosts[optionsNo] - bestCosts[0];
+					optionsNo++;
+				}
+
+				if (chosen < 0
+						|| optionsNo < chosenOptionsNo
+						|| (optionsNo == chosenOptionsNo && regret > chosenRegret)
+						|| (optionsNo == chosenOptionsNo && regret == chosenRegret
+							&& bestCosts[0] < chosenCost)) {
+
+					chosen = p;
+					chosenVehicle = bestVehicle;
+					chosenOptionsNo = optionsNo;
+					chosenRegret = regret;
+					chosenCost = bestCosts[0];
+				}
+			}
+
+			RequestPositions chosenPositions = positions[chosen][chosenVehicle];
+			Vehicle vehicle = solution.getVehicleForUpdate(chosenVehicle);
+			vehicle.insertRequest(left.get(chosen),
+					chosenPositions.getPickupPosition(), chosenPositions.getDeliveryPosition());
+
+			/* the inserted request's row is replaced
+			 * by the last one and the changed route's column
+			 * is recomputed */
+
+			int last = left.size() - 1;
+			left.set(chosen, left.get(last));
+			left.remove(last);
+			costs[chosen] = costs[last];
+			positions[chosen] = positions[last];
+
+			updateCosts(left, vehicle, chosenVehicle, costs, positions, objective, configuration);
+		}
+
+		return true;
 	}
 
+	private void updateCosts(List<PickupRequest> pickups, Vehicle vehicle, int vehicleIndex,
+			double[][] costs, RequestPositions[][] positions,
+			Objective objective, Configuration configuration) {
 
+		double curObjective = objective.calculateForVehicle(vehicle);
 
+		for (int p = 0; p < pickups.size(); p++) {
+			RequestPositions found = findBestInsertionPositions(
+					pickups.get(p), vehicle, configuration);
 
+			positions[p][vehicleIndex] = found;
+			costs[p][vehicleIndex] = (found.getPickupPosition() != Integer.MAX_VALUE)
+					? found.getObjectiveValue() - curObjective
+					: Double.POSITIVE_INFINITY;
+		}
+	}
 }
@@ -1,9 +1,48 @@
 package pl.edu.agh.io.pdptw.algorithm.objective;
 
+import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 public interface Objective {
 	double calculate(Solution solution);
 	double calculateForVehicle(Vehicle vehicle);
+	
+	/* change of the vehicle's objective value caused by
+	 * inserting the pickup (and its delivery) at the given
+	 * positions (the same positions as in Vehicle.insertRequest()).
+	 * 
+	 * The default implementation simply performs the insertion
+	 * and reverts it afterwards; objectives which can do better
+	 * (e.g. using only the neighbouring requests) should
+	 * override it. The route must remain unchanged. */
+	
+	default double calculateInsertionDelta(Vehicle vehicle, 
+			PickupRequest pickup, int pickupPosition, int deliveryPosition) {
+		
+		double before = calculateForVehicle(vehicle);
+		vehicle.insertRequest(pickup, pickupPosition, deliveryPosition);
+		double after = calculateForVehicle(vehicle);
+		vehicle.removeRequest(pickup);
+		
+		return after - before;
+	}
+	
+	/* change of the vehicle's objective value caused by
+	 * removing the pickup and the delivery from the given
+	 * positions (both in the current route, as returned by 
+	 * Vehicle.removeRequest(PickupRequest)).
+	 * 
+	 * The default implementation performs the removal on a copy
+	 * of the vehicle as the vehicle may be shared with other 
+	 * solutions; the route must remain unchanged. */
+	
+	default double calculateRemovalDelta(Vehicle vehicle, 
+			int pickupPosition, int deliveryPosition) {
+		
+		Vehicle copy = vehicle.copy();
+		copy.removeRequest(pickupPosition, deliveryPosition);
+		
+		return calculateForVehicle(copy) - calculateForVehicle(vehicle);
+	}
 }
@@ -1,11 +1,14 @@
 package pl.edu.agh.io.pdptw.algorithm.objective;
 
+import pl.edu.agh.io.pdptw.model.DistanceMatrix;
 import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 import java.util.Iterator;
+import java.util.List;
 
 public class TotalDistanceObjective implements Objective {
 
@@ -27,25 +30,110 @@ public class TotalDistanceObjective implements Objective {
 			/* add the distance between the start location 
 			 * and the location of the first reguest */
 			
-			result += Location.calculateDistance(
-					prevRequest.getLocation(), vehicle.getStartLocation());
+			result += DistanceMatrix.calculateDistance(
+					vehicle.getStartLocation(), prevRequest);
 			
 			while (it.hasNext()) {
 				Request curRequest = it.next();
-				result += Location.calculateDistance(
-						prevRequest.getLocation(), curRequest.getLocation());
+				result += DistanceMatrix.calculateDistance(
+						prevRequest, curRequest);
 				prevRequest = curRequest;
 			}
 			
 			/* add the distance between the last request location 
 			 * and the vehicle's start location */
 			
-			result += Location.calculateDistance(
-					prevRequest.getLocation(), vehicle.getStartLocation());
+			result += DistanceMatrix.calculateDistance(
+					vehicle.getStartLocation(), prevRequest);
 			
 		}
 		
 		return result;
 	}
+	
+	/* only the edges adjacent to the inserted requests change:
+	 * the pickup (and the delivery) replace the edge between
+	 * their neighbours (null stands for the vehicle's start location).
+	 * Positions follow the Vehicle.insertRequest() convention,
+	 * i.e. the delivery position is given for the route that 
+	 * already contains the pickup. */
+	
+	@Override
+	public double calculateInsertionDelta(Vehicle vehicle, 
+			PickupRequest pickup, int pickupPosition, int deliveryPosition) {
+		
+		List<Request> requests = vehicle.getRoute().getRequests();
+		Location start = vehicle.getStartLocation();
+		Request delivery = pickup.getSibling();
+		Request beforePickup = (pickupPosition > 0) 
+				? requests.get(pickupPosition - 1) : null;
+		Request afterPickup = (pickupPosition < requests.size()) 
+				? requests.get(pickupPosition) : null;
+		
+		if (deliveryPosition == pickupPosition + 1) {
+			return calculateDistance(start, beforePickup, pickup)
+					+ DistanceMatrix.calculateDistance(pickup, delivery)
+					+ calculateDistance(start, delivery, afterPickup)
+					- calculateDistance(start, beforePickup, afterPickup);
+		}
+		
+		Request beforeDelivery = requests.get(deliveryPosition - 2);
+		Request afterDelivery = (deliveryPosition - 1 < requests.size()) 
+				? requests.get(deliveryPosition - 1) : null;
+		
+		return calculateDistance(start, beforePickup, pickup)
+				+ calculateDistance(start, pickup, afterPickup)
+				- calculateDistance(start, beforePickup, afterPickup)
+				+ calculateDistance(start, beforeDelivery, delivery)
+				+ calculateDistance(start, delivery, afterDelivery)
+				- calculateDistance(start, beforeDelivery, afterDelivery);
+	}
+	
+	/* the reverse of the insertion: the edges adjacent to the
+	 * removed requests are replaced by the edges between
+	 * their neighbours */
+	
+	@Override
+	public double calculateRemovalDelta(Vehicle vehicle, 
+			int pickupPosition, int deliveryPosition) {
+		
+		List<Request> requests = vehicle.getRoute().getRequests();
+		Location start = vehicle.getStartLocation();
+		Request pickup = requests.get(pickupPosition);
+		Request delivery = requests.get(deliveryPosition);
+		Request beforePickup = (pickupPosition > 0) 
+				? requests.get(pickupPosition - 1) : null;
+		Request afterDelivery = (deliveryPosition + 1 < requests.size()) 
+				? requests.get(deliveryPosition + 1) : null;
+		
+		if (deliveryPosition == pickupPosition + 1) {
+			return calculateDistance(start, beforePickup, afterDelivery)
+					- calculateDistance(start, beforePickup, pickup)
+					- DistanceMatrix.calculateDistance(pickup, delivery)
+					- calculateDistance(start, delivery, afterDelivery);
+		}
+		
+		Request afterPickup = requests.get(pickupPosition + 1);
+		Request beforeDelivery = requests.get(deliveryPosition - 1);
+		
+		return calculateDistance(start, beforePickup, afterPickup)
+				- calculateDistance(start, beforePickup, pickup)
+				- calculateDistance(start, pickup, afterPickup)
+				+ calculateDistance(start, beforeDelivery, afterDelivery)
+				- calculateDistance(start, beforeDelivery, delivery)
+				- calculateDistance(start, delivery, afterDelivery);
+	}
+	
+	private static double calculateDistance(Location start, Request from, Request to) {
+		if (from == null && to == null) {
+			return 0;
+		} else if (from == null) {
+			return DistanceMatrix.calculateDistance(start, to);
+		} else if (to == null) {
+			return DistanceMatrix.calculateDistance(start, from);
+		}
+		
+		return DistanceMatrix.calculateDistance(from, to);
+	}
 
 }
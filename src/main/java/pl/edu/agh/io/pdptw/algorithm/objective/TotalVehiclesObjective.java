@@ -1,5 +1,6 @@
 package pl.edu.agh.io.pdptw.algorithm.objective;
 
+import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Route;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
@@ -25,5 +26,21 @@ public class TotalVehiclesObjective implements Objective {
 	public double calculateForVehicle(Vehicle vehicle) {
 		return 1;
 	}
+	
+	/* the value for a single vehicle is constant */
+	
+	@Override
+	public double calculateInsertionDelta(Vehicle vehicle, 
+			PickupRequest pickup, int pickupPosition, int deliveryPosition) {
+		
+		return 0;
+	}
+	
+	@Override
+	public double calculateRemovalDelta(Vehicle vehicle, 
+			int pickupPosition, int deliveryPosition) {
+		
+		return 0;
+	}
 
 }
@@ -1,6 +1,7 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -8,13 +9,18 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionAlgorithm;
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
 import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.RequestType;
@@ -22,10 +28,23 @@ import pl.edu.agh.io.pdptw.model.Route;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
+/* The memory may be shared by many threads (e.g. all the
+ * workers of DecompositionOptimizer publish their partial
+ * solutions to a single memory and sample from it).
+ * 
+ * The solutions are kept in an immutable list sorted by
+ * the objective value which is replaced as a whole
+ * (compare-and-set) by every modification so the readers
+ * always work on a consistent snapshot and nobody blocks. 
+ * The stored solutions are copies whose hashes are computed
+ * before they're published so they're never modified 
+ * by the memory afterwards. */
+
 @Getter
 public class AdaptiveMemory {
-	private static final double MAX_OBJECTIVE_DIFFERENCE = 0.001;
-	private List<Solution> solutions;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicReference<List<Solution>> solutions;
 	private final int SIZE;
 	private final Objective objective;
 	private final InsertionAlgorithm insertionAlg;
@@ -33,74 +52,141 @@ public class AdaptiveMemory {
 	
 	public AdaptiveMemory(int size, Configuration configuration) {
 		this.SIZE = size;
-		this.solutions = new ArrayList<>(SIZE);
+		this.solutions = new AtomicReference<>(Collections.emptyList());
 		this.objective = configuration.getAlgorithms().getObjective();
 		this.insertionAlg = configuration.getAlgorithms().getInsertionAlgorithm();
 		this.configuration = configuration;
 	}
 	
-	/* a simplified version of checking whether
-	 * the solution has already been added to the 
-	 * solutions list */
+	/* returns the current snapshot of the solutions
+	 * (unmodifiable, later changes aren't visible in it) */
+	
+	public List<Solution> getSolutions() {
+		return solutions.get();
+	}
+	
+	/* checks whether the solution has already been added 
+	 * to the solutions list by comparing the structural
+	 * hashes (see SolutionHash) */
 	
 	public boolean contains(Solution solution) {
+		return contains(solutions.get(), solution.getHash());
+	}
+	
+	private static boolean contains(List<Solution> solutions, long hash) {
 		boolean sameSolutionsFound = false;
 		Iterator<Solution> solutionsIt = solutions.iterator();
 		
 		while (solutionsIt.hasNext() && !sameSolutionsFound) {
-			
-			Solution s = solutionsIt.next();
-			
-			if (Math.abs(
-					solution.getObjectiveValue() - s.getObjectiveValue())
-				<= MAX_OBJECTIVE_DIFFERENCE) {
-				
-				sameSolutionsFound = true;
-			}
+			sameSolutionsFound = (solutionsIt.next().getHash() == hash);
 		}
 		
 		return sameSolutionsFound;
 	}
 	
-	public synchronized boolean addSolution(Solution solution) {
-		boolean success = true;
+	public boolean addSolution(Solution solution) {
+		return addSolution(solution, false);
+	}
+	
+	/* the shared solution is stored as a copy-on-write copy
+	 * (see Solution.createShallowCopy()) so the caller must
+	 * not modify its vehicles in place afterwards (other than
+	 * temporarily, e.g. using the MoveJournal) */
+	
+	public boolean addSharedSolution(Solution solution) {
+		return addSolution(solution, true);
+	}
+	
+	/* when the memory is full the solution replaces
+	 * the worst one provided that it's better */
+	
+	private boolean addSolution(Solution solution, boolean shared) {
+		long hash = solution.getHash();
+		double objectiveValue = solution.getObjectiveValue();
+		Solution copy = null;
+		List<Solution> current;
+		List<Solution> updated;
 		
-		if (solutions.size() >= SIZE
-				|| contains(solution)) {
-			success = false;
-		} else {
+		do {
+			current = solutions.get();
+			
+			if (contains(current, hash)
+					|| (current.size() >= SIZE 
+						&& (SIZE == 0 
+							|| current.get(current.size() - 1).getObjectiveValue() <= objectiveValue))) {
+				Metrics.increment(Counter.MEMORY_REJECTS);
+				return false;
+			}
 			
 			/* we need to copy the solution
-			 * to prevent its unintended modifications */
+			 * to prevent its unintended modifications
+			 * (only once, even if we have to retry) */
+			
+			if (copy == null) {
+				copy = shared 
+						? solution.createShallowCopy() 
+						: solution.copy();
+				copy.getHash();
+			}
 			
-			Solution copy = solution.copy();
-			Iterator<Solution> it = solutions.iterator();
 			int position = 0;
-			while (it.hasNext() 
-					&& it.next().getObjectiveValue() < copy.getObjectiveValue()) {
+			while (position < current.size() 
+					&& current.get(position).getObjectiveValue() < objectiveValue) {
 				position++;
 			}
 			
-			if (position < SIZE) {
-				solutions.add(position, copy);
-			}
-		}
+			updated = new ArrayList<>(Math.min(current.size() + 1, SIZE));
+			updated.addAll(current.subList(0, position));
+			updated.add(copy);
+			updated.addAll(current.subList(position, Math.min(current.size(), SIZE - 1)));
+		} while (!solutions.compareAndSet(current, Collections.unmodifiableList(updated)));
+		
+		Metrics.increment(Counter.MEMORY_INSERTS);
 		
-		return success;
+		return true;
 	}
 	
-	public synchronized boolean removeSolution(Solution solution) {
-		boolean present = contains(solution);
+	public boolean removeSolution(Solution solution) {
+		long hash = solution.getHash();
+		boolean[] removed = new boolean[1];
 		
-		if (present) {
-			solutions.remove(solution);
-		}
+		modify(list -> {
+			removed[0] = list.removeIf(s -> s.getHash() == hash);
+			return list;
+		});
+		
+		return removed[0];
+	}
+	
+	public Solution removeSolutionOnPosition(int position) {
+		Solution[] removed = new Solution[1];
+		
+		modify(list -> {
+			removed[0] = list.remove(position);
+			return list;
+		});
 		
-		return present;
+		return removed[0];
 	}
 	
-	public synchronized Solution removeSolutionOnPosition(int position) {
-		return solutions.remove(position);
+	public void clear() {
+		solutions.set(Collections.emptyList());
+	}
+	
+	/* applies the modification to a copy of the current
+	 * snapshot and publishes it (retrying if somebody else
+	 * has been faster so the modification may be applied
+	 * more than once) */
+	
+	private void modify(UnaryOperator<List<Solution>> modification) {
+		List<Solution> current;
+		List<Solution> updated;
+		
+		do {
+			current = solutions.get();
+			updated = Collections.unmodifiableList(
+					modification.apply(new ArrayList<>(current)));
+		} while (!solutions.compareAndSet(current, updated));
 	}
 
 	/* the general idea behind this method
@@ -180,9 +266,35 @@ public class AdaptiveMemory {
 	 * requestIndices: [ 0, 1,   2, 3, 4, 5,   6, 7]  (indices)
 	 *             s1: [[1, 2], [3, 5, 4, 6], [7, 8]] (requests ids)
 	 *                   v1      v2            v3	  (vehicles)
+	 * 
+	 * the new solution serves the requests of the base
+	 * solution (the first solution on the sortedSolutions
+	 * list if there's none given); the memory may hold
+	 * solutions of different problems (e.g. partial solutions
+	 * of different groups) so only the routes whose requests
+	 * all belong to the base solution are picked, the 
+	 * solutions without such routes are skipped
 	 * */
 	
-	public synchronized Solution createRandomSolution(double threshold, int iterationsNo) 
+	public Solution createRandomSolution(double threshold, int iterationsNo) 
+			throws IllegalArgumentException {
+		
+		List<Solution> snapshot = solutions.get();
+		
+		return (snapshot.size() > 0)
+				? createRandomSolution(threshold, iterationsNo, 
+						snapshot.stream()
+						.min((s1, s2) -> Double.compare(
+								s1.getObjectiveValue(),
+								s2.getObjectiveValue()))
+						.get())
+				: null;
+	}
+	
+	/* the base solution isn't modified, if no solution
+	 * can be created its copy is returned instead */
+	
+	public Solution createRandomSolution(double threshold, int iterationsNo, Solution base) 
 			throws IllegalArgumentException {
 		
 		if (threshold < 0 || threshold >= 1) {
@@ -194,44 +306,50 @@ public class AdaptiveMemory {
 					+ " Should be non-negative");
 		}
 
-		Solution newSolution = null;
-		List<Solution> sortedSolutions = solutions.stream()
-				.sorted((s1, s2) -> Double.compare(
-						s1.getObjectiveValue(),
-						s2.getObjectiveValue()))
-				.collect(Collectors.toList());
+		/* create shallow copy of all requests */
 		
-		List<Integer> solutionIndices = new ArrayList<>(sortedSolutions.size());
+		Solution baseCopy = base.copy();
+		List<Integer> requestsIds = baseCopy
+				.getRequests()
+				.stream()
+				.map(r -> r.getId())
+				.collect(Collectors.toList());
+		Set<Integer> baseRequestsIds = new HashSet<>(requestsIds);
+		List<Solution> sortedSolutions = new ArrayList<>();
 		Map<Integer, List<Integer>> routeIndicesForSolution = new HashMap<>();
-		IntStream.range(0, sortedSolutions.size()).forEach(i -> solutionIndices.add(i));
 		
-		for (Integer i : solutionIndices) {
+		for (Solution solution : getSolutions().stream()
+				.sorted((s1, s2) -> Double.compare(
+						s1.getObjectiveValue(),
+						s2.getObjectiveValue()))
+				.collect(Collectors.toList())) {
 			
 			/* .boxed() transforms the IntStream to a Stream<Integer>
 			 * which can be collected in the form 
 			 * of a list */
 			
+			List<Vehicle> vehicles = solution.getVehicles();
 			List<Integer> routeIds = IntStream
-					.range(0, sortedSolutions
-							.get(i)
-							.getRoutes()
-							.size())
+					.range(0, vehicles.size())
+					.filter(i -> vehicles.get(i)
+							.getRoute()
+							.getRequests()
+							.stream()
+							.allMatch(r -> baseRequestsIds.contains(r.getId())))
 					.boxed()
 					.collect(Collectors.toList());
 			
-			routeIndicesForSolution.put(i, routeIds);
+			if (routeIds.size() > 0) {
+				routeIndicesForSolution.put(sortedSolutions.size(), routeIds);
+				sortedSolutions.add(solution);
+			}
 		}
 		
+		List<Integer> solutionIndices = new ArrayList<>(sortedSolutions.size());
+		IntStream.range(0, sortedSolutions.size()).forEach(i -> solutionIndices.add(i));
+		Solution newSolution = baseCopy;
+		
 		if (sortedSolutions.size() > 0) {
-			
-			/* create shallow copy of all requests */
-			
-			Solution firstSolution = sortedSolutions.get(0).copy();
-			List<Integer> requestsIds = firstSolution
-					.getRequests()
-					.stream()
-					.map(r -> r.getId())
-					.collect(Collectors.toList());
 			List<Vehicle> pickedVehicles = new LinkedList<>();
 			Set<Integer> pickedRequestsIds = new HashSet<>();
 			
@@ -324,7 +442,7 @@ public class AdaptiveMemory {
 			newSolution = new Solution(pickedVehicles);
 			
 			if (requestsIds.size() > 0) {
-				Iterator<PickupRequest> leftRequestsIt = firstSolution.getRequests().stream()
+				Iterator<PickupRequest> leftRequestsIt = baseCopy.getRequests().stream()
 						.filter(r -> r.getType() == RequestType.PICKUP)
 						.map(r -> (PickupRequest) r)
 						.filter(r -> requestsIds.contains(r.getId()))
@@ -338,10 +456,11 @@ public class AdaptiveMemory {
 				}
 				
 				/* if inserting all requests is not possible
-				 * return the best current solution */
+				 * return the base solution (a copy
+				 * as the caller is free to modify it) */
 				
 				if (!insertedSuccessfully) {
-					newSolution = sortedSolutions.get(0);
+					newSolution = base.copy();
 				}
 			}
 		}
@@ -353,8 +472,8 @@ public class AdaptiveMemory {
 	 * keep removing the last elements */
 	
 	public void update() {
-		while (solutions.size() > SIZE) {
-			solutions.remove(solutions.size() - 1);
+		if (solutions.get().size() > SIZE) {
+			modify(list -> new ArrayList<>(list.subList(0, SIZE)));
 		}
 	}
 }
@@ -0,0 +1,364 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+import pl.edu.agh.io.pdptw.algorithm.insertion.GreedyInsertion;
+import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.insertion.RegretInsertion;
+import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
+import pl.edu.agh.io.pdptw.algorithm.removal.RandomRemoval;
+import pl.edu.agh.io.pdptw.algorithm.removal.RemovalAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.removal.ShawRemoval;
+import pl.edu.agh.io.pdptw.algorithm.removal.WorstRemoval;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.metrics.ConvergenceTrace;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+
+/* Adaptive Large Neighborhood Search (Ropke, Pisinger)
+ *
+ * In each iteration a number of requests is removed from
+ * the current solution by one of the destroy operators
+ * (removal algorithms) and inserted back by one of the repair
+ * operators (insertion algorithms). The new solution is
+ * accepted using the simulated annealing criterion.
+ *
+ * The operators are drawn using the roulette wheel;
+ * their weights are updated after each segment of iterations
+ * based on the scores they've got (a new best solution, an
+ * improvement, an accepted new solution) divided by the time
+ * they take (relative to the other operators of the same kind) */
+
+public class AlnsOptimization implements OptimizationAlgorithm {
+
+	/* scores for: a new best solution, a solution better
+	 * than the current one and an accepted worse one; the
+	 * scores are given only to the solutions not seen before */
+
+	private static final double NEW_BEST_SCORE = 33;
+	private static final double IMPROVEMENT_SCORE = 9;
+	private static final double ACCEPTANCE_SCORE = 13;
+	private static final double REACTION_FACTOR = 0.1;
+	private static final int SEGMENT_LENGTH = 100;
+
+	/* the initial temperature allows to accept a solution
+	 * worse by START_WORSENING with the probability of 0.5;
+	 * it drops to END_TEMPERATURE_RATIO of it in the last iteration */
+
+	private static final double START_WORSENING = 0.05;
+	private static final double END_TEMPERATURE_RATIO = 0.002;
+
+	/* the number of removed requests pairs is drawn
+	 * from [1, min(MAX_REMOVED, MAX_REMOVED_FRACTION * pairs)] */
+
+	private static final int MAX_REMOVED = 30;
+	private static final double MAX_REMOVED_FRACTION = 0.4;
+
+	/* the hashes of the visited solutions are kept in
+	 * a direct-mapped table (like in TabuList) so the memory
+	 * doesn't grow with the iterations; an overwritten
+	 * solution is scored as a new one again */
+
+	private static final int VISITED_HASHES_NO = 1 << 14;
+
+	private Solution solution;
+	private AdaptiveMemory adaptiveMemory;
+	private Configuration configuration;
+	private AtomicBoolean shouldStop = new AtomicBoolean(false);
+	private long deadline = Long.MAX_VALUE;
+	private final AtomicReference<Solution> publishedSolution = new AtomicReference<>();
+
+	@Override
+	public Solution optimize() {
+		LoggingUtils.info("ALNS optimization started (" + solution.getRequests().size() + " requests)");
+
+		this.shouldStop.set(false);
+
+		final int MAX_ITERATIONS = configuration.getIterations();
+		final long DEADLINE = (deadline == Long.MAX_VALUE && configuration.getTimeLimit() > 0)
+				? System.currentTimeMillis() + configuration.getTimeLimit()
+				: deadline;
+		Objective objective = configuration.getAlgorithms().getObjective();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		solution.updateOjectiveValue(objective);
+
+		List<Operator<RemovalAlgorithm>> removals = createOperators(
+				configuration.getAlgorithms().getRemovalAlgorithm(),
+				new RandomRemoval(), new WorstRemoval(), new ShawRemoval());
+		List<Operator<InsertionAlgorithm>> insertions = createOperators(
+				configuration.getAlgorithms().getInsertionAlgorithm(),
+				new GreedyInsertion(), new RegretInsertion());
+
+		/* the current solution is never modified in place
+		 * (each iteration works on its copy-on-write copy, only
+		 * the vehicles touched by the operators are copied) so it
+		 * may be shared with the adaptive memory */
+
+		Solution curSolution = solution.copy();
+		Solution bestSolution = curSolution;
+		adaptiveMemory.addSharedSolution(bestSolution);
+		
+		/* the readers get a copy as the best solution
+		 * shares its vehicles with the following candidates */
+		
+		publishedSolution.set(bestSolution.copy());
+		long[] visitedHashes = new long[VISITED_HASHES_NO];
+		setAsVisited(visitedHashes, curSolution.getHash());
+
+		final double START_TEMPERATURE = -START_WORSENING * curSolution.getObjectiveValue() / Math.log(0.5);
+		final double COOLING_RATE = Math.pow(END_TEMPERATURE_RATIO, 1.0 / Math.max(1, MAX_ITERATIONS));
+		double temperature = START_TEMPERATURE;
+		ConvergenceTrace trace = ConvergenceTrace.getCurrent();
+		int traceId = (trace != null) ? trace.startSearch() : 0;
+
+		for (int i = 0; i < MAX_ITERATIONS && !shouldStop.get()
+				&& System.currentTimeMillis() < DEADLINE; i++) {
+
+			if (i % SEGMENT_LENGTH == 0 && i != 0) {
+				updateWeights(removals);
+				updateWeights(insertions);
+			}
+
+			Operator<RemovalAlgorithm> removal = drawOperator(removals, random);
+			Operator<InsertionAlgorithm> insertion = drawOperator(insertions, random);
+			int pairsNo = curSolution.getRequests().size() / 2;
+			int maxRemoved = Math.max(1, Math.min(MAX_REMOVED, (int) (MAX_REMOVED_FRACTION * pairsNo)));
+
+			Solution candidate = curSolution.createShallowCopy();
+			long start = System.nanoTime();
+			List<PickupRequest> removed = destroy(candidate, removal.getAlgorithm(),
+					1 + random.nextInt(maxRemoved));
+			removal.addTime(System.nanoTime() - start);
+
+			start = System.nanoTime();
+			boolean repaired = repair(candidate, insertion.getAlgorithm(), removed);
+			insertion.addTime(System.nanoTime() - start);
+
+			double score = 0;
+
+			if (repaired) {
+				candidate.updateOjectiveValue(objective);
+				double difference = candidate.getObjectiveValue() - curSolution.getObjectiveValue();
+				boolean notVisited = setAsVisited(visitedHashes, candidate.getHash());
+
+				if (candidate.getObjectiveValue() < bestSolution.getObjectiveValue()) {
+					score = NEW_BEST_SCORE;
+					curSolution = candidate;
+					bestSolution = candidate;
+					adaptiveMemory.addSharedSolution(bestSolution);
+					publishedSolution.set(bestSolution.copy());
+					LoggingUtils.info("New best solution found: " + bestSolution.getObjectiveValue());
+				} else if (difference < 0) {
+					score = (notVisited) ? IMPROVEMENT_SCORE : 0;
+					curSolution = candidate;
+				} else if (random.nextDouble() < Math.exp(-difference / temperature)) {
+					score = (notVisited) ? ACCEPTANCE_SCORE : 0;
+					curSolution = candidate;
+				}
+			}
+
+			removal.addScore(score);
+			insertion.addScore(score);
+			temperature *= COOLING_RATE;
+			adaptiveMemory.update();
+
+			if (trace != null) {
+				trace.record(traceId, i, curSolution.getObjectiveValue(),
+						bestSolution.getObjectiveValue(), bestSolution.getVehicles().size());
+			}
+		}
+
+		LoggingUtils.info("Optimization finished. Best found solution: "
+				+ bestSolution.getObjectiveValue());
+		LoggingUtils.info("Number of used vehicles: " + bestSolution.getVehicles().size());
+
+		/* the best solution shares its vehicles with
+		 * the adaptive memory (see TabuOptimization) */
+
+		this.solution = bestSolution.copy();
+
+		return this.solution;
+	}
+
+	/* returns false if the solution has been visited */
+
+	private static boolean setAsVisited(long[] visitedHashes, long hash) {
+		int position = (int) ((hash ^ (hash >>> 32)) & 0x7fffffff) % visitedHashes.length;
+		boolean notVisited = (visitedHashes[position] != hash);
+		visitedHashes[position] = hash;
+
+		return notVisited;
+	}
+
+	/* removes the given number of requests pairs (or fewer
+	 * if the removal algorithm fails); returns the pickups */
+
+	private List<PickupRequest> destroy(Solution solution, RemovalAlgorithm removal, int removedNo) {
+		return removal.removeRequestsFromSolution(solution, removedNo, configuration)
+				.stream()
+				.map(r -> (PickupRequest) ((r.getType() == RequestType.PICKUP)
+						? r
+						: r.getSibling()))
+				.collect(Collectors.toList());
+	}
+
+	/* returns false if any of the requests couldn't
+	 * be inserted; the vehicles left empty are removed
+	 * from the solution */
+
+	private boolean repair(Solution solution, InsertionAlgorithm insertion, List<PickupRequest> removed) {
+		boolean insertedSuccessfully = insertion.insertRequestsToSolution(
+				removed, solution, configuration);
+		solution.getVehicles().removeIf(v -> v.getRoute().getRequests().size() == 0);
+
+		return insertedSuccessfully;
+	}
+
+	@SafeVarargs
+	private static <T> List<Operator<T>> createOperators(T configured, T... others) {
+		List<Operator<T>> operators = new ArrayList<>();
+		operators.add(new Operator<>(configured));
+
+		for (T algorithm : others) {
+			if (algorithm.getClass() != configured.getClass()) {
+				operators.add(new Operator<>(algorithm));
+			}
+		}
+
+		return operators;
+	}
+
+	private static <T> Operator<T> drawOperator(List<Operator<T>> operators, ThreadLocalRandom random) {
+		double weightsSum = operators.stream()
+				.mapToDouble(Operator::getWeight)
+				.sum();
+		double drawn = random.nextDouble() * weightsSum;
+
+		for (Operator<T> operator : operators) {
+			drawn -= operator.getWeight();
+
+			if (drawn < 0) {
+				return operator;
+			}
+		}
+
+		return operators.get(operators.size() - 1);
+	}
+
+	/* the operators' time is compared with the mean time
+	 * of all the operators of the same kind so that
+	 * the weights don't depend on the instance size */
+
+	private static <T> void updateWeights(List<Operator<T>> operators) {
+		double meanTime = operators.stream()
+				.filter(o -> o.getUsesNo() > 0)
+				.mapToDouble(o -> o.getTime() / o.getUsesNo())
+				.average()
+				.orElse(1.0);
+
+		for (Operator<T> operator : operators) {
+			operator.updateWeight(meanTime);
+		}
+	}
+
+	/* a destroy or repair operator with its weight
+	 * and the statistics from the current segment */
+
+	@Getter
+
+	private static final class Operator<T> {
+		private static final double MIN_WEIGHT = 0.05;
+
+		private final T algorithm;
+		private double weight = 1.0;
+		private double score;
+		private double time;
+		private int usesNo;
+
+		private Operator(T algorithm) {
+			this.algorithm = algorithm;
+		}
+
+		private void addScore(double score) {
+			this.score += score;
+			this.usesNo++;
+		}
+
+		private void addTime(long time) {
+			this.time += time;
+		}
+
+		private void updateWeight(double meanTime) {
+			if (usesNo > 0) {
+				double relativeTime = Math.max(time / usesNo / meanTime, Double.MIN_NORMAL);
+				weight = Math.max(MIN_WEIGHT, (1 - REACTION_FACTOR) * weight
+						+ REACTION_FACTOR * (score / usesNo) / relativeTime);
+			}
+
+			score = 0;
+			time = 0;
+			usesNo = 0;
+		}
+	}
+
+	@Override
+	public synchronized Solution getSolution() {
+		return this.solution;
+	}
+
+	@Override
+	public synchronized AdaptiveMemory getAdaptiveMemory() {
+		return this.adaptiveMemory;
+	}
+
+	@Override
+	public OptimizationAlgorithm setConfiguration(Configuration configuration) {
+		this.configuration = configuration;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setSolution(Solution solution) {
+		this.solution = solution;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setAdaptiveMemory(AdaptiveMemory adaptiveMemory) {
+		this.adaptiveMemory = adaptiveMemory;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setDeadline(long deadline) {
+		this.deadline = deadline;
+		return this;
+	}
+
+	@Override
+	public Solution getBestSolution() {
+		return publishedSolution.get();
+	}
+
+	@Override
+	public void stopOptimization() {
+		shouldStop.set(true);
+	}
+
+	@Override
+	public OptimizationAlgorithm createShallowCopy() {
+		return new AlnsOptimization()
+						.setConfiguration(configuration)
+						.setSolution(solution)
+						.setAdaptiveMemory(adaptiveMemory)
+						.setDeadline(deadline);
+	}
+}
@@ -1,22 +1,42 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import pl.edu.agh.io.pdptw.algorithm.decomposition.DecompositionAlgorithm;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.metrics.ConvergenceTrace;
+import pl.edu.agh.io.pdptw.metrics.Histogram;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.remote.RemoteWorkerPool;
+import pl.edu.agh.io.pdptw.remote.SolutionCodec;
 import pl.edu.agh.io.pdptw.visualization.VisualizationService;
 
 @Data
-public class DecompositionOptimizer implements Runnable {
+public class DecompositionOptimizer implements Runnable, AutoCloseable {
+	
+	/* the partial solutions kept per thread of the pool 
+	 * (as many as in the memory of a single search) */
+	
+	private static final int PARTIAL_SOLUTIONS_PER_THREAD = 32;
+	
 	private Configuration configuration;
 	private DecompositionAlgorithm decomposition;
 	private Solution solution;
@@ -25,57 +45,177 @@ public class DecompositionOptimizer implements Runnable {
 	private AdaptiveMemory adaptiveMemory;
 	private AtomicBoolean shouldStop;
 	
+	/* the partial solutions are optimized by a work-stealing
+	 * pool bounded by the number of cores; it lives as long as
+	 * the optimizer (which may be started many times, see
+	 * RequestDispatcher) and is shut down by close() */
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ExecutorService executor;
+	
+	/* adaptive memory shared by all the workers; the partial 
+	 * solutions of all the groups are published to it and the
+	 * workers sample the routes of their own requests (see
+	 * AdaptiveMemory.createRandomSolution()) so the routes found 
+	 * by one group may be used after regrouping by another one */
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AdaptiveMemory partialSolutionsMemory;
+	
+	/* worker processes optimizing the partial solutions
+	 * (see Configuration.remoteWorkers); the pool is started
+	 * by each run and closed when the run is finished */
+	
+	private RemoteWorkerPool workerPool;
+	
+	/* the best complete solution found during the current run;
+	 * it's replaced (never modified) after each cycle so it can
+	 * be read at any moment (see getBestSolution()) */
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicReference<Solution> bestSolution = new AtomicReference<>();
+	
 	public DecompositionOptimizer(Solution solution, Configuration configuration) {
 		this.solution = solution;
 		this.configuration = configuration;
 		this.decomposition = configuration.getAlgorithms().getDecompositionAlgorithm();
-		this.workers = new LinkedList<OptimizationWorker>();
+		this.workers = new CopyOnWriteArrayList<OptimizationWorker>();
 		this.visualizationService = new VisualizationService();
 		this.adaptiveMemory = new AdaptiveMemory(32, configuration);
+		this.partialSolutionsMemory = new AdaptiveMemory(
+				PARTIAL_SOLUTIONS_PER_THREAD * Runtime.getRuntime().availableProcessors(), 
+				configuration);
 		this.shouldStop = new AtomicBoolean(false);
+		this.executor = Executors.newWorkStealingPool(
+				Runtime.getRuntime().availableProcessors());
 	}
 	
 	@Override
 	public void run() {
+		if (executor.isShutdown()) {
+			throw new IllegalStateException("The optimizer has been closed");
+		}
+		
 		this.shouldStop.set(false);
+		this.bestSolution.set(solution.copy());
+		
+		/* the solution may have been changed since the last run
+		 * (see RequestDispatcher) so the stored routes may contain
+		 * requests which don't exist anymore */
+		
+		this.partialSolutionsMemory.clear();
+		
+		try {
+			optimize();
+		} finally {
+			if (workerPool != null) {
+				workerPool.close();
+			}
+		}
+	}
+	
+	private void optimize() {
+		workerPool = null;
+		
+		if (configuration.getRemoteWorkers() > 0) {
+			try {
+				workerPool = new RemoteWorkerPool(configuration.getRemoteWorkers());
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+				LoggingUtils.error("Remote workers couldn't be started, optimizing locally");
+			}
+		}
 		
 		final int CYCLES = (configuration.isDynamic()) ? Integer.MAX_VALUE : configuration.getDecompositionCycles() - 1;
-		final int ITERATIONS_PER_DECOMPOSITION = configuration.getIterationsPerDecomposition();
+		final int ITERATIONS_PER_DECOMPOSITION = Math.max(1, configuration.getIterationsPerDecomposition());
+		final long END = (configuration.getTimeLimit() > 0) 
+				? System.currentTimeMillis() + configuration.getTimeLimit()
+				: Long.MAX_VALUE;
 		int cyclesCounter = 0;
 		
-		while (!shouldStop.get() && cyclesCounter < CYCLES) {
+		/* the searches trace the partial problems,
+		 * this thread traces the complete solutions */
+		
+		ConvergenceTrace trace = ConvergenceTrace.getCurrent();
+		int traceId = (trace != null) ? trace.startSearch() : 0;
+		
+		while (!shouldStop.get() && cyclesCounter < CYCLES 
+				&& System.currentTimeMillis() < END) {
+			
 			cyclesCounter++;
 			
-			for (int i = 0; i < ITERATIONS_PER_DECOMPOSITION && !shouldStop.get(); i++) {
-				workers = new LinkedList<>();
-				List<Solution> partialSolutions = decomposition.decompose(solution, configuration);
-				ExecutorService executor = Executors.newFixedThreadPool(partialSolutions.size());
+			/* the time left is split evenly between the remaining
+			 * cycles (in the dynamic version we plan for decompositionCycles
+			 * and the last one takes all the remaining time) */
+			
+			int plannedCycles = (configuration.isDynamic()) 
+					? configuration.getDecompositionCycles() 
+					: CYCLES;
+			final long CYCLE_DEADLINE = getDeadline(END, 
+					Math.max(1, plannedCycles - cyclesCounter + 1));
+			final long CYCLE_START = System.currentTimeMillis();
+			workers = new CopyOnWriteArrayList<>();
+			
+			/* the groups are optimized in lanes which don't wait
+			 * for each other: in each iteration the routes of two 
+			 * neighbouring lanes are decomposed again (and split
+			 * between them) as soon as both of them are finished,
+			 * the pairs are shifted by one lane in the next iteration
+			 * so the routes travel around; only the end of the cycle
+			 * waits for all the lanes as the adaptive memory takes
+			 * the complete solution */
+			
+			List<CompletableFuture<Solution>> lanes = decompose(solution)
+					.stream()
+					.map(s -> optimizeAsync(Collections.singletonList(s), 
+							getIterationDeadline(CYCLE_START, CYCLE_DEADLINE, 0, ITERATIONS_PER_DECOMPOSITION)))
+					.collect(Collectors.toList());
+			final int LANES = lanes.size();
+			
+			for (int i = 1; i < ITERATIONS_PER_DECOMPOSITION; i++) {
+				final long ITERATION_DEADLINE = getIterationDeadline(CYCLE_START, CYCLE_DEADLINE, 
+						i, ITERATIONS_PER_DECOMPOSITION);
+				List<CompletableFuture<Solution>> nextLanes = new ArrayList<>(lanes);
+				int first = i % 2;
 				
-				for (Solution s : partialSolutions) {
-					OptimizationWorker worker = new OptimizationWorker(s, configuration);
-					workers.add(worker);
-					executor.execute(worker);
+				for (int pair = 0; pair < LANES / 2; pair++) {
+					int a = (first + 2 * pair) % LANES;
+					int b = (a + 1) % LANES;
+					CompletableFuture<List<Solution>> groups = lanes.get(a)
+							.thenCombine(lanes.get(b), (s1, s2) -> decompose(combine(Arrays.asList(s1, s2))));
+					
+					nextLanes.set(a, groups.thenCompose(g -> optimizeAsync(
+							g.subList(0, g.size() / 2), ITERATION_DEADLINE)));
+					nextLanes.set(b, groups.thenCompose(g -> optimizeAsync(
+							g.subList(g.size() / 2, g.size()), ITERATION_DEADLINE)));
 				}
 				
-				executor.shutdown();
-				try {
-					executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-				} catch (InterruptedException e) {
-					LoggingUtils.logStackTrace(e);
-				}
+				/* the lane left without a pair (if their number 
+				 * is odd) is decomposed on its own */
 				
-				solution = new Solution(
-						workers.stream()
-						.map(OptimizationWorker::getSolution)
-						.flatMap(s -> s.getVehicles().stream())
-						.collect(Collectors.toList()));
-				double newObjective = workers.stream()
-						.map(w -> w.getSolution())
-						.mapToDouble(s -> s.getObjectiveValue())
-						.sum();
+				if (LANES % 2 == 1) {
+					int single = (first + LANES - 1) % LANES;
+					
+					nextLanes.set(single, lanes.get(single)
+							.thenCompose(s -> optimizeAsync(decompose(s), ITERATION_DEADLINE)));
+				}
 				
-				solution.setObjectiveValue(newObjective);
-				LoggingUtils.info("New objective value: " + newObjective);
+				lanes = nextLanes;
+			}
+			
+			solution = combine(lanes.stream()
+					.map(CompletableFuture::join)
+					.collect(Collectors.toList()));
+			LoggingUtils.info("New objective value: " + solution.getObjectiveValue());
+			
+			if (solution.getObjectiveValue() < bestSolution.get().getObjectiveValue()) {
+				bestSolution.set(solution.copy());
+			}
+			
+			if (trace != null) {
+				trace.recordSolution(traceId, cyclesCounter, solution.getObjectiveValue(), 
+						bestSolution.get().getObjectiveValue(), 
+						bestSolution.get().getVehicles().size());
 			}
 			
 			LoggingUtils.info("A decomposition cycle has been finished");
@@ -88,12 +228,152 @@ public class DecompositionOptimizer implements Runnable {
 		LoggingUtils.info("Final solution size: " + solution.getVehicles().size());
 	}
 	
+	/* returns the deadline of the first of the given number
+	 * of equal parts the time left until the end is split into */
+	
+	private static long getDeadline(long end, int parts) {
+		if (end == Long.MAX_VALUE) {
+			return end;
+		}
+		
+		long now = System.currentTimeMillis();
+		
+		return now + Math.max(0, end - now) / parts;
+	}
+	
+	/* the deadline of the given iteration (counted from 0)
+	 * if the cycle is split evenly between the iterations */
+	
+	private static long getIterationDeadline(long start, long cycleDeadline, 
+			int iteration, int iterations) {
+		
+		if (cycleDeadline == Long.MAX_VALUE) {
+			return cycleDeadline;
+		}
+		
+		return start + Math.max(0, cycleDeadline - start) * (iteration + 1) / iterations;
+	}
+	
+	/* a lane may be left without any routes */
+	
+	private List<Solution> decompose(Solution solution) {
+		return (solution.getVehicles().size() > 0)
+				? decomposition.decompose(solution, configuration)
+				: Collections.emptyList();
+	}
+	
+	/* the routes of the partial solutions 
+	 * with the sum of their objective values */
+	
+	private static Solution combine(List<Solution> partialSolutions) {
+		Solution combined = new Solution(
+				partialSolutions.stream()
+				.flatMap(s -> s.getVehicles().stream())
+				.collect(Collectors.toList()));
+		
+		combined.setObjectiveValue(partialSolutions.stream()
+				.mapToDouble(s -> s.getObjectiveValue())
+				.sum());
+		
+		return combined;
+	}
+	
+	/* optimizes the groups in parallel, the future
+	 * completes with all of them combined */
+	
+	private CompletableFuture<Solution> optimizeAsync(List<Solution> groups, long deadline) {
+		List<CompletableFuture<Solution>> optimized = groups.stream()
+				.peek(s -> Metrics.record(Histogram.DECOMPOSITION_GROUP_SIZE, s.getRequests().size()))
+				.map(s -> optimizeAsync(s, deadline))
+				.collect(Collectors.toList());
+		
+		return CompletableFuture.allOf(optimized.toArray(new CompletableFuture<?>[optimized.size()]))
+				.thenApply(v -> combine(optimized.stream()
+						.map(CompletableFuture::join)
+						.collect(Collectors.toList())));
+	}
+	
+	private CompletableFuture<Solution> optimizeAsync(Solution partialSolution, long deadline) {
+		ExecutorService stepsExecutor = (workerPool != null) 
+				? workerPool.getExecutor() 
+				: executor;
+		
+		return CompletableFuture.supplyAsync(() -> {
+			long start = Metrics.now();
+			Solution optimized = optimizePartialSolution(partialSolution, deadline);
+			Metrics.recordBusyTime(start);
+			
+			return optimized;
+		}, stepsExecutor);
+	}
+	
+	private Solution optimizePartialSolution(Solution partialSolution, long deadline) {
+		if (workerPool != null && !shouldStop.get() && System.currentTimeMillis() < deadline
+				&& SolutionCodec.isEncodable(partialSolution, ProblemInstance.getCurrent())) {
+			
+			/* a failed worker isn't fatal, the partial 
+			 * solution is optimized locally instead */
+			
+			try {
+				return workerPool.optimize(partialSolution, configuration, deadline, shouldStop::get);
+			} catch (IOException e) {
+				LoggingUtils.error("Remote optimization failed (" + e.getMessage() 
+						+ "), optimizing locally");
+			}
+		}
+		
+		OptimizationWorker worker = new OptimizationWorker(partialSolution, 
+				configuration, partialSolutionsMemory);
+		worker.getOptimization().setDeadline(deadline);
+		
+		/* the worker is registered before checking the flag
+		 * so stopOptimization() either sees it or the flag 
+		 * is already set and the worker isn't started */
+		
+		workers.add(worker);
+		
+		if (!shouldStop.get() && System.currentTimeMillis() < deadline) {
+			try {
+				worker.run();
+				return worker.getSolution();
+			} catch (RuntimeException e) {
+				LoggingUtils.logStackTrace(e);
+			}
+		}
+		
+		/* the optimization works on a copy so the partial
+		 * solution is intact, it may lack the objective value though */
+		
+		partialSolution.updateOjectiveValue(configuration.getAlgorithms().getObjective());
+		
+		return partialSolution;
+	}
+	
+	/* the best complete solution found so far, may be called
+	 * from any thread (it must not be modified, copy it first) */
+	
+	public Solution getBestSolution() {
+		return bestSolution.get();
+	}
+	
 	public void stopOptimization() {
+		this.shouldStop.set(true);
+		
 		for (OptimizationWorker w : workers) {
 			w.stopOptimization();
 		}
 		
-		this.shouldStop.set(true);
+		if (workerPool != null) {
+			workerPool.stopOptimization();
+		}
+	}
+	
+	/* shuts the pool down; the optimizer mustn't be 
+	 * running and can't be started again afterwards */
+	
+	@Override
+	public void close() {
+		executor.shutdown();
 	}
 	
 	public Thread startThread() {
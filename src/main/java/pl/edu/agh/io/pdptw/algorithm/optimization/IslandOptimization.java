@@ -0,0 +1,239 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.model.Solution;
+
+/* Island model of the tabu search
+ *
+ * A number of independent tabu searches (islands) optimize
+ * the whole problem in parallel, each one with its own seed,
+ * ejection chains length and adaptive memory. Each island runs
+ * a single search for the whole time; every MIGRATION_INTERVAL
+ * iterations it sends its best solution to the next island
+ * of the ring and takes in the one sent by the previous island
+ * (see TabuOptimization.setMigration()), so the good solutions
+ * spread gradually and the islands don't all collapse onto
+ * the same one.
+ *
+ * The islands run in plain threads (not in a fork/join pool)
+ * so each one generates its neighborhoods sequentially and
+ * the islands don't compete for a shared pool.
+ *
+ * This way even the problems which decompose into a single
+ * group (see DecompositionOptimizer) use all the cores. */
+
+public class IslandOptimization implements OptimizationAlgorithm {
+	private static final int DEFAULT_MIGRATION_INTERVAL = 50;
+
+	/* the ejection chains lengths used by the consecutive islands */
+
+	private static final int[] CHAIN_LENGTHS = { 20, 10, 30, 15 };
+
+	private final int islandsNo;
+	private final int migrationInterval;
+
+	private Solution solution;
+	private AdaptiveMemory adaptiveMemory;
+	private Configuration configuration;
+	private AtomicBoolean shouldStop = new AtomicBoolean(false);
+	private long deadline = Long.MAX_VALUE;
+	private final AtomicReference<Solution> publishedSolution = new AtomicReference<>();
+
+	/* the searches run at the moment (to stop them) */
+
+	private final List<TabuOptimization> islands = new CopyOnWriteArrayList<>();
+
+	public IslandOptimization() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_MIGRATION_INTERVAL);
+	}
+
+	public IslandOptimization(int islandsNo, int migrationInterval) {
+		if (islandsNo < 1) {
+			throw new IllegalArgumentException("Invalid number of islands. Should be positive");
+		}
+
+		if (migrationInterval < 1) {
+			throw new IllegalArgumentException("Invalid migration interval. Should be positive");
+		}
+
+		this.islandsNo = islandsNo;
+		this.migrationInterval = migrationInterval;
+	}
+
+	@Override
+	public Solution optimize() {
+		LoggingUtils.info("Island optimization started (" + islandsNo + " islands, "
+				+ solution.getRequests().size() + " requests)");
+
+		this.shouldStop.set(false);
+
+		final long DEADLINE = (deadline == Long.MAX_VALUE && configuration.getTimeLimit() > 0)
+				? System.currentTimeMillis() + configuration.getTimeLimit()
+				: deadline;
+		final long SEED = ThreadLocalRandom.current().nextLong();
+
+		solution.updateOjectiveValue(configuration.getAlgorithms().getObjective());
+		publishedSolution.set(solution.copy());
+
+		/* the i-th mailbox holds the last solution sent
+		 * to the i-th island (by the (i - 1)-th one) */
+
+		AtomicReferenceArray<Solution> mailboxes = new AtomicReferenceArray<>(islandsNo);
+		ExecutorService executor = Executors.newFixedThreadPool(islandsNo);
+
+		try {
+			List<CompletableFuture<Solution>> results = IntStream.range(0, islandsNo)
+					.mapToObj(i -> CompletableFuture.supplyAsync(
+							() -> runIsland(i, SEED + i, DEADLINE, mailboxes), executor))
+					.collect(Collectors.toList());
+
+			results.forEach(CompletableFuture::join);
+		} finally {
+			executor.shutdown();
+		}
+
+		Solution bestSolution = publishedSolution.get();
+		adaptiveMemory.addSolution(bestSolution);
+
+		LoggingUtils.info("Optimization finished. Best found solution: "
+				+ bestSolution.getObjectiveValue());
+		LoggingUtils.info("Number of used vehicles: " + bestSolution.getVehicles().size());
+
+		this.solution = bestSolution.copy();
+
+		return this.solution;
+	}
+
+	private Solution runIsland(int islandNo, long seed, long deadline,
+			AtomicReferenceArray<Solution> mailboxes) {
+
+		TabuOptimization search = new TabuOptimization()
+				.setMaxChainLength(CHAIN_LENGTHS[islandNo % CHAIN_LENGTHS.length])
+				.setSeed(seed);
+		search.setConfiguration(configuration)
+				.setSolution(solution.copy())
+				.setAdaptiveMemory(new AdaptiveMemory(32, configuration))
+				.setDeadline(deadline);
+
+		if (islandsNo > 1) {
+			final int NEXT_ISLAND = (islandNo + 1) % islandsNo;
+
+			search.setMigration(migrationInterval, best -> {
+				publish(best);
+				mailboxes.set(NEXT_ISLAND, best);
+
+				return mailboxes.getAndSet(islandNo, null);
+			});
+		}
+
+		islands.add(search);
+		Solution islandSolution = solution;
+
+		try {
+
+			/* the island may have been registered
+			 * after the optimization was stopped */
+
+			if (!shouldStop.get()) {
+				islandSolution = search.optimize();
+				publish(islandSolution);
+			}
+		} catch (RuntimeException e) {
+			LoggingUtils.logStackTrace(e);
+		} finally {
+			islands.remove(search);
+		}
+
+		return islandSolution;
+	}
+
+	/* the published solution is replaced, never modified */
+
+	private void publish(Solution candidate) {
+		Solution current;
+
+		do {
+			current = publishedSolution.get();
+
+			if (current.getObjectiveValue() <= candidate.getObjectiveValue()) {
+				return;
+			}
+		} while (!publishedSolution.compareAndSet(current, candidate.copy()));
+
+		LoggingUtils.info("New best solution found: " + candidate.getObjectiveValue());
+	}
+
+	@Override
+	public synchronized Solution getSolution() {
+		return this.solution;
+	}
+
+	@Override
+	public synchronized AdaptiveMemory getAdaptiveMemory() {
+		return this.adaptiveMemory;
+	}
+
+	@Override
+	public OptimizationAlgorithm setConfiguration(Configuration configuration) {
+		this.configuration = configuration;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setSolution(Solution solution) {
+		this.solution = solution;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setAdaptiveMemory(AdaptiveMemory adaptiveMemory) {
+		this.adaptiveMemory = adaptiveMemory;
+		return this;
+	}
+
+	@Override
+	public OptimizationAlgorithm setDeadline(long deadline) {
+		this.deadline = deadline;
+		return this;
+	}
+
+	@Override
+	public Solution getBestSolution() {
+		return publishedSolution.get();
+	}
+
+	/* the flag is set first so that the islands
+	 * which haven't started yet stop at once */
+
+	@Override
+	public void stopOptimization() {
+		shouldStop.set(true);
+
+		for (TabuOptimization island : new ArrayList<>(islands)) {
+			island.stopOptimization();
+		}
+	}
+
+	@Override
+	public OptimizationAlgorithm createShallowCopy() {
+		return new IslandOptimization(islandsNo, migrationInterval)
+						.setConfiguration(configuration)
+						.setSolution(solution)
+						.setAdaptiveMemory(adaptiveMemory)
+						.setDeadline(deadline);
+	}
+}
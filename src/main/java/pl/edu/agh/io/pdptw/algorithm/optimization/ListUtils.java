@@ -1,13 +1,37 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* note that we use the ThreadLocalRandom (instead of
+ * Math.random() which shares a single generator) as the
+ * methods are called by many threads at once */
 
 public class ListUtils {
 	public static int getRandomIndex(List<?> list) {
-		return (int) (Math.random() * (list.size() - 1));
+		return (int) (ThreadLocalRandom.current().nextDouble() * (list.size() - 1));
 	}
 	
 	public static <T> T getRandomElement(List<T> list) {
-		return list.get((int) (Math.random() * (list.size() - 1)));
+		return list.get(getRandomIndex(list));
+	}
+	
+	/* the same as above but drawn from the given generator
+	 * (e.g. derived from the seed of the search) */
+	
+	public static int getRandomIndex(List<?> list, SplittableRandom random) {
+		return (int) (random.nextDouble() * (list.size() - 1));
+	}
+	
+	public static <T> T getRandomElement(List<T> list, SplittableRandom random) {
+		return list.get(getRandomIndex(list, random));
+	}
+	
+	/* a generator for the callers which don't care about
+	 * the repeatability of the random choices */
+	
+	public static SplittableRandom createRandom() {
+		return new SplittableRandom(ThreadLocalRandom.current().nextLong());
 	}
 }
@@ -0,0 +1,83 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import pl.edu.agh.io.pdptw.model.MoveJournal.Move;
+import pl.edu.agh.io.pdptw.model.MoveJournal.MoveType;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* A neighbor of the solution represented by the
+ * list of moves leading to it from the base solution.
+ *
+ * The moves are applied to a copy of the base solution
+ * only if the neighbor is actually chosen (note that
+ * the base solution must not be modified in the meantime).
+ * The copy shares the vehicles with the base solution,
+ * only the vehicles touched by the moves are copied. */
+
+@Getter
+
+public class Neighbor {
+	private final Solution base;
+	private final List<Move> moves;
+	private final double objectiveValue;
+	private final long hash;
+
+	public Neighbor(Solution base, List<Move> moves, double objectiveValue, long hash) {
+		this.base = base;
+		this.moves = moves;
+		this.objectiveValue = objectiveValue;
+		this.hash = hash;
+	}
+
+	public Solution materialize() {
+		Map<Vehicle, Integer> indicesForVehicles = new IdentityHashMap<>();
+		List<Vehicle> baseVehicles = base.getVehicles();
+
+		for (int i = 0; i < baseVehicles.size(); i++) {
+			indicesForVehicles.put(baseVehicles.get(i), i);
+		}
+
+		/* the moves are replayed by positions; the requests
+		 * ejected during the replay are looked up by the requests
+		 * recorded in the moves (not by their ids, which needn't
+		 * be unique) when they are inserted again */
+
+		Solution solution = base.createShallowCopy();
+		List<Vehicle> vehicles = solution.getVehicles();
+		Map<PickupRequest, PickupRequest> ejected = new IdentityHashMap<>();
+
+		for (Move move : moves) {
+			Vehicle vehicle = solution.getVehicleForUpdate(
+					indicesForVehicles.get(move.getVehicle()));
+
+			if (move.getType() == MoveType.REMOVAL) {
+				PickupRequest pickup = (PickupRequest) vehicle.removeRequest(
+						move.getPickupPosition(), move.getDeliveryPosition());
+				ejected.put(move.getPickup(), pickup);
+			} else {
+				PickupRequest pickup = ejected.remove(move.getPickup());
+				vehicle.insertRequest(pickup,
+						move.getPickupPosition(), move.getDeliveryPosition());
+			}
+		}
+
+		Iterator<Vehicle> it = vehicles.iterator();
+
+		while (it.hasNext()) {
+			if (it.next().getRoute().getRequests().size() == 0) {
+				it.remove();
+			}
+		}
+
+		solution.setObjectiveValue(objectiveValue);
+
+		return solution;
+	}
+}
@@ -0,0 +1,84 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+import lombok.Getter;
+import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionCache;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+
+/* The parameters of a single neighborhood generation
+ * (see TabuOptimization.generateNeighborMoves()).
+ * Only the configuration is required, the rest
+ * of the parameters have default values. */
+
+@Getter
+
+public class NeighborhoodOptions {
+	private final Configuration configuration;
+	private int neighborsNo = 15;
+	private int maxChainLength = 20;
+
+	/* the moves forbidden by the tabu list (inserting
+	 * a request back into the vehicle it has recently been
+	 * removed from) are skipped before they are performed */
+
+	private TabuList tabu;
+	private int iterationNo;
+
+	/* each neighbor draws the vehicles (and the requests
+	 * to remove) from its own random stream derived from
+	 * the seed, so the same seed gives the same neighbors */
+
+	private long seed = ThreadLocalRandom.current().nextLong();
+
+	/* the generation stops as soon as it returns true
+	 * (e.g. the deadline has passed) so fewer neighbors
+	 * (possibly none) may be returned */
+
+	private BooleanSupplier isFinished = () -> false;
+
+	/* may be kept between the generations as long
+	 * as the configuration stays the same */
+
+	private InsertionCache insertionCache = new InsertionCache();
+
+	public NeighborhoodOptions(Configuration configuration) {
+		this.configuration = configuration;
+	}
+
+	public NeighborhoodOptions setNeighborsNo(int neighborsNo) {
+		if (neighborsNo < 1) {
+			throw new IllegalArgumentException("Invalid neighbors number. Should be positive");
+		}
+
+		this.neighborsNo = neighborsNo;
+		return this;
+	}
+
+	public NeighborhoodOptions setMaxChainLength(int maxChainLength) {
+		this.maxChainLength = maxChainLength;
+		return this;
+	}
+
+	public NeighborhoodOptions setTabu(TabuList tabu, int iterationNo) {
+		this.tabu = tabu;
+		this.iterationNo = iterationNo;
+		return this;
+	}
+
+	public NeighborhoodOptions setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public NeighborhoodOptions setIsFinished(BooleanSupplier isFinished) {
+		this.isFinished = isFinished;
+		return this;
+	}
+
+	public NeighborhoodOptions setInsertionCache(InsertionCache insertionCache) {
+		this.insertionCache = insertionCache;
+		return this;
+	}
+}
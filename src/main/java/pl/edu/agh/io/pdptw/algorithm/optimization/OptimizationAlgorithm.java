@@ -14,6 +14,15 @@ public interface OptimizationAlgorithm {
 	public Solution getSolution();
 	public AdaptiveMemory getAdaptiveMemory();
 	
+	/* the optimization finishes at the deadline 
+	 * (System.currentTimeMillis()) at the latest;
+	 * the best solution found so far can be read
+	 * at any moment from other threads (it must not
+	 * be modified, copy it first) */
+	
+	public OptimizationAlgorithm setDeadline(long deadline);
+	public Solution getBestSolution();
+	
 	/* we need to create an instance of the 
 	 * same class implementing this interface
 	 * in order to be able to optimize separate 
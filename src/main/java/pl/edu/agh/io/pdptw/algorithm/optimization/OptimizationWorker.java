@@ -12,8 +12,18 @@ public class OptimizationWorker implements Runnable {
 	private Configuration configuration;
 	
 	public OptimizationWorker(Solution solution, Configuration configuration) {
+		this(solution, configuration, new AdaptiveMemory(32, configuration));
+	}
+	
+	/* the adaptive memory may be shared with other
+	 * workers (see DecompositionOptimizer) */
+	
+	public OptimizationWorker(Solution solution, Configuration configuration, 
+			AdaptiveMemory adaptiveMemory) {
+		
 		this.solution = solution;
 		this.configuration = configuration;
+		this.adaptiveMemory = adaptiveMemory;
 		this.optimization = configuration.getAlgorithms()
 				.getOptimizationAlgorithm()
 				.createShallowCopy();
@@ -23,7 +33,7 @@ public class OptimizationWorker implements Runnable {
 	
 	@Override
 	public void run() {
-		optimization.setAdaptiveMemory(new AdaptiveMemory(32, configuration));
+		optimization.setAdaptiveMemory(adaptiveMemory);
 		optimization.optimize();
 		solution = optimization.getSolution();
 		adaptiveMemory = optimization.getAdaptiveMemory();
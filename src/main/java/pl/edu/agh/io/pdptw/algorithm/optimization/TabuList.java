@@ -1,96 +1,167 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
-import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
-import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* Tabu memory based on primitive expiration tables.
+ *
+ * We keep two kinds of entries:
+ *
+ * 1. (request, vehicle) attributes - a request removed from
+ * a vehicle must not be inserted back into it until the status
+ * expires; this allows to reject a move before it's performed.
+ * The table is indexed by the request's index (see ProblemInstance)
+ * and by the vehicle's slot (assigned on the first use, so the
+ * copies of a vehicle share the slot).
+ *
+ * 2. whole solutions identified by their hashes (see SolutionHash);
+ * it's a direct-mapped table so an entry may be overwritten
+ * by another solution (which only shortens its tabu status).
+ *
+ * An entry is forbidden as long as the current iteration number
+ * is less than the stored expiration time so nothing has to be
+ * cleaned up between the iterations. */
 
 @ToString
 @EqualsAndHashCode
 
 public class TabuList {
-	private static final int DEFAULT_ITERATION_NO = 0;
-	private List<Integer> tabuStatusExpirationTimes;
-	private final int size;
-	private final Objective objective;
-	
-	public TabuList(int size, Configuration config) {
-		this.size = size;
-		this.tabuStatusExpirationTimes = new ArrayList<>();
-		IntStream.range(0, size).forEach(
-				i -> tabuStatusExpirationTimes.add(DEFAULT_ITERATION_NO));
-		this.objective = config.getAlgorithms().getObjective();
+	private final long[] solutionHashes;
+	private final int[] solutionExpirationTimes;
+	private int[][] moveExpirationTimes;
+	private final Map<String, Integer> slotsForVehicles;
+	private final Map<Integer, Integer> slotsForRequests;
+
+	public TabuList(int size) {
+		this.solutionHashes = new long[size];
+		this.solutionExpirationTimes = new int[size];
+		this.moveExpirationTimes = new int[0][];
+		this.slotsForVehicles = new HashMap<>();
+		this.slotsForRequests = new HashMap<>();
 	}
-	
+
 	public boolean isForbidden(Solution solution, int iterationNo) {
-		boolean isForbidden = true;
-		int position = getPositionForObjective(objective.calculate(solution));
-		
-		if (iterationNo >= tabuStatusExpirationTimes.get(position)) {
-			tabuStatusExpirationTimes.set(position, DEFAULT_ITERATION_NO);
-			isForbidden = false;
-		}
-		
-		return isForbidden;
+		return isForbidden(solution.getHash(), iterationNo);
 	}
-	
-	public boolean isForbiddenByObjective(Solution solution, int iterationNo) {
-		boolean isForbidden = true;
-		int position = getPositionForObjective(solution.getObjectiveValue());
-		
-		if (iterationNo >= tabuStatusExpirationTimes.get(position)) {
-			tabuStatusExpirationTimes.set(position, DEFAULT_ITERATION_NO); 
-			isForbidden = false;
+
+	public boolean isForbidden(long hash, int iterationNo) {
+		int position = getPositionForHash(hash);
+		boolean isForbidden = solutionHashes[position] == hash
+				&& iterationNo < solutionExpirationTimes[position];
+
+		if (isForbidden) {
+			Metrics.increment(Counter.TABU_HITS);
 		}
-		
+
 		return isForbidden;
 	}
-	
-	private int getPositionForObjective(double objectiveValue) {
-		return ((int) (objectiveValue * 100.00)) % size;
-	}
-	
+
 	public boolean setSolutionAsTabu(Solution solution, int expirationIterationNo) {
-		boolean solutionNotFound = true;
-		int position = getPositionForObjective(objective.calculate(solution));
-		
-		if (tabuStatusExpirationTimes.get(position).equals(DEFAULT_ITERATION_NO)) {
-			tabuStatusExpirationTimes.set(position, expirationIterationNo);
-		} else {
-			solutionNotFound = false;
+		return setAsTabu(solution.getHash(), expirationIterationNo);
+	}
+
+	/* returns false if the solution already had
+	 * an entry (which is prolonged if necessary) */
+
+	public boolean setAsTabu(long hash, int expirationIterationNo) {
+		int position = getPositionForHash(hash);
+		boolean solutionNotFound = (solutionHashes[position] != hash);
+
+		if (solutionNotFound
+				|| solutionExpirationTimes[position] < expirationIterationNo) {
+			solutionHashes[position] = hash;
+			solutionExpirationTimes[position] = expirationIterationNo;
 		}
-		
+
 		return solutionNotFound;
 	}
-	
-	
-	public boolean setAsTabuForObjective(double objectiveValue, int iterationNo) {
-		boolean solutionNotFound = true;
-		int position = getPositionForObjective(objectiveValue);
-		
-		if (tabuStatusExpirationTimes.get(position).equals(DEFAULT_ITERATION_NO)) {
-			tabuStatusExpirationTimes.set(position, iterationNo);
-		} else {
-			solutionNotFound = false;
+
+	private int getPositionForHash(long hash) {
+		return (int) ((hash ^ (hash >>> 32)) & 0x7fffffff) % solutionHashes.length;
+	}
+
+	/* is it forbidden to insert the request into the vehicle? */
+
+	public boolean isForbidden(Request request, Vehicle vehicle, int iterationNo) {
+		int requestSlot = findRequestSlot(request);
+		Integer vehicleSlot = slotsForVehicles.get(vehicle.getId());
+
+		if (vehicleSlot == null
+				|| requestSlot < 0
+				|| requestSlot >= moveExpirationTimes.length
+				|| moveExpirationTimes[requestSlot] == null
+				|| vehicleSlot >= moveExpirationTimes[requestSlot].length) {
+			return false;
 		}
-		
-		return solutionNotFound;
+
+		boolean isForbidden = iterationNo < moveExpirationTimes[requestSlot][vehicleSlot];
+
+		if (isForbidden) {
+			Metrics.increment(Counter.TABU_HITS);
+		}
+
+		return isForbidden;
+	}
+
+	public void setAsTabu(Request request, Vehicle vehicle, int expirationIterationNo) {
+		int requestSlot = getRequestSlot(request);
+		int vehicleSlot = slotsForVehicles.computeIfAbsent(
+				vehicle.getId(), id -> slotsForVehicles.size());
+
+		if (requestSlot >= moveExpirationTimes.length) {
+			moveExpirationTimes = Arrays.copyOf(moveExpirationTimes,
+					Math.max(requestSlot + 1, moveExpirationTimes.length * 2));
+		}
+
+		int[] row = moveExpirationTimes[requestSlot];
+
+		if (row == null || vehicleSlot >= row.length) {
+			row = (row == null)
+					? new int[Math.max(vehicleSlot + 1, slotsForVehicles.size())]
+					: Arrays.copyOf(row, Math.max(vehicleSlot + 1, row.length * 2));
+			moveExpirationTimes[requestSlot] = row;
+		}
+
+		row[vehicleSlot] = Math.max(row[vehicleSlot], expirationIterationNo);
 	}
 
-	/* remove from the tabu list all entries
-	 * corresponding to the solutions which
-	 * tabu status has expired */
-	
-	public void update(int iterationNo) {
-		for (int i = 0; i < tabuStatusExpirationTimes.size(); i++) {
-			if (tabuStatusExpirationTimes.get(i) <= iterationNo) {
-				tabuStatusExpirationTimes.set(i, DEFAULT_ITERATION_NO);
-			}
+	/* the requests are identified by their dense indices
+	 * (even slots); the ones not loaded through the ProblemInstance
+	 * (e.g. in the tests) are numbered by their ids (odd slots) */
+
+	private int getRequestSlot(Request request) {
+		int index = request.getIndex();
+
+		if (index >= 0) {
+			return 2 * index;
 		}
+
+		return 2 * slotsForRequests.computeIfAbsent(
+				request.getId(), id -> slotsForRequests.size()) + 1;
+	}
+
+	/* doesn't assign new slots so it's safe to call it
+	 * concurrently (as long as nobody sets the tabu status);
+	 * returns -1 for the requests which have no slot yet */
+
+	private int findRequestSlot(Request request) {
+		int index = request.getIndex();
+
+		if (index >= 0) {
+			return 2 * index;
+		}
+
+		Integer slot = slotsForRequests.get(request.getId());
+
+		return (slot != null) ? 2 * slot + 1 : -1;
 	}
 }
@@ -1,28 +1,64 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionCache;
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.algorithm.removal.RemovalAlgorithm;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.metrics.ConvergenceTrace;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Histogram;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.MoveJournal;
+import pl.edu.agh.io.pdptw.model.MoveJournal.Move;
+import pl.edu.agh.io.pdptw.model.MoveJournal.MoveType;
 import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
 import pl.edu.agh.io.pdptw.model.RequestType;
-import pl.edu.agh.io.pdptw.model.Route;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
 public class TabuOptimization implements OptimizationAlgorithm {
+	
 	private Solution solution;
 	private AdaptiveMemory adaptiveMemory;
 	private Configuration configuration;
 	private AtomicBoolean shouldStop = new AtomicBoolean(false);
+	private long deadline = Long.MAX_VALUE;
+	private final AtomicReference<Solution> publishedSolution = new AtomicReference<>();
+	
+	/* the search parameters which may differ between the runs
+	 * (see IslandOptimization); the seeds of the iterations 
+	 * are drawn at random unless the seed is set */
+	
+	private int maxChainLength = 20;
+	private Long seed;
+	
+	/* the exchange of the solutions with the searches run
+	 * at the same time (see IslandOptimization); every
+	 * migrationInterval iterations the best solution found
+	 * so far is passed to the migration and the returned
+	 * one (if any) is taken into the search */
+	
+	private int migrationInterval;
+	private UnaryOperator<Solution> migration;
 	
 	@Override
 	public Solution optimize() {
@@ -31,15 +67,58 @@ public class TabuOptimization implements OptimizationAlgorithm {
 		this.shouldStop.set(false);
 		
 		final int MAX_ITERATIONS = configuration.getIterations();
+		
+		/* the time limit from the configuration is used
+		 * only if nobody has set the deadline explicitly */
+		
+		final long DEADLINE = (deadline == Long.MAX_VALUE && configuration.getTimeLimit() > 0)
+				? System.currentTimeMillis() + configuration.getTimeLimit()
+				: deadline;
+		BooleanSupplier isFinished = () -> shouldStop.get() 
+				|| System.currentTimeMillis() >= DEADLINE;
 		solution.updateOjectiveValue( configuration.getAlgorithms().getObjective());
-		Solution curSolution = solution;
+		
+		/* the neighbors are generated by modifying (and restoring)
+		 * the current solution so we must not work on the
+		 * instance which may be read by other threads */
+		
+		Solution curSolution = solution.copy();
 		Solution bestSolution = solution;
 		adaptiveMemory.addSolution(bestSolution);
-		TabuList tabu = new TabuList(1000, configuration);
+		publishedSolution.set(bestSolution);
+		TabuList tabu = new TabuList(1000);
 		final int RANDOM_CREATION_RATE = MAX_ITERATIONS / 10;
 		final int TABU_STATUS_DURATION = MAX_ITERATIONS / 10;
 		
-		for (int i = 0; i < MAX_ITERATIONS && !shouldStop.get() ; i++) {
+		/* a request moved out of a vehicle can't
+		 * return there for this number of iterations */
+		
+		final int MOVE_TABU_STATUS_DURATION = Math.min(TABU_STATUS_DURATION, 10);
+		
+		/* the neighborhood grows with the number of cores
+		 * of the pool the search runs in (if any) */
+		
+		final int NEIGHBORS_NO = Math.max(15, ForkJoinTask.inForkJoinPool()
+				? ForkJoinTask.getPool().getParallelism()
+				: 1);
+		SplittableRandom seeds = (seed != null) 
+				? new SplittableRandom(seed)
+				: null;
+		
+		/* most of the routes survive many iterations so the
+		 * insertion positions found once are reused by the
+		 * following ejection chains */
+		
+		InsertionCache insertionCache = new InsertionCache();
+		NeighborhoodOptions options = new NeighborhoodOptions(configuration)
+				.setNeighborsNo(NEIGHBORS_NO)
+				.setMaxChainLength(maxChainLength)
+				.setIsFinished(isFinished)
+				.setInsertionCache(insertionCache);
+		ConvergenceTrace trace = ConvergenceTrace.getCurrent();
+		int traceId = (trace != null) ? trace.startSearch() : 0;
+		
+		for (int i = 0; i < MAX_ITERATIONS && !isFinished.getAsBoolean(); i++) {
 			if (i % RANDOM_CREATION_RATE == 0 && i != 0) {
 				
 				/* 0.65 is the treshold value
@@ -54,45 +133,103 @@ public class TabuOptimization implements OptimizationAlgorithm {
 				 * that the random solution will be picked from 
 				 * 
 				 * more details can be found in the 
-				 * comments in the AdaptiveMemory class */
+				 * comments in the AdaptiveMemory class 
+				 * 
+				 * the memory may be shared with the searches
+				 * of other groups (see DecompositionOptimizer) so
+				 * only the routes of our requests are picked */
 				
-				curSolution = adaptiveMemory.createRandomSolution(0.65, 3);
+				curSolution = adaptiveMemory.createRandomSolution(0.65, 3, solution);
 			}
 			
-			/* generate 15 nieighbors created using 
-			 * ejection chains of maximum length 20 */
+			/* generate (at least) 15 nieighbors created using 
+			 * ejection chains of maximum length maxChainLength; 
+			 * the first one of the best neighbors is chosen */
 			
 			final int iterationNo = i;
-			Optional<Solution> bestNeighbor = generateNeighbors(curSolution, 15, 20, configuration)
+			long iterationSeed = (seeds != null) 
+					? seeds.nextLong()
+					: ThreadLocalRandom.current().nextLong();
+			options.setTabu(tabu, iterationNo)
+					.setSeed(iterationSeed);
+			Optional<Neighbor> bestNeighbor = generateNeighborMoves(curSolution, options)
 					.stream()
-					.filter(n -> !tabu.isForbiddenByObjective(n, iterationNo))
-					.sorted((n1, n2) -> 
-						(n1.getObjectiveValue() < n2.getObjectiveValue()) ? -1 : 1)
-					.findFirst();
+					.filter(n -> !tabu.isForbidden(n.getHash(), iterationNo))
+					.min(Comparator.comparingDouble(Neighbor::getObjectiveValue));
 			
 			
 			if (bestNeighbor.isPresent()) {
-				curSolution = bestNeighbor.get();
-				tabu.setSolutionAsTabu(bestNeighbor.get(), i + TABU_STATUS_DURATION);
-				adaptiveMemory.addSolution(bestNeighbor.get());
 				
-				if (bestNeighbor.get().getObjectiveValue() 
+				/* only the chosen neighbor is turned 
+				 * into a separate solution */
+				
+				Solution neighbor = bestNeighbor.get().materialize();
+				curSolution = neighbor;
+				tabu.setAsTabu(bestNeighbor.get().getHash(), i + TABU_STATUS_DURATION);
+				
+				for (Move move : bestNeighbor.get().getMoves()) {
+					if (move.getType() == MoveType.REMOVAL) {
+						tabu.setAsTabu(move.getPickup(), move.getVehicle(), 
+								i + MOVE_TABU_STATUS_DURATION);
+					}
+				}
+				
+				adaptiveMemory.addSharedSolution(neighbor);
+				
+				if (neighbor.getObjectiveValue() 
 						< bestSolution.getObjectiveValue()) {
-					bestSolution = bestNeighbor.get();
+					bestSolution = neighbor;
+					
+					/* the neighbor shares its vehicles with the solutions
+					 * stored in the adaptive memory, the readers get a copy */
+					
+					publishedSolution.set(bestSolution.copy());
 					LoggingUtils.info("New best solution found: " + bestSolution.getObjectiveValue());
 				}
 			}
 			
-			tabu.update(i);
 			adaptiveMemory.update();
+			
+			if (migration != null && (i + 1) % migrationInterval == 0) {
+				Solution immigrant = migration.apply(publishedSolution.get());
+				
+				/* the immigrant is read by other threads
+				 * so the search continues from its copy */
+				
+				if (immigrant != null) {
+					immigrant = immigrant.copy();
+					adaptiveMemory.addSharedSolution(immigrant);
+					
+					if (immigrant.getObjectiveValue() < curSolution.getObjectiveValue()) {
+						curSolution = immigrant;
+					}
+					
+					if (immigrant.getObjectiveValue() < bestSolution.getObjectiveValue()) {
+						bestSolution = immigrant;
+						publishedSolution.set(bestSolution.copy());
+					}
+				}
+			}
+			
+			if (trace != null) {
+				trace.record(traceId, i, curSolution.getObjectiveValue(), 
+						bestSolution.getObjectiveValue(), bestSolution.getVehicles().size());
+			}
 		}
 		
 		LoggingUtils.info("Optimization finished. Best found solution: " 
 				+ bestSolution.getObjectiveValue());
 		LoggingUtils.info("Number of used vehicles: " + bestSolution.getVehicles().size());
-		this.solution = bestSolution;
+		LoggingUtils.info("Insertion cache hits: " + insertionCache.getHitsNo() 
+				+ ", misses: " + insertionCache.getMissesNo());
+		
+		/* the best solution may share its vehicles with the
+		 * solutions kept in the adaptive memory so we return
+		 * a copy which can be freely modified by the caller */
+		
+		this.solution = bestSolution.copy();
 		
-		return bestSolution;
+		return this.solution;
 	}
 	
 	/* the neighborhood is generated using
@@ -113,97 +250,229 @@ public class TabuOptimization implements OptimizationAlgorithm {
 	 *  */
 	
 	public static List<Solution> generateNeighbors(Solution solution, int n, int maxChainLength, Configuration configuration) {
-		List<Solution> neighbors = new LinkedList<>();
-		InsertionAlgorithm insertion = configuration.getAlgorithms().getInsertionAlgorithm();
-		RemovalAlgorithm removal = configuration.getAlgorithms().getRemovalAlgorithm();
-		Objective objective = configuration.getAlgorithms().getObjective();
+		NeighborhoodOptions options = new NeighborhoodOptions(configuration)
+				.setNeighborsNo(n)
+				.setMaxChainLength(maxChainLength);
 		
-		/* generate n new solutions based on the passed one */
-		for (int i = 0; i < n; i++) {
-			
-			/* create a shallow copy of each vehicle;
-			 * note that the route's requests list
-			 * has to be set to a new list instation 
-			 * so that we can safely modify it 
-			 * without damaging the original route's list */
-			
-					
+		return generateNeighborMoves(solution, options)
+				.stream()
+				.map(Neighbor::materialize)
+				.collect(Collectors.toList());
+	}
+	
+	/* the ejection chains are performed directly on
+	 * the passed solution and recorded in a journal;
+	 * after evaluating the neighbor the moves are reverted
+	 * so the solution is left unchanged and each neighbor
+	 * is just a list of moves (see Neighbor.materialize()).
+	 * 
+	 * If the caller runs in a fork/join pool (e.g. it's one
+	 * of the decomposition workers) the neighbors are generated
+	 * in parallel on the same pool, otherwise they are generated
+	 * sequentially; each task works on its own copy-on-write copy
+	 * of the solution (so only the vehicles it touches are copied).
+	 * 
+	 * The tasks are joined in a fixed order, so the order
+	 * of the returned neighbors (and the choice of the best one
+	 * among the equal ones) doesn't depend on the scheduling.
+	 * 
+	 * The insertion positions are taken from the cache (shared
+	 * by all the tasks) if the route hasn't changed since they
+	 * were found */
+	
+	public static List<Neighbor> generateNeighborMoves(Solution solution, NeighborhoodOptions options) {
+		long start = Metrics.now();
+		int n = options.getNeighborsNo();
+		ForkJoinPool pool = ForkJoinTask.inForkJoinPool() 
+				? ForkJoinTask.getPool()
+				: null;
+		int tasksNo = (pool != null) 
+				? Math.max(1, Math.min(n, pool.getParallelism()))
+				: 1;
+		SplittableRandom root = new SplittableRandom(options.getSeed());
+		BooleanSupplier isFinished = options.getIsFinished();
+		List<ForkJoinTask<List<Neighbor>>> tasks = new ArrayList<>(tasksNo);
+		
+		/* the hashes of the routes are cached lazily so we
+		 * calculate them before the routes are shared by the tasks */
+		
+		solution.getHash();
+		
+		for (int t = 0; t < tasksNo; t++) {
+			int neighborsNo = n / tasksNo + ((t < n % tasksNo) ? 1 : 0);
+			Solution workingCopy = solution.createShallowCopy();
+			List<SplittableRandom> streams = new ArrayList<>(neighborsNo);
 			
-			Solution neighbor = solution.copy(); 
-			List<Vehicle> vehicles = neighbor.getVehicles();
-			Vehicle prevVehicle = ListUtils.getRandomElement(vehicles);
-			Request prevEjected = removal.removeRequestForVehicle(prevVehicle, configuration);
-			Request curEjected;
-			PickupRequest pickupToInsert;
-			boolean insertedSuccessfully = true;
+			for (int i = 0; i < neighborsNo; i++) {
+				streams.add(root.split());
+			}
 			
-			for (int j = 0; j < maxChainLength; j++) {
-				Vehicle curVehicle = ListUtils.getRandomElement(vehicles);
-				
-				if (curVehicle.getRoute().getRequests().size() > 0) {
-					
-					/* it must be a deep copy! */
-					
-					Route routeCopy = curVehicle.getRoute().copy();
-					curEjected = removal.removeRequestForVehicle(curVehicle, configuration);
-					pickupToInsert = (PickupRequest) 
-							((prevEjected.getType() == RequestType.PICKUP) 
-							? prevEjected
-							: prevEjected.getSibling());
+			tasks.add(ForkJoinTask.adapt(() -> {
+				List<Neighbor> neighbors = new ArrayList<>(streams.size());
+				MoveJournal journal = new MoveJournal();
 				
-					insertedSuccessfully = insertion.insertRequestForVehicle(
-							pickupToInsert, curVehicle, configuration);
+				for (SplittableRandom random : streams) {
+					if (isFinished.getAsBoolean()) {
+						break;
+					}
 					
-					/* if insertion is not possible 
-					 * restore the provious state 
-					 * of the route */
+					Neighbor neighbor = generateNeighbor(workingCopy, journal, options, random);
 					
-					if (!insertedSuccessfully) {
-						curVehicle.setRoute(routeCopy);
-						
-					} else {
-						prevVehicle = curVehicle;
-						prevEjected = curEjected;
+					if (neighbor != null) {
+						Metrics.increment(Counter.NEIGHBORS_GENERATED);
+						neighbors.add(neighbor);
 					}
 				}
+				
+				return neighbors;
+			}));
+		}
+		
+		/* the forked tasks are pushed to the queue of the
+		 * current worker, so joining them doesn't block it -
+		 * it executes the tasks nobody else has stolen */
+		
+		if (pool != null) {
+			for (int t = tasksNo - 1; t > 0; t--) {
+				tasks.get(t).fork();
 			}
-			
-			/* we need to insert the last ejected
-			 * request back into the last drawn vehicle
-			 * (or any other vehicle in case it is
-			 * not possible) */
+		}
+		
+		List<Neighbor> neighbors = new LinkedList<>();
+		neighbors.addAll(tasks.get(0).invoke());
+		
+		for (int t = 1; t < tasksNo; t++) {
+			neighbors.addAll(tasks.get(t).join());
+		}
+		
+		Metrics.recordTime(Histogram.NEIGHBORHOOD_TIME, start);
+		
+		return neighbors;
+	}
+	
+	/* performs a single ejection chain and reverts it; 
+	 * returns null if the last ejected request couldn't 
+	 * be inserted anywhere */
+	
+	private static Neighbor generateNeighbor(Solution solution, MoveJournal journal, 
+			NeighborhoodOptions options, SplittableRandom random) {
+		
+		Configuration configuration = options.getConfiguration();
+		InsertionCache insertionCache = options.getInsertionCache();
+		TabuList tabu = options.getTabu();
+		int iterationNo = options.getIterationNo();
+		InsertionAlgorithm insertion = configuration.getAlgorithms().getInsertionAlgorithm();
+		RemovalAlgorithm removal = configuration.getAlgorithms().getRemovalAlgorithm();
+		Objective objective = configuration.getAlgorithms().getObjective();
+		int vehiclesNo = solution.getVehicles().size();
+		Neighbor neighbor = null;
+		
+		int prevIndex = random.nextInt(vehiclesNo);
+		Request prevEjected = removeRequest(journal, removal, 
+				solution.getVehicleForUpdate(prevIndex), configuration, random);
+		Request curEjected;
+		PickupRequest pickupToInsert;
+		boolean insertedSuccessfully = true;
+		
+		for (int j = 0; j < options.getMaxChainLength(); j++) {
+			int curIndex = random.nextInt(vehiclesNo);
+			Vehicle curVehicle = solution.getVehicles().get(curIndex);
 			
 			pickupToInsert = (PickupRequest) 
 					((prevEjected.getType() == RequestType.PICKUP) 
 					? prevEjected
 					: prevEjected.getSibling());
 			
-			Iterator<Vehicle> it = vehicles.iterator();
-			insertedSuccessfully = false;
-			
-			while (it.hasNext() && !insertedSuccessfully) {
-				insertedSuccessfully = insertion.insertRequestForVehicle(
-						pickupToInsert, prevVehicle, configuration);
-				prevVehicle = it.next();
-			}
+			if (curVehicle.getRoute().getRequests().size() > 0
+					&& (tabu == null || !tabu.isForbidden(pickupToInsert, curVehicle, iterationNo))) {
+				
+				/* remember the journal's position
+				 * so that we can roll back the ejection */
+				
+				int mark = journal.size();
+				curVehicle = solution.getVehicleForUpdate(curIndex);
+				curEjected = removeRequest(journal, removal, curVehicle, configuration, random);
 			
-			if (insertedSuccessfully) {
-				it = vehicles.iterator();
+				insertedSuccessfully = insertRequest(journal, insertion, 
+						pickupToInsert, curVehicle, configuration, insertionCache);
 				
-				while (it.hasNext()) {
-					Vehicle v = it.next();
+				/* if insertion is not possible 
+				 * restore the provious state 
+				 * of the route */
+				
+				if (!insertedSuccessfully) {
+					Metrics.increment(Counter.FAILED_EJECTIONS);
+					journal.undoTo(mark);
 					
-					if (v.getRoute().getRequests().size() == 0) {
-						it.remove();
-					}
+				} else {
+					Metrics.increment(Counter.SUCCESSFUL_EJECTIONS);
+					prevIndex = curIndex;
+					prevEjected = curEjected;
 				}
-				
-				neighbor.setObjectiveValue(objective.calculate(neighbor));
-				neighbors.add(neighbor);
 			}
 		}
 		
-		return neighbors;
+		/* we need to insert the last ejected
+		 * request back into the last drawn vehicle
+		 * (or any other vehicle in case it is
+		 * not possible) */
+		
+		pickupToInsert = (PickupRequest) 
+				((prevEjected.getType() == RequestType.PICKUP) 
+				? prevEjected
+				: prevEjected.getSibling());
+		
+		int k = 0;
+		insertedSuccessfully = false;
+		
+		while (k < vehiclesNo && !insertedSuccessfully) {
+			insertedSuccessfully = insertRequest(journal, insertion, pickupToInsert, 
+					solution.getVehicleForUpdate(prevIndex), configuration, insertionCache);
+			prevIndex = k++;
+		}
+		
+		/* empty vehicles don't contribute to the objective
+		 * value so we remove them only while materializing */
+		
+		if (insertedSuccessfully) {
+			neighbor = new Neighbor(solution, 
+					new ArrayList<>(journal.getMoves()), 
+					objective.calculate(solution),
+					solution.getHash());
+		}
+		
+		journal.undo();
+		
+		return neighbor;
+	}
+	
+	private static Request removeRequest(MoveJournal journal, RemovalAlgorithm removal, 
+			Vehicle vehicle, Configuration configuration, SplittableRandom random) {
+		
+		RequestPositions positions = removal.findBestRemovalPositions(vehicle, configuration, random);
+		
+		return journal.removeRequest(vehicle, 
+				positions.getPickupPosition(), positions.getDeliveryPosition());
+	}
+	
+	private static boolean insertRequest(MoveJournal journal, InsertionAlgorithm insertion, 
+			PickupRequest pickup, Vehicle vehicle, Configuration configuration, 
+			InsertionCache insertionCache) {
+		
+		RequestPositions positions = insertionCache.findBestInsertionPositions(
+				insertion, pickup, vehicle, configuration);
+		boolean inserted = false;
+		
+		if (positions != null
+				&& positions.getPickupPosition() != Integer.MAX_VALUE
+				&& positions.getDeliveryPosition() != Integer.MAX_VALUE) {
+			
+			journal.insertRequest(vehicle, pickup, 
+					positions.getPickupPosition(), positions.getDeliveryPosition());
+			inserted = true;
+		}
+		
+		return inserted;
 	}
 
 	@Override
@@ -234,17 +503,58 @@ public class TabuOptimization implements OptimizationAlgorithm {
 		return this;
 	}
 
+	@Override
+	public OptimizationAlgorithm setDeadline(long deadline) {
+		this.deadline = deadline;
+		return this;
+	}
+
+	@Override
+	public Solution getBestSolution() {
+		return publishedSolution.get();
+	}
+
 	@Override
 	public void stopOptimization() {
 		shouldStop.set(true);
 	}
 
+	public TabuOptimization setMaxChainLength(int maxChainLength) {
+		this.maxChainLength = maxChainLength;
+		return this;
+	}
+	
+	public TabuOptimization setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+	
+	/* the published solutions passed to the migration
+	 * and the returned ones mustn't be modified */
+	
+	public TabuOptimization setMigration(int migrationInterval, UnaryOperator<Solution> migration) {
+		if (migrationInterval < 1) {
+			throw new IllegalArgumentException("Invalid migration interval. Should be positive");
+		}
+		
+		this.migrationInterval = migrationInterval;
+		this.migration = migration;
+		return this;
+	}
+
 	@Override
 	public OptimizationAlgorithm createShallowCopy() {
-		return new TabuOptimization()
-						.setConfiguration(configuration)
-						.setSolution(solution)
-						.setAdaptiveMemory(adaptiveMemory);
+		TabuOptimization copy = new TabuOptimization()
+				.setMaxChainLength(maxChainLength);
+		
+		if (seed != null) {
+			copy.setSeed(seed);
+		}
+		
+		return copy.setConfiguration(configuration)
+				.setSolution(solution)
+				.setAdaptiveMemory(adaptiveMemory)
+				.setDeadline(deadline);
 	}
 
 
@@ -1,6 +1,7 @@
 package pl.edu.agh.io.pdptw.algorithm.removal;
 
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 
 import pl.edu.agh.io.pdptw.algorithm.optimization.ListUtils;
@@ -18,6 +19,13 @@ public class RandomRemoval implements RemovalAlgorithm {
 	public RequestPositions findBestRemovalPositions(Vehicle vehicle,
 			Configuration configuration) {
 		
+		return findBestRemovalPositions(vehicle, configuration, ListUtils.createRandom());
+	}
+	
+	@Override
+	public RequestPositions findBestRemovalPositions(Vehicle vehicle,
+			Configuration configuration, SplittableRandom random) {
+		
 		List<Request> requests = vehicle.getRoute().getRequests();
 		List<PickupRequest> pickupRequests = requests
 				.stream()
@@ -25,7 +33,7 @@ public class RandomRemoval implements RemovalAlgorithm {
 						&& !vehicle.getServedRequestsIds().contains(r.getId()))
 				.map(r -> (PickupRequest) r)
 				.collect(Collectors.toList());
-		PickupRequest pickup = ListUtils.getRandomElement(pickupRequests);
+		PickupRequest pickup = ListUtils.getRandomElement(pickupRequests, random);
 		
 		return new RequestPositions(requests.indexOf(pickup),
 				requests.indexOf(pickup.getSibling()));
@@ -34,7 +42,14 @@ public class RandomRemoval implements RemovalAlgorithm {
 	@Override
 	public Request removeRequestForVehicle(Vehicle vehicle,
 			Configuration configuration) {
-		RequestPositions positions = findBestRemovalPositions(vehicle, configuration);
+		
+		return removeRequestForVehicle(vehicle, configuration, ListUtils.createRandom());
+	}
+	
+	private Request removeRequestForVehicle(Vehicle vehicle,
+			Configuration configuration, SplittableRandom random) {
+		
+		RequestPositions positions = findBestRemovalPositions(vehicle, configuration, random);
 		return vehicle.removeRequest(
 				positions.getPickupPosition(), positions.getDeliveryPosition());
 	}
@@ -43,11 +58,16 @@ public class RandomRemoval implements RemovalAlgorithm {
 	public Request removeRequestFromSolution(Solution solution,
 			Configuration configuration) {
 		
-		List<Vehicle> vehicles = solution.getVehicles();
-		Vehicle randomVehicle = ListUtils.getRandomElement(vehicles);
+		return removeRequestFromSolution(solution, configuration, ListUtils.createRandom());
+	}
+	
+	@Override
+	public Request removeRequestFromSolution(Solution solution,
+			Configuration configuration, SplittableRandom random) {
+		
+		int index = ListUtils.getRandomIndex(solution.getVehicles(), random);
 		
-		return removeRequestForVehicle(randomVehicle, configuration);
+		return removeRequestForVehicle(solution.getVehicleForUpdate(index), configuration, random);
 	}
 
-
 }
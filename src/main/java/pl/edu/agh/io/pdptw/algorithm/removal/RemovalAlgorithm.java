@@ -1,5 +1,11 @@
 package pl.edu.agh.io.pdptw.algorithm.removal;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import pl.edu.agh.io.pdptw.algorithm.optimization.ListUtils;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
 import pl.edu.agh.io.pdptw.model.RequestPositions;
 import pl.edu.agh.io.pdptw.model.Request;
@@ -14,4 +20,69 @@ public interface RemovalAlgorithm {
 	RequestPositions findBestRemovalPositions(Vehicle vehicle, Configuration configuration);
 	Request removeRequestForVehicle(Vehicle vehicle, Configuration configuration);
 	Request removeRequestFromSolution(Solution solution, Configuration configuration);
+	
+	/* The variants below draw the random choices (if the algorithm
+	 * makes any) from the given generator, so a search started
+	 * with a fixed seed can be repeated; the deterministic
+	 * algorithms don't have to override them */
+	
+	default RequestPositions findBestRemovalPositions(Vehicle vehicle, 
+			Configuration configuration, SplittableRandom random) {
+		
+		return findBestRemovalPositions(vehicle, configuration);
+	}
+	
+	default Request removeRequestFromSolution(Solution solution, 
+			Configuration configuration, SplittableRandom random) {
+		
+		return removeRequestFromSolution(solution, configuration);
+	}
+	
+	default List<Request> removeRequestsFromSolution(Solution solution, 
+			int requestsNo, Configuration configuration) {
+		
+		return removeRequestsFromSolution(solution, requestsNo, configuration, 
+				ListUtils.createRandom());
+	}
+	
+	/* removes (at most) the given number of request pairs
+	 * from the solution and returns the removed requests
+	 * (one of each pair); the vehicles left empty stay 
+	 * in the solution.
+	 * 
+	 * The default implementation calls removeRequestFromSolution()
+	 * until it fails; the emptied vehicles are set aside in the 
+	 * meantime so that they aren't drawn again */
+	
+	default List<Request> removeRequestsFromSolution(Solution solution, 
+			int requestsNo, Configuration configuration, SplittableRandom random) {
+		
+		List<Request> removed = new ArrayList<>(requestsNo);
+		List<Vehicle> emptied = new ArrayList<>();
+		Request request = null;
+
+		do {
+			request = (solution.getVehicles().size() > 0)
+					? removeRequestFromSolution(solution, configuration, random)
+					: null;
+
+			if (request != null) {
+				removed.add(request);
+				Iterator<Vehicle> it = solution.getVehicles().iterator();
+
+				while (it.hasNext()) {
+					Vehicle vehicle = it.next();
+
+					if (vehicle.getRoute().getRequests().size() == 0) {
+						emptied.add(vehicle);
+						it.remove();
+					}
+				}
+			}
+		} while (request != null && removed.size() < requestsNo);
+
+		solution.getVehicles().addAll(emptied);
+
+		return removed;
+	}
 }
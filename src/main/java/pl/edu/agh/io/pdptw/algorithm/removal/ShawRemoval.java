@@ -1,31 +1,235 @@
 package pl.edu.agh.io.pdptw.algorithm.removal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import pl.edu.agh.io.pdptw.algorithm.optimization.ListUtils;
+
 import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.RelatednessLists;
 import pl.edu.agh.io.pdptw.model.RequestPositions;
 import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
+/* Shaw (relatedness) removal (Ropke, Pisinger)
+ *
+ * Removes requests similar to each other (close in space
+ * and time, with similar loads) hoping that they
+ * can be exchanged between the routes. The first request
+ * is drawn at random, each next one is chosen among the requests
+ * most related to one of the already removed ones - the choice
+ * is randomized with the DETERMINISM parameter (the higher,
+ * the more likely the most related request is chosen).
+ *
+ * The related requests are taken from the precomputed
+ * neighbour lists (see RelatednessLists) which are built once
+ * for the current problem instance, so a single step costs
+ * O(k) instead of sorting all the requests by relatedness.
+ * If the problem instance isn't installed the random removal
+ * is used instead. */
+
 public class ShawRemoval implements RemovalAlgorithm {
+	private static final int DEFAULT_K = 30;
+	private static final double DETERMINISM = 6;
+
+	/* note the static keyword - the lists depend only
+	 * on the problem instance so all the copies of the algorithm
+	 * (e.g. used by different optimization workers) share them */
+
+	private static volatile RelatednessLists relatednessLists;
+
+	private final int k;
+	private final RandomRemoval fallback = new RandomRemoval();
+
+	public ShawRemoval() {
+		this(DEFAULT_K);
+	}
+
+	public ShawRemoval(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Invalid k value. Should be positive");
+		}
+
+		this.k = k;
+	}
+
+	/* a single route contains no request to start with so
+	 * we choose the one least related to the rest of the route,
+	 * i.e. the one whose list of the most related requests
+	 * contains the fewest of the route's pickups */
 
 	@Override
 	public RequestPositions findBestRemovalPositions(Vehicle vehicle,
 			Configuration configuration) {
-		// TODO Auto-generated method stub
-		return null;
+
+		return findBestRemovalPositions(vehicle, configuration, ListUtils.createRandom());
+	}
+
+	@Override
+	public RequestPositions findBestRemovalPositions(Vehicle vehicle,
+			Configuration configuration, SplittableRandom random) {
+
+		ProblemInstance instance = ProblemInstance.getCurrent();
+		List<Request> requests = vehicle.getRoute().getRequests();
+
+		if (instance == null || !requests.stream().allMatch(instance::contains)) {
+			return fallback.findBestRemovalPositions(vehicle, configuration, random);
+		}
+
+		RelatednessLists lists = getRelatednessLists(instance);
+		RequestPositions worstPositions = RequestPositions.createDefault();
+		int minRelatedNo = Integer.MAX_VALUE;
+
+		for (Request request : requests) {
+			if (request.getType() == RequestType.PICKUP
+					&& !vehicle.getServedRequestsIds().contains(request.getId())) {
+
+				int relatedNo = 0;
+
+				for (Request r : requests) {
+					if (r != request && r.getType() == RequestType.PICKUP
+							&& lists.isRelated(request.getIndex(), r.getIndex())) {
+						relatedNo++;
+					}
+				}
+
+				if (relatedNo < minRelatedNo) {
+					minRelatedNo = relatedNo;
+					worstPositions = new RequestPositions(requests.indexOf(request),
+							requests.indexOf(request.getSibling()));
+				}
+			}
+		}
+
+		return worstPositions;
 	}
 
 	@Override
 	public Request removeRequestForVehicle(Vehicle vehicle,
 			Configuration configuration) {
-		// TODO Auto-generated method stub
-		return null;
+
+		RequestPositions positions = findBestRemovalPositions(vehicle, configuration);
+
+		return (positions.getPickupPosition() != Integer.MAX_VALUE)
+				? vehicle.removeRequest(positions.getPickupPosition(), positions.getDeliveryPosition())
+				: null;
 	}
 
 	@Override
 	public Request removeRequestFromSolution(Solution solution,
 			Configuration configuration) {
-		// TODO Auto-generated method stub
-		return null;
+
+		return removeRequestFromSolution(solution, configuration, ListUtils.createRandom());
+	}
+
+	@Override
+	public Request removeRequestFromSolution(Solution solution,
+			Configuration configuration, SplittableRandom random) {
+
+		List<Request> removed = removeRequestsFromSolution(solution, 1, configuration, random);
+
+		return (removed.size() > 0) ? removed.get(0) : null;
+	}
+
+	@Override
+	public List<Request> removeRequestsFromSolution(Solution solution,
+			int requestsNo, Configuration configuration, SplittableRandom random) {
+
+		ProblemInstance instance = ProblemInstance.getCurrent();
+		List<Request> removed = new ArrayList<>(requestsNo);
+
+		if (instance == null || !solution.getRequests().stream().allMatch(instance::contains)) {
+			return fallback.removeRequestsFromSolution(solution, requestsNo, configuration, random);
+		}
+
+		RelatednessLists lists = getRelatednessLists(instance);
+
+		/* vehicleIndices[i] - index of the vehicle serving
+		 * the i-th request if it can be removed, -1 otherwise;
+		 * 
+		 * available[0..availableNo) - the requests which can be 
+		 * removed, availablePositions[i] - position of the i-th
+		 * request in the available array (a removed request is
+		 * replaced by the last one) */
+
+		int[] vehicleIndices = new int[instance.getSize()];
+		Arrays.fill(vehicleIndices, -1);
+		int[] available = new int[instance.getSize()];
+		int[] availablePositions = new int[instance.getSize()];
+		int availableNo = 0;
+		List<Vehicle> vehicles = solution.getVehicles();
+
+		for (int v = 0; v < vehicles.size(); v++) {
+			Vehicle vehicle = vehicles.get(v);
+
+			for (Request request : vehicle.getRoute().getRequests()) {
+				if (request.getType() == RequestType.PICKUP
+						&& !vehicle.getServedRequestsIds().contains(request.getId())) {
+
+					vehicleIndices[request.getIndex()] = v;
+					availablePositions[request.getIndex()] = availableNo;
+					available[availableNo++] = request.getIndex();
+				}
+			}
+		}
+
+		List<Integer> removedIndices = new ArrayList<>(requestsNo);
+		List<Integer> candidates = new ArrayList<>(lists.getK());
+
+		while (removedIndices.size() < requestsNo && availableNo > 0) {
+			candidates.clear();
+
+			if (removedIndices.size() > 0) {
+				int chosen = removedIndices.get(random.nextInt(removedIndices.size()));
+
+				for (int related : lists.getRelated(chosen)) {
+					if (vehicleIndices[related] >= 0) {
+						candidates.add(related);
+					}
+				}
+			}
+
+			/* no related request left - we start
+			 * again from a randomly chosen one */
+
+			if (candidates.size() == 0) {
+				candidates.add(available[random.nextInt(availableNo)]);
+			}
+
+			int index = candidates.get((int) (Math.pow(random.nextDouble(), DETERMINISM) * candidates.size()));
+			Vehicle vehicle = solution.getVehicleForUpdate(vehicleIndices[index]);
+			List<Request> requests = vehicle.getRoute().getRequests();
+			int position = 0;
+
+			while (requests.get(position).getIndex() != index) {
+				position++;
+			}
+
+			removed.add(vehicle.removeRequest(position));
+			removedIndices.add(index);
+			vehicleIndices[index] = -1;
+			int last = available[--availableNo];
+			available[availablePositions[index]] = last;
+			availablePositions[last] = availablePositions[index];
+		}
+
+		return removed;
+	}
+
+	private RelatednessLists getRelatednessLists(ProblemInstance instance) {
+		RelatednessLists lists = relatednessLists;
+
+		if (lists == null || lists.getInstance() != instance || lists.getK() != k) {
+			lists = new RelatednessLists(instance, k,
+					RelatednessLists.createShawRelatedness(instance));
+			relatednessLists = lists;
+		}
+
+		return lists;
 	}
 }
@@ -1,16 +1,13 @@
 package pl.edu.agh.io.pdptw.algorithm.removal;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
-import pl.edu.agh.io.pdptw.model.DeliveryRequest;
 import pl.edu.agh.io.pdptw.model.RequestPositions;
-import pl.edu.agh.io.pdptw.model.PickupRequest;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.RequestType;
-import pl.edu.agh.io.pdptw.model.Route;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
@@ -29,30 +26,32 @@ public class WorstRemoval implements RemovalAlgorithm {
 			Configuration configuration) {
 		
 		Objective objective = configuration.getAlgorithms().getObjective();
+		double objectiveValue = objective.calculateForVehicle(vehicle);
 		double minObjective = Integer.MAX_VALUE;
-		double newObjective = Integer.MAX_VALUE;
 		RequestPositions worstPositions = RequestPositions.createDefault();
-		Route route = vehicle.getRoute();
-		List<PickupRequest> pickupRequests = route.getRequests()
-				.stream()
-				.filter(r -> r.getType() == RequestType.PICKUP
-						&& !vehicle.getServedRequestsIds().contains(r.getId()))
-				.map(r -> (PickupRequest) r)
-				.collect(Collectors.toList());
+		List<Request> requests = new ArrayList<>(vehicle.getRoute().getRequests());
 		
 		/* looking for the requests pair
 		 * such that after its removal
-		 * the new objective value is least */
+		 * the new objective value is least;
+		 * the removals are only evaluated as the
+		 * vehicle may be shared with other solutions
+		 * (see Solution.getVehicleForUpdate()) */
 		
-		for (PickupRequest pickup : pickupRequests) {
-			RequestPositions positions = vehicle.removeRequest(pickup);
-			newObjective = objective.calculateForVehicle(vehicle);
-			positions.setObjectiveValue(newObjective);
+		for (int pickupPosition = 0; pickupPosition < requests.size(); pickupPosition++) {
+			Request pickup = requests.get(pickupPosition);
 			
-			vehicle.insertRequest(pickup, positions.getPickupPosition(), positions.getDeliveryPosition());
-			
-			if (newObjective < minObjective) {
-				worstPositions = positions;
+			if (pickup.getType() == RequestType.PICKUP
+					&& !vehicle.getServedRequestsIds().contains(pickup.getId())) {
+				
+				int deliveryPosition = requests.indexOf(pickup.getSibling());
+				double newObjective = objectiveValue 
+						+ objective.calculateRemovalDelta(vehicle, pickupPosition, deliveryPosition);
+				
+				if (newObjective < minObjective) {
+					minObjective = newObjective;
+					worstPositions = new RequestPositions(pickupPosition, deliveryPosition, newObjective);
+				}
 			}
 		}
 		
@@ -65,22 +64,22 @@ public class WorstRemoval implements RemovalAlgorithm {
 		
 		double minValue = Integer.MAX_VALUE;
 		RequestPositions worstPosition = RequestPositions.createDefault();
-		Vehicle worstVehicle = null;
+		int worstVehicle = -1;
 		Request worstRequest = null;
 		
-		for (Vehicle vehicle : solution.getVehicles()) {
-			RequestPositions curPosition = 
-					findBestRemovalPositions(vehicle, configuration);	
+		for (int v = 0; v < solution.getVehicles().size(); v++) {
+			RequestPositions curPosition = findBestRemovalPositions(
+					solution.getVehicles().get(v), configuration);	
 			
 			if (curPosition.getObjectiveValue() < minValue) {
 				worstPosition = curPosition;
-				worstVehicle = vehicle;
+				worstVehicle = v;
 				minValue = curPosition.getObjectiveValue();
 			}
 		}
 		
 		if (minValue < Integer.MAX_VALUE) {
-			worstRequest = worstVehicle.removeRequest( 
+			worstRequest = solution.getVehicleForUpdate(worstVehicle).removeRequest( 
 					worstPosition.getPickupPosition(), worstPosition.getDeliveryPosition());
 		}
 		
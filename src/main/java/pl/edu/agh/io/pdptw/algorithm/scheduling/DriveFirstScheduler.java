@@ -4,7 +4,7 @@ import java.util.Iterator;
 import java.util.stream.Collectors;
 
 import pl.edu.agh.io.pdptw.logging.LoggingUtils;
-import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.DistanceMatrix;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
@@ -14,8 +14,6 @@ public class DriveFirstScheduler implements Scheduler {
 	public void scheduleRequests(Vehicle vehicle, int firstEarliestRealizationTime) 
 		throws IllegalArgumentException {
 		
-		Vehicle copy = vehicle.copy();
-		
 		if (vehicle.getRoute().getRequests().size() > 0) {
 			
 			/* skip all the requests whose end of the time window
@@ -47,7 +45,7 @@ public class DriveFirstScheduler implements Scheduler {
 			
 			while (it.hasNext()) {
 				Request cur = it.next();
-				double distance = Location.calculateDistance(prev.getLocation(), cur.getLocation());
+				double distance = DistanceMatrix.calculateDistance(prev, cur);
 				int earliestRealizationTime = (int) (prev.getRealizationTime() 
 						+ prev.getServiceTime() 
 						+ distance);
@@ -62,8 +60,6 @@ public class DriveFirstScheduler implements Scheduler {
 				
 				if (earliestRealizationTime > cur.getTimeWindowEnd()) {
 					LoggingUtils.error(vehicle.getServedRequestsIds());
-					LoggingUtils.error(copy);
-					LoggingUtils.error("-----------------------");
 					LoggingUtils.error(vehicle);
 					
 					throw new IllegalArgumentException("Earliest realization time"
@@ -77,7 +73,7 @@ public class DriveFirstScheduler implements Scheduler {
 
 	@Override
 	public void updateSuccessor(Request prev, Request cur) {
-		double distance = Location.calculateDistance(prev.getLocation(), cur.getLocation());
+		double distance = DistanceMatrix.calculateDistance(prev, cur);
 		int earliestRealizationTime = (int) (prev.getRealizationTime()
 				+ prev.getServiceTime()
 				+ distance);
@@ -92,7 +88,7 @@ public class DriveFirstScheduler implements Scheduler {
 	@Override
 	public int getSuccessorRealizationTime(Request prev, Request cur) {
 		int result = 0;
-		int distance = (int) Location.calculateDistance(prev.getLocation(), cur.getLocation());
+		int distance = (int) DistanceMatrix.calculateDistance(prev, cur);
 		int earliestRealizationTime = prev.getRealizationTime() + prev.getServiceTime() + distance;
 		
 		result = (earliestRealizationTime > cur.getTimeWindowStart()) 
@@ -16,6 +16,8 @@ import pl.edu.agh.io.pdptw.algorithm.insertion.RegretInsertion;
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 import pl.edu.agh.io.pdptw.algorithm.objective.TotalDistanceObjective;
 import pl.edu.agh.io.pdptw.algorithm.objective.TotalVehiclesObjective;
+import pl.edu.agh.io.pdptw.algorithm.optimization.AlnsOptimization;
+import pl.edu.agh.io.pdptw.algorithm.optimization.IslandOptimization;
 import pl.edu.agh.io.pdptw.algorithm.optimization.OptimizationAlgorithm;
 import pl.edu.agh.io.pdptw.algorithm.optimization.TabuOptimization;
 import pl.edu.agh.io.pdptw.algorithm.removal.RandomRemoval;
@@ -64,6 +66,8 @@ public class AlgorithmModule extends AbstractModule {
 
 /* optimization algorithms */
 		optimizationAlgorithms.put("tabu", TabuOptimization.class);
+		optimizationAlgorithms.put("alns", AlnsOptimization.class);
+		optimizationAlgorithms.put("islands", IslandOptimization.class);
 		
 /* objective functions*/		
 		objectives.put("total_distance", TotalDistanceObjective.class);
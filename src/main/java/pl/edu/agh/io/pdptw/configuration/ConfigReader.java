@@ -6,6 +6,7 @@ import java.util.List;
 import org.json.simple.parser.ParseException;
 
 import pl.edu.agh.io.pdptw.configuration.exception.InvalidFileFormatException;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 
@@ -14,6 +15,8 @@ public interface ConfigReader {
 			throws IllegalArgumentException, IOException, ParseException;
 	List<Request> loadRequests(Configuration configuration)
 			throws IOException, InvalidFileFormatException;
+	ProblemInstance loadProblemInstance(Configuration configuration)
+			throws IOException, InvalidFileFormatException;
 	List<Vehicle> loadVehicles(Configuration configuration)
 			throws IOException, ParseException;
 }
@@ -16,9 +16,43 @@ public class Configuration {
 	private int decompositionCycles;
 	private int iterationsPerDecomposition;
 	private int maxVehiclesInGroup;
+	
+	/* wall-clock time limit of a single optimization 
+	 * run in milliseconds (0 - no limit) */
+	
+	private long timeLimit;
+	
+	/* the number of the nearest requests next to which
+	 * the insertion algorithms try to put a new request
+	 * (the higher, the wider the searched neighbourhood);
+	 * 0 - all the positions are checked */
+	
+	private int granularity;
+	
+	/* if none of the granular positions is feasible, the
+	 * neighbourhood this number of times wider is searched 
+	 * before all the positions are checked; 1 - no widening */
+	
+	private int granularityWidening;
+	
+	/* the number of separate worker processes (JVMs on this 
+	 * machine) optimizing the partial solutions of the 
+	 * decomposition; 0 - they're optimized by the threads 
+	 * of this process */
+	
+	private int remoteWorkers;
 	private Location warehouseLocation;
 	private AlgorithmConfiguration algorithms;
 	
+	/* the algorithms are shared with the copy */
+	
+	public Configuration copy() {
+		return new Configuration(requestsPath, vehiclesPath, outputPath, 
+				dynamic, iterations, decompositionCycles, iterationsPerDecomposition, 
+				maxVehiclesInGroup, timeLimit, granularity, granularityWidening, remoteWorkers, 
+				warehouseLocation, algorithms);
+	}
+	
 	@Override
 	public String toString() {
 		return "requestsPath: " + requestsPath
@@ -29,6 +63,10 @@ public class Configuration {
 				+ "\r\ndecompositionCycles: " + decompositionCycles
 				+ "\r\niterationsPerDecomposition: " + iterationsPerDecomposition
 				+ "\r\nmaxVehiclesInGroup: " + maxVehiclesInGroup
+				+ "\r\ntimeLimit: " + timeLimit
+				+ "\r\ngranularity: " + granularity
+				+ "\r\ngranularityWidening: " + granularityWidening
+				+ "\r\nremoteWorkers: " + remoteWorkers
 				+ "\r\nalgorithms:" 
 					+ "\r\n\tgeneration: " + algorithms.getGenerationAlgorithm().getClass().getSimpleName()  
 					+ "\r\n\tinsertion: " + algorithms.getInsertionAlgorithm().getClass().getSimpleName() 
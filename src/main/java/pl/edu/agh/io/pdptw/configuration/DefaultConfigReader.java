@@ -21,6 +21,7 @@ import pl.edu.agh.io.pdptw.configuration.exception.InvalidFileFormatException;
 import pl.edu.agh.io.pdptw.model.DeliveryRequest;
 import pl.edu.agh.io.pdptw.model.Location;
 import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
 import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.RequestType;
 import pl.edu.agh.io.pdptw.model.Vehicle;
@@ -60,6 +61,10 @@ public class DefaultConfigReader implements ConfigReader {
 				int decompositionCycles = ((Long) test.get("decompositionCycles")).intValue();
 				int iterationsPerDecomposition = ((Long) test.get("iterationsPerDecomposition")).intValue();
 				int maxVehiclesInGroup = ((Long) test.get("maxVehiclesInGroup")).intValue();
+				long timeLimit = (test.get("timeLimit") != null) ? (Long) test.get("timeLimit") : 0;
+				int granularity = (test.get("granularity") != null) ? ((Long) test.get("granularity")).intValue() : 0;
+				int granularityWidening = (test.get("granularityWidening") != null) ? ((Long) test.get("granularityWidening")).intValue() : 2;
+				int remoteWorkers = (test.get("remoteWorkers") != null) ? ((Long) test.get("remoteWorkers")).intValue() : 0;
 				JSONObject algorithms = (JSONObject) test.get("algorithms");
 
 				String generationAlgorithm = (String) algorithms.get("generation");
@@ -90,6 +95,10 @@ public class DefaultConfigReader implements ConfigReader {
 						decompositionCycles,
 						iterationsPerDecomposition,
 						maxVehiclesInGroup,
+						timeLimit,
+						granularity,
+						granularityWidening,
+						remoteWorkers,
 						new Location(0, 0),
 						algorithmConfig);
 				configurations.add(configuration);
@@ -107,13 +116,17 @@ public class DefaultConfigReader implements ConfigReader {
 		File requestsFile = new File(requestsFilePath);
 		int lineCounter = 0;
 		List<Request> result = new ArrayList<>();
-		Map<String, Request> siblings = new HashMap<>();
-		Map<String, Integer> values = new HashMap<>();
-		String[] parameterNames = {
-			"id", "x", "y", "volume", 
-			"timeWindowStart", "timeWindowEnd", "serviceTime",
-			"pickupRequestId", "deliveryRequestId"
-		};
+		
+		/* requests waiting for their siblings (keyed by
+		 * their ids) and values read from the current line
+		 * (the positions are given by the constants below) */
+		
+		Map<Integer, Request> siblings = new HashMap<>();
+		final int ID = 0, X = 1, Y = 2, VOLUME = 3,
+				TIME_WINDOW_START = 4, TIME_WINDOW_END = 5, SERVICE_TIME = 6,
+				PICKUP_REQUEST_ID = 7, DELIVERY_REQUEST_ID = 8;
+		final int PARAMETERS_NO = 9;
+		int[] values = new int[PARAMETERS_NO];
 		
 		try (
 			Scanner sc = new Scanner(requestsFile)
@@ -129,12 +142,11 @@ public class DefaultConfigReader implements ConfigReader {
 			}
 			
 			/* read the warehouse location data */
-		    for (int i = 0; i < parameterNames.length && sc.hasNextInt(); i++) {
-	    		String parameterName = parameterNames[i];
-	    		values.put(parameterName, sc.nextInt());
+		    for (int i = 0; i < PARAMETERS_NO && sc.hasNextInt(); i++) {
+	    		values[i] = sc.nextInt();
 			}
 		    
-		    configuration.setWarehouseLocation(new Location(values.get("x"), values.get("y")));
+		    configuration.setWarehouseLocation(new Location(values[X], values[Y]));
 			
 			if (sc.hasNextLine()) {
 				sc.nextLine();
@@ -145,27 +157,24 @@ public class DefaultConfigReader implements ConfigReader {
 				int readValuesNo = 0;
 				Request request;
 			    
-			    for (int i = 0; i < parameterNames.length && sc.hasNextInt(); i++) {
-		    		String parameterName = parameterNames[i];
-		    		values.put(parameterName, sc.nextInt());
+			    for (int i = 0; i < PARAMETERS_NO && sc.hasNextInt(); i++) {
+		    		values[i] = sc.nextInt();
 		    		readValuesNo++;
 				}
 			    
-			    if (readValuesNo != parameterNames.length) {
+			    if (readValuesNo != PARAMETERS_NO) {
 			    	throw new InvalidFileFormatException(
 			    			"Invalid requests file format(" + lineCounter + ")"); 
 			    }
 			    
-			    int id = values.get("id");
-			    int x = values.get("x");
-			    int y = values.get("y");
-			    Location location = new Location(x, y);
-			    int volume = values.get("volume");
-			    int timeWindowStart = values.get("timeWindowStart");
-			    int timeWindowEnd = values.get("timeWindowEnd");
-			    int serviceTime = values.get("serviceTime");
-			    int pickupRequestId = values.get("pickupRequestId");
-			    int deliveryRequestId = values.get("deliveryRequestId");
+			    int id = values[ID];
+			    Location location = new Location(values[X], values[Y]);
+			    int volume = values[VOLUME];
+			    int timeWindowStart = values[TIME_WINDOW_START];
+			    int timeWindowEnd = values[TIME_WINDOW_END];
+			    int serviceTime = values[SERVICE_TIME];
+			    int pickupRequestId = values[PICKUP_REQUEST_ID];
+			    int deliveryRequestId = values[DELIVERY_REQUEST_ID];
 			    int siblingId;
 			    
 			    if (volume >= 0 
@@ -189,23 +198,24 @@ public class DefaultConfigReader implements ConfigReader {
 			    }
 			    
 			    /* add newly created request to the
-			     * final request pool */
+			     * final request pool (requests are indexed
+			     * densely in the order of appearance) */
+			    request.setIndex(result.size());
 			    result.add(request);
 			    	
-			    if (siblings.containsKey("" + siblingId)) {
-			    	Request sibling = siblings.get("" + siblingId);
-			    	
+			    Request sibling = siblings.remove(siblingId);
+			    
+			    if (sibling != null) {
 			    	try {
 			    		sibling.setSibling(request);
 			    		request.setSibling(sibling);
-			    		siblings.remove("" + siblingId);
 					} catch (IllegalArgumentException e) {
 						throw new InvalidFileFormatException(
 								"Invalid sibling data (" + lineCounter + ", id: " + id 
 								+ "sibling id: " + siblingId + ")");
 					}
 			    } else {
-			    	siblings.put("" + id, request);
+			    	siblings.put(id, request);
 			    }
 			    
 			    lineCounter++;
@@ -246,6 +256,22 @@ public class DefaultConfigReader implements ConfigReader {
 		return result;
 	}
 
+	@Override
+	public ProblemInstance loadProblemInstance(Configuration configuration)
+			throws IOException, InvalidFileFormatException {
+		
+		List<Request> requests = loadRequests(configuration);
+		ProblemInstance instance;
+		
+		try {
+			instance = new ProblemInstance(configuration.getWarehouseLocation(), requests);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidFileFormatException(e.getMessage());
+		}
+		
+		return instance;
+	}
+
 	@Override
 	public List<Vehicle> loadVehicles(Configuration configuration)
 		throws IOException, ParseException {
@@ -0,0 +1,284 @@
+package pl.edu.agh.io.pdptw.configuration;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.SplittableRandom;
+
+import pl.edu.agh.io.pdptw.model.Location;
+
+/* Generator of synthetic problem instances in the Li & Lim
+ * format (see DefaultConfigReader.loadRequests()) for the
+ * scalability tests: the requests file, the ".arrival_times"
+ * file (for the dynamic version) and the vehicles file.
+ *
+ * Usage: InstanceGenerator <requestsNo> <clustered|random|mixed>
+ *            <tightness> <seed> <requestsPath> <vehiclesPath>
+ *
+ * The same parameters (including the seed) always give
+ * the same files. The area and the planning horizon grow
+ * with the number of requests (so that the density of the
+ * requests stays like in the Li & Lim instances) and each
+ * pickup-delivery pair can be served by a separate vehicle
+ * starting from the depot, so every instance is feasible.
+ *
+ * The tightness of the time windows is a number from [0, 1]:
+ * 0 - the windows are half of the horizon wide (like in the
+ * Li & Lim type 2 instances), 1 - they're as narrow as
+ * the service time. */
+
+public class InstanceGenerator {
+	public enum Layout {
+		CLUSTERED, RANDOM, MIXED
+	}
+
+	/* the Li & Lim instances with 100 requests
+	 * spread over the 100 x 100 area */
+
+	private static final int REFERENCE_REQUESTS_NO = 100;
+	private static final int REFERENCE_SIDE = 100;
+	private static final int HORIZON_PER_SIDE = 10;
+	private static final int REQUESTS_PER_CLUSTER = 20;
+	private static final double CLUSTER_RADIUS = 0.05;
+
+	private static final int MIN_VOLUME = 1;
+	private static final int MAX_VOLUME = 30;
+	private static final int SPEED = 1;
+
+	private Layout layout = Layout.MIXED;
+	private double tightness = 0.5;
+	private int serviceTime = 10;
+	private int capacity = 200;
+
+	/* the fraction of the requests not known in advance
+	 * (their arrival times are greater than 0) */
+
+	private double dynamism = 0.5;
+
+	private final long seed;
+
+	public InstanceGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 6) {
+			System.err.println("Usage: InstanceGenerator <requestsNo> <clustered|random|mixed> "
+					+ "<tightness> <seed> <requestsPath> <vehiclesPath>");
+			System.exit(1);
+		}
+
+		new InstanceGenerator(Long.parseLong(args[3]))
+				.setLayout(Layout.valueOf(args[1].toUpperCase()))
+				.setTightness(Double.parseDouble(args[2]))
+				.generate(Integer.parseInt(args[0]), args[4], args[5]);
+	}
+
+	public InstanceGenerator setLayout(Layout layout) {
+		this.layout = layout;
+		return this;
+	}
+
+	public InstanceGenerator setTightness(double tightness) {
+		if (tightness < 0 || tightness > 1) {
+			throw new IllegalArgumentException("Invalid tightness. Should be in [0, 1]");
+		}
+
+		this.tightness = tightness;
+		return this;
+	}
+
+	public InstanceGenerator setServiceTime(int serviceTime) {
+		if (serviceTime < 0) {
+			throw new IllegalArgumentException("Invalid service time. Should be non-negative");
+		}
+
+		this.serviceTime = serviceTime;
+		return this;
+	}
+
+	public InstanceGenerator setCapacity(int capacity) {
+		if (capacity < MAX_VOLUME) {
+			throw new IllegalArgumentException("Invalid capacity. Should be at least " + MAX_VOLUME);
+		}
+
+		this.capacity = capacity;
+		return this;
+	}
+
+	public InstanceGenerator setDynamism(double dynamism) {
+		if (dynamism < 0 || dynamism > 1) {
+			throw new IllegalArgumentException("Invalid dynamism. Should be in [0, 1]");
+		}
+
+		this.dynamism = dynamism;
+		return this;
+	}
+
+	/* the number of requests is rounded down to an even one
+	 * (the pickups and the deliveries); the vehicles file gets
+	 * one vehicle per two pairs (like in the Li & Lim instances) */
+
+	public void generate(int requestsNo, String requestsPath, String vehiclesPath)
+			throws IOException {
+
+		int pairsNo = requestsNo / 2;
+
+		if (pairsNo < 1) {
+			throw new IllegalArgumentException("Invalid number of requests. Should be at least 2");
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		int side = (int) Math.max(REFERENCE_SIDE,
+				Math.round(REFERENCE_SIDE * Math.sqrt((double) (2 * pairsNo) / REFERENCE_REQUESTS_NO)));
+		int horizon = HORIZON_PER_SIDE * side;
+		int windowWidth = (int) Math.max(serviceTime, (1 - tightness) * horizon / 2);
+		int vehiclesNo = Math.max(1, (pairsNo + 1) / 2);
+		Location depot = new Location(side / 2, side / 2);
+		Location[] clusters = createClusters(random, side,
+				Math.max(1, 2 * pairsNo / REQUESTS_PER_CLUSTER));
+
+		try (
+			PrintWriter requests = new PrintWriter(new BufferedWriter(new FileWriter(requestsPath)));
+			PrintWriter arrivalTimes = new PrintWriter(new BufferedWriter(
+					new FileWriter(requestsPath + ".arrival_times")))
+		) {
+			requests.println(vehiclesNo + "\t" + capacity + "\t" + SPEED);
+			requests.println(formatLine(0, depot, 0, 0, horizon, 0, 0, 0));
+
+			for (int i = 0; i < pairsNo; i++) {
+				boolean isClustered = (layout == Layout.CLUSTERED)
+						|| (layout == Layout.MIXED && random.nextBoolean());
+				Location pickupLocation = createLocation(random, side, clusters, isClustered);
+				Location deliveryLocation = createLocation(random, side, clusters, isClustered);
+				int toPickup = distance(depot, pickupLocation);
+				int between = distance(pickupLocation, deliveryLocation);
+				int toDepot = distance(deliveryLocation, depot);
+				int volume = MIN_VOLUME + random.nextInt(MAX_VOLUME - MIN_VOLUME + 1);
+
+				/* pickup at pickupTime, delivery at deliveryTime
+				 * (with some slack) and back to the depot before
+				 * the end of the horizon; the windows contain
+				 * these times so the pair is feasible by itself */
+
+				int slack = random.nextInt(windowWidth / 2 + 1);
+				int latestPickupTime = horizon - toDepot - 2 * serviceTime - between - slack;
+				int pickupTime = (latestPickupTime > toPickup)
+						? toPickup + random.nextInt(latestPickupTime - toPickup + 1)
+						: toPickup;
+				int deliveryTime = pickupTime + serviceTime + between + slack;
+				int[] pickupWindow = createWindow(random, pickupTime, windowWidth, toPickup,
+						horizon - toDepot - 2 * serviceTime - between);
+				int[] deliveryWindow = createWindow(random, deliveryTime, windowWidth,
+						pickupWindow[0] + serviceTime + between, horizon - toDepot - serviceTime);
+
+				int pickupId = 2 * i + 1;
+				int deliveryId = 2 * i + 2;
+				requests.println(formatLine(pickupId, pickupLocation, volume,
+						pickupWindow[0], pickupWindow[1], serviceTime, 0, deliveryId));
+				requests.println(formatLine(deliveryId, deliveryLocation, -volume,
+						deliveryWindow[0], deliveryWindow[1], serviceTime, pickupId, 0));
+
+				/* the request arrives before its pickup window opens */
+
+				int arrivalTime = (random.nextDouble() < dynamism)
+						? random.nextInt(pickupWindow[0] + 1)
+						: 0;
+				arrivalTimes.println(arrivalTime);
+			}
+
+			if (requests.checkError() || arrivalTimes.checkError()) {
+				throw new IOException("Couldn't write the requests to: " + requestsPath);
+			}
+		}
+
+		writeVehicles(vehiclesPath, vehiclesNo, depot);
+	}
+
+	private void writeVehicles(String vehiclesPath, int vehiclesNo, Location depot)
+			throws IOException {
+
+		try (
+			PrintWriter vehicles = new PrintWriter(new BufferedWriter(new FileWriter(vehiclesPath)))
+		) {
+			vehicles.println("{");
+			vehicles.println("\t\"vehicles\": [");
+
+			for (int i = 1; i <= vehiclesNo; i++) {
+				vehicles.println("\t\t{");
+				vehicles.println("\t\t\t\"id\": \"truck" + i + "\",");
+				vehicles.println("\t\t\t\"maxCapacity\": " + capacity + ",");
+				vehicles.println("\t\t\t\"startLocation\": {");
+				vehicles.println("\t\t\t\t\"x\": " + depot.getX() + ",");
+				vehicles.println("\t\t\t\t\"y\": " + depot.getY());
+				vehicles.println("\t\t\t}");
+				vehicles.println((i < vehiclesNo) ? "\t\t}," : "\t\t}");
+			}
+
+			vehicles.println("\t]");
+			vehicles.println("}");
+
+			if (vehicles.checkError()) {
+				throw new IOException("Couldn't write the vehicles to: " + vehiclesPath);
+			}
+		}
+	}
+
+	private static Location[] createClusters(SplittableRandom random, int side, int clustersNo) {
+		Location[] clusters = new Location[clustersNo];
+
+		for (int i = 0; i < clustersNo; i++) {
+			clusters[i] = new Location(random.nextInt(side + 1), random.nextInt(side + 1));
+		}
+
+		return clusters;
+	}
+
+	/* a clustered location is drawn around one of the
+	 * clusters' centres (uniformly within the radius) */
+
+	private static Location createLocation(SplittableRandom random, int side,
+			Location[] clusters, boolean isClustered) {
+
+		if (!isClustered) {
+			return new Location(random.nextInt(side + 1), random.nextInt(side + 1));
+		}
+
+		Location centre = clusters[random.nextInt(clusters.length)];
+		double radius = CLUSTER_RADIUS * side * Math.sqrt(random.nextDouble());
+		double angle = 2 * Math.PI * random.nextDouble();
+		int x = (int) Math.round(centre.getX() + radius * Math.cos(angle));
+		int y = (int) Math.round(centre.getY() + radius * Math.sin(angle));
+
+		return new Location(Math.min(side, Math.max(0, x)), Math.min(side, Math.max(0, y)));
+	}
+
+	/* a window of the given width containing the time,
+	 * placed at random and clipped to [earliest, latest] */
+
+	private static int[] createWindow(SplittableRandom random, int time, int width,
+			int earliest, int latest) {
+
+		int start = Math.max(earliest, time - random.nextInt(width + 1));
+		int end = Math.max(time, Math.min(latest, start + width));
+
+		return new int[] { start, end };
+	}
+
+	/* the distances are rounded up so that the travel
+	 * times used by the scheduler are never greater */
+
+	private static int distance(Location l1, Location l2) {
+		return (int) Math.ceil(Location.calculateDistance(l1, l2));
+	}
+
+	private static String formatLine(int id, Location location, int volume,
+			int timeWindowStart, int timeWindowEnd, int serviceTime,
+			int pickupId, int deliveryId) {
+
+		return id + "\t" + location.getX() + "\t" + location.getY() + "\t" + volume
+				+ "\t" + timeWindowStart + "\t" + timeWindowEnd + "\t" + serviceTime
+				+ "\t" + pickupId + "\t" + deliveryId;
+	}
+}
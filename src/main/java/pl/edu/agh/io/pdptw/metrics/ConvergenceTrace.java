@@ -0,0 +1,319 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.Getter;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+
+/* Convergence trace of a single run: a CSV file with
+ * one record per iteration of the searches and per cycle
+ * of the decomposition:
+ *
+ *     timestamp,type,search,worker,iteration,current,best,vehicles
+ *
+ * (the time in ms since the epoch, the type of the record
+ * (see RecordType), the id of the search (see startSearch()),
+ * the number of the thread within the trace, the iteration
+ * of the search (or the cycle), the objective values of the
+ * current and the best solutions and the number of vehicles
+ * of the best one).
+ *
+ * The pools' threads run many searches one after another
+ * (each starting from the iteration 0), so the records of
+ * a search are told apart by its id, not by the thread.
+ *
+ * The searches only put the records into a preallocated
+ * ring buffer (a slot is claimed with a CAS and published
+ * with lazySet, nothing is allocated); the buffer is drained
+ * and written by a background thread. When the writer falls
+ * behind the records are dropped instead of blocking the
+ * search (see getDroppedNo()).
+ *
+ * The searches write to the installed trace (just like
+ * the problem instance, see ProblemInstance.install()). */
+
+public final class ConvergenceTrace implements AutoCloseable {
+	public static final String ENABLED_PROPERTY = "pdptw.trace";
+	public static final String HEADER = "timestamp,type,search,worker,iteration,current,best,vehicles";
+	
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final RecordType[] RECORD_TYPES = RecordType.values();
+	
+	/* how long close() waits for the pending records
+	 * to be written (e.g. when the disk is stuck) */
+	
+	private static final long CLOSE_TIMEOUT = 10000;
+	
+	/* how long the writer sleeps when the buffer is empty */
+	
+	private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	@Getter private static volatile ConvergenceTrace current;
+	
+	@Getter private final Path path;
+	private final int capacity;
+	private final int mask;
+	private final long[] timestamps;
+	private final byte[] types;
+	private final int[] searches;
+	private final int[] workers;
+	private final int[] iterations;
+	private final double[] currentObjectives;
+	private final double[] bestObjectives;
+	private final int[] vehicles;
+	
+	/* the slot of the position p is published
+	 * when its sequence becomes p + 1 */
+	
+	private final AtomicLongArray sequences;
+	
+	/* the next position to be claimed and the next
+	 * one to be written (head - tail records are pending) */
+	
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	
+	private final AtomicInteger searchesNo = new AtomicInteger();
+	private final AtomicInteger workersNo = new AtomicInteger();
+	private final ThreadLocal<Integer> workerIds = ThreadLocal.withInitial(workersNo::getAndIncrement);
+	
+	private final Writer out;
+	private final Thread writer;
+	private volatile boolean closed;
+	
+	public ConvergenceTrace(Path path) throws IOException {
+		this(path, DEFAULT_CAPACITY);
+	}
+	
+	/* the capacity is rounded up to a power of 2 */
+	
+	public ConvergenceTrace(Path path, int capacity) throws IOException {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid capacity. Should be in [1, 2^30]");
+		}
+		
+		this.path = path;
+		this.capacity = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = this.capacity - 1;
+		this.timestamps = new long[this.capacity];
+		this.types = new byte[this.capacity];
+		this.searches = new int[this.capacity];
+		this.workers = new int[this.capacity];
+		this.iterations = new int[this.capacity];
+		this.currentObjectives = new double[this.capacity];
+		this.bestObjectives = new double[this.capacity];
+		this.vehicles = new int[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		this.out = Files.newBufferedWriter(path);
+		this.out.write(HEADER);
+		this.out.write('\n');
+		
+		this.writer = new Thread(this::writeRecords, "convergence-trace");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	/* the trace of the run described by the configuration
+	 * (named like the optimization log, see LoggingUtils) */
+	
+	public static Path createPath(Configuration configuration) {
+		Path requestsPath = Paths.get(configuration.getRequestsPath()).getFileName();
+		
+		return Paths.get(configuration.getOutputPath()
+				+ ((requestsPath != null) ? requestsPath.toString() : "")
+				+ "_" + configuration.getIterations()
+				+ "_" + configuration.getAlgorithms().getGenerationAlgorithm()
+					.getClass().getSimpleName()
+				+ "_trace_" + System.currentTimeMillis() + ".csv");
+	}
+	
+	/* the searches started afterwards write to the trace
+	 * (null - no tracing); the previous one isn't closed */
+	
+	public static void install(ConvergenceTrace trace) {
+		current = trace;
+	}
+	
+	/* returns the id the search (or the decomposition
+	 * run) passes along with its records */
+	
+	public int startSearch() {
+		return searchesNo.getAndIncrement();
+	}
+	
+	/* an iteration of a search (of a partial problem
+	 * if the problem is decomposed) */
+	
+	public void record(int searchId, int iteration, 
+			double currentObjective, double bestObjective, int vehiclesNo) {
+		
+		record(RecordType.SEARCH, searchId, iteration, currentObjective, bestObjective, vehiclesNo);
+	}
+	
+	/* a cycle of the decomposition (the complete solutions) */
+	
+	public void recordSolution(int searchId, int cycle, 
+			double currentObjective, double bestObjective, int vehiclesNo) {
+		
+		record(RecordType.SOLUTION, searchId, cycle, currentObjective, bestObjective, vehiclesNo);
+	}
+	
+	private void record(RecordType type, int searchId, int iteration, 
+			double currentObjective, double bestObjective, int vehiclesNo) {
+		
+		long position;
+		
+		do {
+			position = head.get();
+			
+			if (position - tail.get() >= capacity || closed) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (!head.compareAndSet(position, position + 1));
+		
+		int slot = (int) position & mask;
+		timestamps[slot] = System.currentTimeMillis();
+		types[slot] = (byte) type.ordinal();
+		searches[slot] = searchId;
+		workers[slot] = workerIds.get();
+		iterations[slot] = iteration;
+		currentObjectives[slot] = currentObjective;
+		bestObjectives[slot] = bestObjective;
+		vehicles[slot] = vehiclesNo;
+		sequences.lazySet(slot, position + 1);
+	}
+	
+	public long getDroppedNo() {
+		return dropped.get();
+	}
+	
+	/* writes the pending records and closes the file; if 
+	 * the writer doesn't finish in time it's left behind (it's
+	 * a daemon) and the file may miss some records */
+	
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		
+		closed = true;
+		LockSupport.unpark(writer);
+		
+		try {
+			writer.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if (writer.isAlive()) {
+			LoggingUtils.warn("Convergence trace: the records haven't been written in time to " + path);
+		}
+		
+		if (current == this) {
+			current = null;
+		}
+		
+		if (dropped.get() > 0) {
+			LoggingUtils.warn("Convergence trace: " + dropped.get() + " records dropped");
+		}
+	}
+	
+	private void writeRecords() {
+		StringBuilder line = new StringBuilder();
+		boolean isWritable = true;
+		
+		try {
+			while (true) {
+				
+				/* the flag is read first so the records
+				 * put before closing are written */
+				
+				boolean isClosed = closed;
+				long position = tail.get();
+				int slot = (int) position & mask;
+				
+				if (sequences.get(slot) == position + 1) {
+					if (isWritable) {
+						line.setLength(0);
+						line.append(timestamps[slot]).append(',')
+							.append(RECORD_TYPES[types[slot]].getName()).append(',')
+							.append(searches[slot]).append(',')
+							.append(workers[slot]).append(',')
+							.append(iterations[slot]).append(',')
+							.append(currentObjectives[slot]).append(',')
+							.append(bestObjectives[slot]).append(',')
+							.append(vehicles[slot]).append('\n');
+						isWritable = write(line);
+					}
+					
+					tail.lazySet(position + 1);
+				} else if (isClosed) {
+					break;
+				} else {
+					isWritable = isWritable && flush();
+					LockSupport.parkNanos(IDLE_WAIT);
+				}
+			}
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+			}
+		}
+	}
+	
+	/* after a failure the records are still taken
+	 * from the buffer (so the searches aren't affected) */
+	
+	private boolean write(CharSequence line) {
+		try {
+			out.append(line);
+			return true;
+		} catch (IOException e) {
+			LoggingUtils.logStackTrace(e);
+			return false;
+		}
+	}
+	
+	private boolean flush() {
+		try {
+			out.flush();
+			return true;
+		} catch (IOException e) {
+			LoggingUtils.logStackTrace(e);
+			return false;
+		}
+	}
+	
+	/* the searches record their (possibly partial) solutions,
+	 * the decomposition records the complete ones */
+	
+	public enum RecordType {
+		SEARCH("search"),
+		SOLUTION("solution");
+		
+		private final String name;
+		
+		private RecordType(String name) {
+			this.name = name;
+		}
+		
+		public String getName() {
+			return name;
+		}
+	}
+}
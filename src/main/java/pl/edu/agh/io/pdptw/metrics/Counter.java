@@ -0,0 +1,25 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+/* events counted by the Metrics registry; the name
+ * is used by the JMX attributes and the snapshot files */
+
+public enum Counter {
+	FEASIBILITY_CHECKS("FeasibilityChecks"),
+	INSERTION_EVALUATIONS("InsertionEvaluations"),
+	SUCCESSFUL_EJECTIONS("SuccessfulEjections"),
+	FAILED_EJECTIONS("FailedEjections"),
+	NEIGHBORS_GENERATED("NeighborsGenerated"),
+	TABU_HITS("TabuHits"),
+	MEMORY_INSERTS("MemoryInserts"),
+	MEMORY_REJECTS("MemoryRejects");
+	
+	private final String name;
+	
+	private Counter(String name) {
+		this.name = name;
+	}
+	
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,27 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+/* distributions recorded by the Metrics registry
+ * (the times are in nanoseconds) */
+
+public enum Histogram {
+	INSERTION_EVALUATION_TIME("InsertionEvaluationTime", "ns"),
+	NEIGHBORHOOD_TIME("NeighborhoodTime", "ns"),
+	OPTIMIZATION_STEP_TIME("OptimizationStepTime", "ns"),
+	DECOMPOSITION_GROUP_SIZE("DecompositionGroupSize", "requests");
+	
+	private final String name;
+	private final String unit;
+	
+	private Histogram(String name, String unit) {
+		this.name = name;
+		this.unit = unit;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public String getUnit() {
+		return unit;
+	}
+}
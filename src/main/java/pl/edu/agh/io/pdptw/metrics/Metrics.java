@@ -0,0 +1,235 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+
+/* Registry of the counters and histograms of the hot-path
+ * events (see Counter and Histogram).
+ *
+ * Each thread records into its own shard, which only that
+ * thread writes (the values are published using lazySet, so
+ * there's no locking nor contended cache lines and nothing
+ * is allocated after the shard has been created). The shards
+ * are summed up by snapshot(); the shards of the finished
+ * threads are folded into a single one (by snapshot() and
+ * whenever a new shard is created).
+ *
+ * The histograms have logarithmic buckets: the bucket b
+ * holds the values from [2^(b-1), 2^b - 1] (0 - only 0).
+ *
+ * The recording may be switched off with -Dpdptw.metrics=false. */
+
+public final class Metrics {
+	public static final boolean ENABLED = 
+			!"false".equalsIgnoreCase(System.getProperty("pdptw.metrics"));
+	public static final String OBJECT_NAME = "pl.edu.agh.io.pdptw:type=Metrics";
+	
+	static final int BUCKETS_NO = 64;
+	static final long START_TIME = System.nanoTime();
+	
+	private static final int COUNTERS_NO = Counter.values().length;
+	private static final int HISTOGRAMS_NO = Histogram.values().length;
+	
+	private static final List<Shard> SHARDS = new CopyOnWriteArrayList<>();
+	private static final ThreadLocal<Shard> SHARD = ThreadLocal.withInitial(Metrics::createShard);
+	
+	/* the totals of the finished threads, the busy
+	 * times are kept by the names (the pools reuse them) */
+	
+	private static final Shard RETIRED = new Shard(null);
+	private static final Map<String, Long> RETIRED_BUSY_TIMES = new HashMap<>();
+	
+	private Metrics() {
+		
+	}
+	
+	public static void increment(Counter counter) {
+		if (ENABLED) {
+			Shard shard = SHARD.get();
+			add(shard.counters, counter.ordinal(), 1);
+		}
+	}
+	
+	/* the events counted locally in a loop
+	 * are added at once (see GreedyInsertion) */
+	
+	public static void add(Counter counter, long delta) {
+		if (ENABLED) {
+			add(SHARD.get().counters, counter.ordinal(), delta);
+		}
+	}
+	
+	public static void record(Histogram histogram, long value) {
+		if (ENABLED) {
+			SHARD.get().record(histogram.ordinal(), value);
+		}
+	}
+	
+	/* the start time for recordTime() (0 if disabled
+	 * so that the clock isn't read at all) */
+	
+	public static long now() {
+		return (ENABLED) ? System.nanoTime() : 0;
+	}
+	
+	public static void recordTime(Histogram histogram, long start) {
+		if (ENABLED) {
+			SHARD.get().record(histogram.ordinal(), System.nanoTime() - start);
+		}
+	}
+	
+	/* an optimization step done by the current thread (a worker
+	 * of the decomposition) - counted as its busy time */
+	
+	public static void recordBusyTime(long start) {
+		if (ENABLED) {
+			long time = System.nanoTime() - start;
+			Shard shard = SHARD.get();
+			shard.record(Histogram.OPTIMIZATION_STEP_TIME.ordinal(), time);
+			add(shard.busyTime, 0, time);
+		}
+	}
+	
+	public static synchronized MetricsSnapshot snapshot() {
+		long[] counters = new long[COUNTERS_NO];
+		long[][] buckets = new long[HISTOGRAMS_NO][BUCKETS_NO];
+		long[] sums = new long[HISTOGRAMS_NO];
+		long[] maxima = new long[HISTOGRAMS_NO];
+		
+		retireShards();
+		
+		Map<String, Long> busyTimes = new HashMap<>(RETIRED_BUSY_TIMES);
+		RETIRED.addTo(counters, buckets, sums, maxima);
+		
+		for (Shard shard : SHARDS) {
+			shard.addTo(counters, buckets, sums, maxima);
+			busyTimes.merge(shard.threadName, shard.busyTime.get(0), Long::sum);
+		}
+		
+		busyTimes.values().removeIf(time -> time == 0);
+		
+		return new MetricsSnapshot(System.currentTimeMillis(), System.nanoTime(), 
+				counters, buckets, sums, maxima, busyTimes);
+	}
+	
+	/* registers the MBean (see MetricsBean) in the platform 
+	 * server; returns false if it couldn't be done */
+	
+	public static boolean registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer()
+				.registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			
+			/* registered by somebody else already */
+			
+		} catch (JMException e) {
+			LoggingUtils.logStackTrace(e);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/* the shards of the finished threads are folded here as well
+	 * so they don't pile up if nobody takes the snapshots */
+	
+	private static synchronized Shard createShard() {
+		retireShards();
+		Shard shard = new Shard(Thread.currentThread());
+		SHARDS.add(shard);
+		
+		return shard;
+	}
+	
+	/* a finished thread won't write its shard anymore
+	 * (called under the lock of the class) */
+	
+	private static void retireShards() {
+		for (Shard shard : SHARDS) {
+			if (!shard.thread.isAlive()) {
+				shard.addTo(RETIRED);
+				RETIRED_BUSY_TIMES.merge(shard.threadName, shard.busyTime.get(0), Long::sum);
+				SHARDS.remove(shard);
+			}
+		}
+	}
+	
+	static int getShardsNo() {
+		return SHARDS.size();
+	}
+	
+	/* only the owner of the array writes it */
+	
+	private static void add(AtomicLongArray array, int i, long delta) {
+		array.lazySet(i, array.get(i) + delta);
+	}
+	
+	private static final class Shard {
+		private final Thread thread;
+		private final String threadName;
+		private final AtomicLongArray counters = new AtomicLongArray(COUNTERS_NO);
+		private final AtomicLongArray buckets = new AtomicLongArray(HISTOGRAMS_NO * BUCKETS_NO);
+		private final AtomicLongArray sums = new AtomicLongArray(HISTOGRAMS_NO);
+		private final AtomicLongArray maxima = new AtomicLongArray(HISTOGRAMS_NO);
+		private final AtomicLongArray busyTime = new AtomicLongArray(1);
+		
+		private Shard(Thread thread) {
+			this.thread = thread;
+			this.threadName = (thread != null) ? thread.getName() : "";
+		}
+		
+		private void record(int histogram, long value) {
+			long positive = Math.max(0, value);
+			int bucket = Long.SIZE - Long.numberOfLeadingZeros(positive);
+			add(buckets, histogram * BUCKETS_NO + Math.min(bucket, BUCKETS_NO - 1), 1);
+			add(sums, histogram, positive);
+			
+			if (positive > maxima.get(histogram)) {
+				maxima.lazySet(histogram, positive);
+			}
+		}
+		
+		/* the target is written only under the lock of the class */
+		
+		private void addTo(Shard target) {
+			for (int c = 0; c < COUNTERS_NO; c++) {
+				add(target.counters, c, counters.get(c));
+			}
+			
+			for (int i = 0; i < HISTOGRAMS_NO * BUCKETS_NO; i++) {
+				add(target.buckets, i, buckets.get(i));
+			}
+			
+			for (int h = 0; h < HISTOGRAMS_NO; h++) {
+				add(target.sums, h, sums.get(h));
+				target.maxima.lazySet(h, Math.max(target.maxima.get(h), maxima.get(h)));
+			}
+		}
+		
+		private void addTo(long[] counters, long[][] buckets, long[] sums, long[] maxima) {
+			for (int c = 0; c < COUNTERS_NO; c++) {
+				counters[c] += this.counters.get(c);
+			}
+			
+			for (int h = 0; h < HISTOGRAMS_NO; h++) {
+				for (int b = 0; b < BUCKETS_NO; b++) {
+					buckets[h][b] += this.buckets.get(h * BUCKETS_NO + b);
+				}
+				
+				sums[h] += this.sums.get(h);
+				maxima[h] = Math.max(maxima[h], this.maxima.get(h));
+			}
+		}
+	}
+}
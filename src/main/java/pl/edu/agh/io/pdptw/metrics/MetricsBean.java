@@ -0,0 +1,156 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/* JMX view of the Metrics (registered as Metrics.OBJECT_NAME):
+ * the counters, the count/mean/p50/p99/max of the histograms,
+ * the busy times of the workers (in ms) and the number of
+ * neighbours generated per second during the last sampling
+ * period (so the rate doesn't depend on how often, and by
+ * how many clients, the bean is read). */
+
+class MetricsBean implements DynamicMBean {
+	private static final String NEIGHBORS_PER_SECOND = "NeighborsPerSecond";
+	private static final String WORKER_BUSY_TIMES = "WorkerBusyTimes";
+	private static final long SAMPLING_PERIOD = 1000;
+	
+	private final MBeanInfo info;
+	private final ScheduledExecutorService sampler;
+	private MetricsSnapshot previous;
+	private volatile double neighborsPerSecond;
+	
+	MetricsBean() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<>();
+		
+		for (Counter counter : Counter.values()) {
+			attributes.add(createInfo(counter.getName(), Long.class, "number of events"));
+		}
+		
+		attributes.add(createInfo(NEIGHBORS_PER_SECOND, Double.class, 
+				"neighbours generated per second during the last sampling period"));
+		
+		for (Histogram histogram : Histogram.values()) {
+			String unit = histogram.getUnit();
+			attributes.add(createInfo(histogram.getName() + "Count", Long.class, "number of values"));
+			attributes.add(createInfo(histogram.getName() + "Mean", Double.class, unit));
+			attributes.add(createInfo(histogram.getName() + "P50", Long.class, unit + ", upper bound"));
+			attributes.add(createInfo(histogram.getName() + "P99", Long.class, unit + ", upper bound"));
+			attributes.add(createInfo(histogram.getName() + "Max", Long.class, unit));
+		}
+		
+		attributes.add(createInfo(WORKER_BUSY_TIMES, String[].class, "thread: busy time in ms"));
+		
+		this.info = new MBeanInfo(getClass().getName(), "PDPTW solver metrics",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+				null, new MBeanOperationInfo[0], null);
+		
+		/* the first rate is the one since the start */
+		
+		sample();
+		this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metrics-sampler");
+			t.setDaemon(true);
+			return t;
+		});
+		this.sampler.scheduleAtFixedRate(this::sample, 
+				SAMPLING_PERIOD, SAMPLING_PERIOD, TimeUnit.MILLISECONDS);
+	}
+	
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Map<String, Object> values = readValues();
+		
+		if (!values.containsKey(attribute)) {
+			throw new AttributeNotFoundException(attribute);
+		}
+		
+		return values.get(attribute);
+	}
+	
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		Map<String, Object> values = readValues();
+		AttributeList list = new AttributeList();
+		
+		for (String attribute : attributes) {
+			if (values.containsKey(attribute)) {
+				list.add(new Attribute(attribute, values.get(attribute)));
+			}
+		}
+		
+		return list;
+	}
+	
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("The metrics are read-only: " + attribute.getName());
+	}
+	
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+	
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) 
+			throws ReflectionException {
+		
+		throw new ReflectionException(new NoSuchMethodException(actionName), 
+				"The metrics have no operations: " + actionName);
+	}
+	
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		return info;
+	}
+	
+	private synchronized void sample() {
+		MetricsSnapshot snapshot = Metrics.snapshot();
+		neighborsPerSecond = snapshot.getRate(Counter.NEIGHBORS_GENERATED, previous);
+		previous = snapshot;
+	}
+	
+	private Map<String, Object> readValues() {
+		MetricsSnapshot snapshot = Metrics.snapshot();
+		Map<String, Object> values = new LinkedHashMap<>();
+		
+		for (Counter counter : Counter.values()) {
+			values.put(counter.getName(), snapshot.getCount(counter));
+		}
+		
+		values.put(NEIGHBORS_PER_SECOND, neighborsPerSecond);
+		
+		for (Histogram histogram : Histogram.values()) {
+			values.put(histogram.getName() + "Count", snapshot.getCount(histogram));
+			values.put(histogram.getName() + "Mean", snapshot.getMean(histogram));
+			values.put(histogram.getName() + "P50", snapshot.getPercentile(histogram, 50));
+			values.put(histogram.getName() + "P99", snapshot.getPercentile(histogram, 99));
+			values.put(histogram.getName() + "Max", snapshot.getMax(histogram));
+		}
+		
+		values.put(WORKER_BUSY_TIMES, snapshot.getBusyTimes().entrySet().stream()
+				.map(e -> e.getKey() + ": " + TimeUnit.NANOSECONDS.toMillis(e.getValue()))
+				.toArray(String[]::new));
+		
+		return values;
+	}
+	
+	private static MBeanAttributeInfo createInfo(String name, Class<?> type, String description) {
+		return new MBeanAttributeInfo(name, type.getName(), description, true, false, false);
+	}
+}
@@ -0,0 +1,134 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+
+/* Writes the metrics snapshot (see Metrics.snapshot())
+ * to a local file periodically, one "name value" line
+ * per metric; the rates are calculated since the previous
+ * report. The file is replaced as a whole (written
+ * to a temporary file first) so it's never partial.
+ *
+ * The reporter of the solver is configured using
+ * the system properties: pdptw.metrics.file (no reports
+ * if missing) and pdptw.metrics.period (in ms). */
+
+public class MetricsReporter implements AutoCloseable {
+	public static final String FILE_PROPERTY = "pdptw.metrics.file";
+	public static final String PERIOD_PROPERTY = "pdptw.metrics.period";
+	
+	private static final long DEFAULT_PERIOD = 10000;
+	
+	private final Path path;
+	private final ScheduledExecutorService scheduler;
+	private MetricsSnapshot previous;
+	
+	public MetricsReporter(Path path, long period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Invalid reporting period. Should be positive");
+		}
+		
+		this.path = path.toAbsolutePath();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metrics-reporter");
+			t.setDaemon(true);
+			return t;
+		});
+		this.scheduler.scheduleAtFixedRate(this::report, period, period, TimeUnit.MILLISECONDS);
+	}
+	
+	/* returns null if the file isn't configured */
+	
+	public static MetricsReporter startFromSystemProperties() {
+		String file = System.getProperty(FILE_PROPERTY);
+		
+		if (file == null || file.isEmpty()) {
+			return null;
+		}
+		
+		long period = Long.getLong(PERIOD_PROPERTY, DEFAULT_PERIOD);
+		LoggingUtils.info("Writing the metrics to " + file + " every " + period + " ms");
+		
+		MetricsReporter reporter = new MetricsReporter(Paths.get(file), period);
+		
+		/* the reporting thread is a daemon so we
+		 * write the final values while exiting */
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(reporter::report));
+		
+		return reporter;
+	}
+	
+	public synchronized void report() {
+		MetricsSnapshot snapshot = Metrics.snapshot();
+		
+		try {
+			Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			
+			try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temporary))) {
+				write(out, snapshot, previous);
+				
+				if (out.checkError()) {
+					throw new IOException("Couldn't write the metrics to: " + temporary);
+				}
+			}
+			
+			try {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, 
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			
+			previous = snapshot;
+		} catch (IOException e) {
+			LoggingUtils.logStackTrace(e);
+		}
+	}
+	
+	/* the last report is written before closing */
+	
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		report();
+	}
+	
+	static void write(PrintWriter out, MetricsSnapshot snapshot, MetricsSnapshot previous) {
+		out.println("timestamp " + Instant.ofEpochMilli(snapshot.getTimestamp()));
+		
+		for (Counter counter : Counter.values()) {
+			out.println(counter.getName() + " " + snapshot.getCount(counter));
+		}
+		
+		out.println("NeighborsPerSecond " 
+				+ String.format("%.1f", snapshot.getRate(Counter.NEIGHBORS_GENERATED, previous)));
+		
+		for (Histogram histogram : Histogram.values()) {
+			out.println(histogram.getName() 
+					+ " count=" + snapshot.getCount(histogram)
+					+ " mean=" + String.format("%.1f", snapshot.getMean(histogram))
+					+ " p50=" + snapshot.getPercentile(histogram, 50)
+					+ " p99=" + snapshot.getPercentile(histogram, 99)
+					+ " max=" + snapshot.getMax(histogram)
+					+ " unit=" + histogram.getUnit());
+		}
+		
+		for (Map.Entry<String, Long> busyTime : snapshot.getBusyTimes().entrySet()) {
+			out.println("WorkerBusyTime[" + busyTime.getKey() + "] " 
+					+ TimeUnit.NANOSECONDS.toMillis(busyTime.getValue()) + " ms");
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+
+/* The values of all the metrics at some moment
+ * (see Metrics.snapshot()); the busy times are
+ * in nanoseconds, by the threads' names. */
+
+public class MetricsSnapshot {
+	@Getter private final long timestamp;
+	private final long nanoTime;
+	private final long[] counters;
+	private final long[][] buckets;
+	private final long[] sums;
+	private final long[] maxima;
+	@Getter private final Map<String, Long> busyTimes;
+	
+	MetricsSnapshot(long timestamp, long nanoTime, long[] counters, 
+			long[][] buckets, long[] sums, long[] maxima, Map<String, Long> busyTimes) {
+		
+		this.timestamp = timestamp;
+		this.nanoTime = nanoTime;
+		this.counters = counters;
+		this.buckets = buckets;
+		this.sums = sums;
+		this.maxima = maxima;
+		this.busyTimes = Collections.unmodifiableMap(new TreeMap<>(busyTimes));
+	}
+	
+	public long getCount(Counter counter) {
+		return counters[counter.ordinal()];
+	}
+	
+	/* the number of events per second since 
+	 * the previous snapshot (null - since the start) */
+	
+	public double getRate(Counter counter, MetricsSnapshot previous) {
+		long count = getCount(counter) 
+				- ((previous != null) ? previous.getCount(counter) : 0);
+		long time = nanoTime 
+				- ((previous != null) ? previous.nanoTime : Metrics.START_TIME);
+		
+		return (time > 0) ? count * 1e9 / time : 0;
+	}
+	
+	public long getCount(Histogram histogram) {
+		long count = 0;
+		
+		for (long bucketCount : buckets[histogram.ordinal()]) {
+			count += bucketCount;
+		}
+		
+		return count;
+	}
+	
+	public double getMean(Histogram histogram) {
+		long count = getCount(histogram);
+		
+		return (count > 0) ? (double) sums[histogram.ordinal()] / count : 0;
+	}
+	
+	public long getMax(Histogram histogram) {
+		return maxima[histogram.ordinal()];
+	}
+	
+	/* the upper bound of the bucket containing the percentile
+	 * (so it's overestimated by at most a factor of 2) */
+	
+	public long getPercentile(Histogram histogram, double percentile) {
+		long[] histogramBuckets = buckets[histogram.ordinal()];
+		long rank = (long) Math.ceil(percentile / 100 * getCount(histogram));
+		long seen = 0;
+		int bucket = 0;
+		
+		while (bucket < histogramBuckets.length - 1 
+				&& (seen += histogramBuckets[bucket]) < rank) {
+			bucket++;
+		}
+		
+		long upperBound = (bucket == 0) ? 0 : (1L << bucket) - 1;
+		
+		return Math.min(upperBound, getMax(histogram));
+	}
+}
@@ -0,0 +1,183 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+
+/* Precomputed Euclidean distances between all
+ * locations of the loaded problem instance.
+ *
+ * Node 0 is the warehouse (depot), node (i + 1)
+ * is the request whose index is equal to i.
+ *
+ * The distances are stored in a single flat array.
+ * As the matrix is symmetric, by default only the upper
+ * triangle (without the diagonal) is kept, which halves
+ * the memory footprint (~16 MB for 1000 pickup - delivery
+ * pairs). We deliberately keep double values - the scheduler
+ * truncates the travel times to ints and storing floats
+ * could change the results of that truncation. */
+
+public class DistanceMatrix {
+
+	/* above this number of nodes the matrix would
+	 * not fit in memory in any sensible way so
+	 * the distances are calculated on the fly */
+
+	public static final int MAX_NODES = 4096;
+
+	/* note the static keyword (just like the
+	 * scheduler in the Vehicle class) */
+
+	@Setter @Getter private static volatile DistanceMatrix current;
+
+	@Getter private final int size;
+	@Getter private final boolean packed;
+	private final int depotX;
+	private final int depotY;
+	private final double[] distances;
+
+	/* the locations of the nodes - the requests are matched
+	 * with the matrix by the identity of their locations (shared
+	 * by the copies of a request) so that a request of another
+	 * instance with the same index isn't mistaken for ours */
+
+	private final Location[] locations;
+
+	public DistanceMatrix(Location depot, List<Request> requests)
+			throws IllegalArgumentException {
+
+		this(depot, requests, true);
+	}
+
+	public DistanceMatrix(Location depot, List<Request> requests, boolean packed)
+			throws IllegalArgumentException {
+
+		if (requests.size() + 1 > MAX_NODES) {
+			throw new IllegalArgumentException("Too many requests to build "
+					+ "the distance matrix: " + requests.size());
+		}
+
+		this.size = requests.size() + 1;
+		this.packed = packed;
+		this.depotX = depot.getX();
+		this.depotY = depot.getY();
+		this.locations = new Location[size];
+
+		locations[0] = depot;
+
+		for (Request r : requests) {
+			int index = r.getIndex();
+
+			if (index < 0 || index >= requests.size()
+					|| locations[index + 1] != null) {
+				throw new IllegalArgumentException("Requests must be densely indexed "
+						+ "(invalid index of the request with id: " + r.getId() + ")");
+			}
+
+			locations[index + 1] = r.getLocation();
+		}
+
+		this.distances = new double[packed
+		                            ? size * (size - 1) / 2
+		                            : size * size];
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				double distance = Location.calculateDistance(locations[i], locations[j]);
+
+				if (packed) {
+					distances[packedPosition(i, j)] = distance;
+				} else {
+					distances[i * size + j] = distance;
+					distances[j * size + i] = distance;
+				}
+			}
+		}
+	}
+
+	/* builds the matrix for the loaded requests; if the
+	 * instance is too big null is returned and the
+	 * distances are calculated on the fly */
+
+	public static DistanceMatrix create(Location depot, List<Request> requests) {
+		DistanceMatrix matrix = null;
+
+		if (requests.size() + 1 <= MAX_NODES) {
+			matrix = new DistanceMatrix(depot, requests);
+		} else {
+			LoggingUtils.warn("Distance matrix disabled ("
+					+ requests.size() + " requests)");
+		}
+
+		return matrix;
+	}
+
+	/* position of the (i, j) element, i < j, in the upper
+	 * triangle stored row by row without the diagonal */
+
+	private int packedPosition(int i, int j) {
+		return i * (2 * size - i - 1) / 2 + (j - i - 1);
+	}
+
+	public double getDistance(int from, int to) {
+		if (!packed) {
+			return distances[from * size + to];
+		}
+
+		if (from == to) {
+			return 0;
+		}
+
+		return (from < to)
+				? distances[packedPosition(from, to)]
+				: distances[packedPosition(to, from)];
+	}
+
+	public boolean contains(Request request) {
+		int index = request.getIndex();
+
+		return index >= 0 && index + 1 < size
+				&& locations[index + 1] == request.getLocation();
+	}
+
+	public boolean isDepot(Location location) {
+		return location.getX() == depotX
+				&& location.getY() == depotY;
+	}
+
+	/* distance between two requests; falls back to
+	 * the Location.calculateDistance() if any of them
+	 * is not covered by the current matrix */
+
+	public static double calculateDistance(Request r1, Request r2) {
+		DistanceMatrix matrix = current;
+
+		if (matrix != null
+				&& matrix.contains(r1)
+				&& matrix.contains(r2)) {
+
+			return matrix.getDistance(r1.getIndex() + 1, r2.getIndex() + 1);
+		}
+
+		return Location.calculateDistance(r1.getLocation(), r2.getLocation());
+	}
+
+	/* distance between a location (usually the start
+	 * location of a vehicle) and a request */
+
+	public static double calculateDistance(Location location, Request request) {
+		DistanceMatrix matrix = current;
+
+		if (matrix != null
+				&& matrix.contains(request)
+				&& matrix.isDepot(location)) {
+
+			return matrix.getDistance(0, request.getIndex() + 1);
+		}
+
+		return Location.calculateDistance(location, request.getLocation());
+	}
+}
@@ -0,0 +1,119 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Records insertions and removals of request pairs
+ * performed on vehicles so that they can be reverted
+ * without copying the routes.
+ *
+ * Undoing k moves costs k insertions / removals
+ * (the moves are reverted in the reverse order).
+ * Apart from the positions we also store the realization
+ * times which are not recomputed by the scheduler
+ * (the inserted / removed requests and the first
+ * request of the route) so that the original schedule
+ * is restored exactly. */
+
+public class MoveJournal {
+
+	public enum MoveType {
+		INSERTION, REMOVAL
+	}
+
+	@Getter
+	@AllArgsConstructor
+
+	public static final class Move {
+		private final MoveType type;
+		private final Vehicle vehicle;
+		private final PickupRequest pickup;
+		private final int pickupPosition;
+		private final int deliveryPosition;
+		private final int pickupRealizationTime;
+		private final int deliveryRealizationTime;
+		private final Request first;
+		private final int firstRealizationTime;
+	}
+
+	private final List<Move> moves = new ArrayList<>();
+
+	public void insertRequest(Vehicle vehicle, PickupRequest pickup,
+			int pickupPosition, int deliveryPosition) {
+
+		Move move = createMove(MoveType.INSERTION, vehicle, pickup,
+				pickupPosition, deliveryPosition);
+		vehicle.insertRequest(pickup, pickupPosition, deliveryPosition);
+		moves.add(move);
+	}
+
+	public PickupRequest removeRequest(Vehicle vehicle,
+			int pickupPosition, int deliveryPosition) {
+
+		PickupRequest pickup = (PickupRequest)
+				vehicle.getRoute().getRequests().get(pickupPosition);
+		Move move = createMove(MoveType.REMOVAL, vehicle, pickup,
+				pickupPosition, deliveryPosition);
+		vehicle.removeRequest(pickupPosition, deliveryPosition);
+		moves.add(move);
+
+		return pickup;
+	}
+
+	private Move createMove(MoveType type, Vehicle vehicle, PickupRequest pickup,
+			int pickupPosition, int deliveryPosition) {
+
+		List<Request> requests = vehicle.getRoute().getRequests();
+		Request first = (requests.size() > 0) ? requests.get(0) : null;
+
+		return new Move(type, vehicle, pickup, pickupPosition, deliveryPosition,
+				pickup.getRealizationTime(),
+				pickup.getSibling().getRealizationTime(),
+				first,
+				(first != null) ? first.getRealizationTime() : 0);
+	}
+
+	/* number of the recorded moves; can be
+	 * passed to undoTo() to revert only
+	 * the moves performed afterwards */
+
+	public int size() {
+		return moves.size();
+	}
+
+	public List<Move> getMoves() {
+		return Collections.unmodifiableList(moves);
+	}
+
+	public void undo() {
+		undoTo(0);
+	}
+
+	public void undoTo(int size) {
+		while (moves.size() > size) {
+			Move move = moves.remove(moves.size() - 1);
+			Vehicle vehicle = move.getVehicle();
+			PickupRequest pickup = move.getPickup();
+			Request delivery = pickup.getSibling();
+
+			if (move.getType() == MoveType.INSERTION) {
+				if (move.getFirst() != null) {
+					move.getFirst().setRealizationTime(move.getFirstRealizationTime());
+				}
+
+				vehicle.removeRequest(move.getPickupPosition(), move.getDeliveryPosition());
+				pickup.setRealizationTime(move.getPickupRealizationTime());
+				delivery.setRealizationTime(move.getDeliveryRealizationTime());
+			} else {
+				pickup.setRealizationTime(move.getPickupRealizationTime());
+				delivery.setRealizationTime(move.getDeliveryRealizationTime());
+				move.getFirst().setRealizationTime(move.getFirstRealizationTime());
+				vehicle.insertRequest(pickup, move.getPickupPosition(), move.getDeliveryPosition());
+			}
+		}
+	}
+}
@@ -16,6 +16,7 @@ public class PickupRequest extends Request {
 		copy.setRealizationTime(realizationTime);
 		copy.setArrivalTime(arrivalTime);
 		copy.setSibling(sibling);
+		copy.setIndex(index);
 		return copy;
 	}
 }
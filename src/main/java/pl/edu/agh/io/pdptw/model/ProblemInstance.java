@@ -0,0 +1,209 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/* Immutable, struct-of-arrays view of the loaded problem.
+ *
+ * Request ids are remapped to dense indices 0..n-1
+ * (the order of the requests list) and all the request
+ * parameters are stored in primitive arrays so that
+ * the algorithms can work on int indices instead of
+ * chasing Request objects and unboxing their fields.
+ *
+ * The index of each request is also saved in the
+ * Request object itself (Request.getIndex()) so both
+ * representations can be used interchangeably. */
+
+public final class ProblemInstance {
+	public static final int NO_SIBLING = -1;
+
+	/* note the static keyword (just like the
+	 * scheduler in the Vehicle class) */
+
+	@Setter @Getter private static volatile ProblemInstance current;
+
+	@Getter private final int size;
+	@Getter private final Location warehouseLocation;
+	@Getter private final List<Request> requests;
+	@Getter private final DistanceMatrix distanceMatrix;
+
+	private final int[] ids;
+	private final int[] x;
+	private final int[] y;
+	private final int[] volumes;
+	private final int[] timeWindowStarts;
+	private final int[] timeWindowEnds;
+	private final int[] serviceTimes;
+	private final int[] arrivalTimes;
+	private final int[] siblings;
+	private final boolean[] pickups;
+	private final Map<Integer, Integer> indicesForIds;
+
+	public ProblemInstance(Location warehouseLocation, List<Request> requests)
+			throws IllegalArgumentException {
+
+		this.size = requests.size();
+		this.warehouseLocation = warehouseLocation;
+		this.requests = Collections.unmodifiableList(new ArrayList<>(requests));
+		this.ids = new int[size];
+		this.x = new int[size];
+		this.y = new int[size];
+		this.volumes = new int[size];
+		this.timeWindowStarts = new int[size];
+		this.timeWindowEnds = new int[size];
+		this.serviceTimes = new int[size];
+		this.arrivalTimes = new int[size];
+		this.siblings = new int[size];
+		this.pickups = new boolean[size];
+		this.indicesForIds = new HashMap<>(size * 2);
+
+		/* assign dense indices first so that
+		 * we can resolve the siblings afterwards */
+
+		for (int i = 0; i < size; i++) {
+			Request r = requests.get(i);
+
+			if (indicesForIds.put(r.getId(), i) != null) {
+				throw new IllegalArgumentException("Duplicated request id: " + r.getId());
+			}
+
+			r.setIndex(i);
+		}
+
+		for (int i = 0; i < size; i++) {
+			Request r = requests.get(i);
+			Request sibling = r.getSibling();
+
+			ids[i] = r.getId();
+			x[i] = r.getLocation().getX();
+			y[i] = r.getLocation().getY();
+			volumes[i] = r.getVolume();
+			timeWindowStarts[i] = r.getTimeWindowStart();
+			timeWindowEnds[i] = r.getTimeWindowEnd();
+			serviceTimes[i] = r.getServiceTime();
+			arrivalTimes[i] = r.getArrivalTime();
+			pickups[i] = (r.getType() == RequestType.PICKUP);
+			siblings[i] = (sibling != null && indicesForIds.containsKey(sibling.getId()))
+					? indicesForIds.get(sibling.getId())
+					: NO_SIBLING;
+		}
+
+		this.distanceMatrix = DistanceMatrix.create(warehouseLocation, requests);
+	}
+
+	/* makes the instance (and its distance matrix)
+	 * the one used by the scheduler, the objectives
+	 * and the other algorithms; the optimizations using
+	 * the previous one must be finished by then */
+
+	public static void install(ProblemInstance instance) {
+		current = instance;
+		DistanceMatrix.setCurrent((instance != null)
+				? instance.getDistanceMatrix()
+				: null);
+	}
+
+	public int getIndex(int id) throws IllegalArgumentException {
+		Integer index = indicesForIds.get(id);
+
+		if (index == null) {
+			throw new IllegalArgumentException("Unknown request id: " + id);
+		}
+
+		return index;
+	}
+
+	/* the copies of a request share its location so
+	 * the location identifies the instance it comes from
+	 * (see DistanceMatrix.contains()) */
+
+	public boolean contains(Request request) {
+		int index = request.getIndex();
+
+		return index >= 0 && index < size
+				&& ids[index] == request.getId()
+				&& requests.get(index).getLocation() == request.getLocation();
+	}
+
+	public Request getRequest(int index) {
+		return requests.get(index);
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public int getX(int index) {
+		return x[index];
+	}
+
+	public int getY(int index) {
+		return y[index];
+	}
+
+	public int getVolume(int index) {
+		return volumes[index];
+	}
+
+	public int getTimeWindowStart(int index) {
+		return timeWindowStarts[index];
+	}
+
+	public int getTimeWindowEnd(int index) {
+		return timeWindowEnds[index];
+	}
+
+	public int getServiceTime(int index) {
+		return serviceTimes[index];
+	}
+
+	public int getArrivalTime(int index) {
+		return arrivalTimes[index];
+	}
+
+	public int getSibling(int index) {
+		return siblings[index];
+	}
+
+	public boolean isPickup(int index) {
+		return pickups[index];
+	}
+
+	public RequestType getType(int index) {
+		return pickups[index]
+				? RequestType.PICKUP
+				: RequestType.DELIVERY;
+	}
+
+	/* distance between two requests given by their
+	 * indices (uses the matrix if it was built) */
+
+	public double getDistance(int from, int to) {
+		if (distanceMatrix != null) {
+			return distanceMatrix.getDistance(from + 1, to + 1);
+		}
+
+		double xDiff = x[from] - x[to];
+		double yDiff = y[from] - y[to];
+
+		return Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+	}
+
+	public double getDistanceFromWarehouse(int index) {
+		if (distanceMatrix != null) {
+			return distanceMatrix.getDistance(0, index + 1);
+		}
+
+		double xDiff = x[index] - warehouseLocation.getX();
+		double yDiff = y[index] - warehouseLocation.getY();
+
+		return Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+	}
+}
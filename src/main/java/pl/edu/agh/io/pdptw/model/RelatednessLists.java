@@ -0,0 +1,250 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import lombok.Getter;
+
+/* For each pickup request of the problem instance
+ * keeps the k pickups most related to it (sorted, the
+ * most related first) so that the algorithms looking
+ * for related requests (e.g. the Shaw removal) don't have
+ * to scan all the pairs of requests every time. The lists
+ * may also be built for all the requests (pickups and
+ * deliveries), e.g. the nearest neighbours used by the
+ * granular insertion.
+ *
+ * The requests are identified by their indices
+ * (see ProblemInstance); the lists are built once
+ * in O(n^2 log k) time (O(n k log n) for the nearest
+ * requests, see createNearest()). */
+
+public final class RelatednessLists {
+
+	/* the lower the value, the more related the requests */
+
+	@FunctionalInterface
+	public interface Relatedness {
+		double calculate(int first, int second);
+	}
+
+	@Getter private final ProblemInstance instance;
+	@Getter private final int k;
+	@Getter private final boolean pickupsOnly;
+	private final int[][] related;
+
+	/* the same lists sorted by the indices (for isRelated())
+	 * and the positions of their elements in the related lists */
+
+	private final int[][] sortedRelated;
+	private final int[][] ranks;
+
+	public RelatednessLists(ProblemInstance instance, int k, Relatedness relatedness) {
+		this(instance, k, relatedness, true);
+	}
+
+	public RelatednessLists(ProblemInstance instance, int k,
+			Relatedness relatedness, boolean pickupsOnly) {
+
+		this(instance, k, pickupsOnly, new int[instance.getSize()][]);
+
+		for (int i = 0; i < instance.getSize(); i++) {
+			if (!pickupsOnly || instance.isPickup(i)) {
+				related[i] = findMostRelated(i, relatedness);
+			}
+		}
+
+		sortRelated();
+	}
+
+	private RelatednessLists(ProblemInstance instance, int k,
+			boolean pickupsOnly, int[][] related) {
+
+		this.instance = instance;
+		this.k = k;
+		this.pickupsOnly = pickupsOnly;
+		this.related = related;
+		this.sortedRelated = new int[instance.getSize()][];
+		this.ranks = new int[instance.getSize()][];
+	}
+
+	/* the lists of the k requests (pickups and deliveries)
+	 * nearest to each request, found with the k-d tree
+	 * of the SpatialIndex */
+
+	public static RelatednessLists createNearest(ProblemInstance instance, int k) {
+		List<Request> requests = instance.getRequests();
+		SpatialIndex<Request> index = new SpatialIndex<>(requests, 
+				Request::getLocation, instance.getWarehouseLocation());
+		RelatednessLists lists = new RelatednessLists(instance, k, false, 
+				new int[instance.getSize()][]);
+
+		for (int i = 0; i < instance.getSize(); i++) {
+			Request request = requests.get(i);
+			int[] nearest = new int[Math.min(k, instance.getSize() - 1)];
+			int found = 0;
+
+			/* the request itself is (one of) the nearest ones */
+
+			for (Request r : index.findNearest(request.getLocation(), k + 1)) {
+				if (r != request && found < nearest.length) {
+					nearest[found++] = r.getIndex();
+				}
+			}
+
+			lists.related[i] = nearest;
+		}
+
+		lists.sortRelated();
+
+		return lists;
+	}
+
+	private void sortRelated() {
+		for (int i = 0; i < related.length; i++) {
+			if (related[i] != null) {
+				int[] order = related[i];
+				Integer[] positions = new Integer[order.length];
+
+				for (int p = 0; p < order.length; p++) {
+					positions[p] = p;
+				}
+
+				Arrays.sort(positions, (p1, p2) -> Integer.compare(order[p1], order[p2]));
+				sortedRelated[i] = new int[order.length];
+				ranks[i] = new int[order.length];
+
+				for (int p = 0; p < order.length; p++) {
+					sortedRelated[i][p] = order[positions[p]];
+					ranks[i][p] = positions[p];
+				}
+			}
+		}
+	}
+
+	/* indices of the requests most related to the given
+	 * one (the most related first); null for the deliveries
+	 * if the lists are built only for the pickups */
+
+	public int[] getRelated(int index) {
+		return related[index];
+	}
+
+	/* O(log k) */
+
+	public boolean isRelated(int index, int other) {
+		return getRank(index, other) >= 0;
+	}
+
+	/* position of the other request in the list of the requests
+	 * related to the given one (0 - the most related), -1 if it's
+	 * not there; O(log k) */
+
+	public int getRank(int index, int other) {
+		int position = (sortedRelated[index] != null)
+				? Arrays.binarySearch(sortedRelated[index], other)
+				: -1;
+
+		return (position >= 0) ? ranks[index][position] : -1;
+	}
+
+	private int[] findMostRelated(int index, Relatedness relatedness) {
+		final int size = instance.getSize();
+
+		/* the head of the queue is the least related
+		 * of the k pickups found so far */
+
+		PriorityQueue<double[]> found = new PriorityQueue<>(k + 1,
+				(r1, r2) -> Double.compare(r2[0], r1[0]));
+
+		for (int j = 0; j < size; j++) {
+			if (j != index && (!pickupsOnly || instance.isPickup(j))) {
+				double value = relatedness.calculate(index, j);
+
+				if (found.size() < k) {
+					found.add(new double[] { value, j });
+				} else if (k > 0 && value < found.peek()[0]) {
+					found.poll();
+					found.add(new double[] { value, j });
+				}
+			}
+		}
+
+		int[] result = new int[found.size()];
+
+		for (int i = result.length - 1; i >= 0; i--) {
+			result[i] = (int) found.poll()[1];
+		}
+
+		return result;
+	}
+
+	/* relatedness of two pickup requests (together with their
+	 * deliveries) as defined by Ropke and Pisinger for the PDPTW:
+	 * the weighted sum of the distances between the pickups and
+	 * between the deliveries, the differences of the time window
+	 * starts and the difference of the loads; each of the terms
+	 * is normalized by its (approximate) maximum */
+
+	public static Relatedness createShawRelatedness(ProblemInstance instance) {
+		final double DISTANCE_WEIGHT = 9;
+		final double TIME_WEIGHT = 3;
+		final double LOAD_WEIGHT = 2;
+		final Ranges ranges = new Ranges(instance);
+
+		return (first, second) -> {
+			int firstDelivery = instance.getSibling(first);
+			int secondDelivery = instance.getSibling(second);
+			double distance = instance.getDistance(first, second);
+			double timeDifference = Math.abs(instance.getTimeWindowStart(first)
+					- instance.getTimeWindowStart(second));
+
+			if (firstDelivery != ProblemInstance.NO_SIBLING
+					&& secondDelivery != ProblemInstance.NO_SIBLING) {
+				distance += instance.getDistance(firstDelivery, secondDelivery);
+				timeDifference += Math.abs(instance.getTimeWindowStart(firstDelivery)
+						- instance.getTimeWindowStart(secondDelivery));
+			}
+
+			return DISTANCE_WEIGHT * distance / ranges.maxDistance
+					+ TIME_WEIGHT * timeDifference / ranges.horizon
+					+ LOAD_WEIGHT * Math.abs(instance.getVolume(first) - instance.getVolume(second)) / ranges.maxLoad;
+		};
+	}
+
+	/* (approximate) maximal values of the relatedness terms */
+
+	private static final class Ranges {
+		private final double maxDistance;
+		private final double horizon;
+		private final double maxLoad;
+
+		private Ranges(ProblemInstance instance) {
+			int minX = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE;
+			int minY = Integer.MAX_VALUE;
+			int maxY = Integer.MIN_VALUE;
+			int minTime = Integer.MAX_VALUE;
+			int maxTime = Integer.MIN_VALUE;
+			int maxLoad = 0;
+
+			for (int i = 0; i < instance.getSize(); i++) {
+				minX = Math.min(minX, instance.getX(i));
+				maxX = Math.max(maxX, instance.getX(i));
+				minY = Math.min(minY, instance.getY(i));
+				maxY = Math.max(maxY, instance.getY(i));
+				minTime = Math.min(minTime, instance.getTimeWindowStart(i));
+				maxTime = Math.max(maxTime, instance.getTimeWindowEnd(i));
+				maxLoad = Math.max(maxLoad, Math.abs(instance.getVolume(i)));
+			}
+
+			/* the diagonal of the bounding box is an upper
+			 * bound of the distance between any two requests */
+
+			this.maxDistance = Math.max(1, Math.hypot(maxX - minX, maxY - minY));
+			this.horizon = Math.max(1, maxTime - minTime);
+			this.maxLoad = Math.max(1, maxLoad);
+		}
+	}
+}
@@ -16,6 +16,7 @@ import lombok.EqualsAndHashCode;
  * with a cyclical toString() calls. */
 
 public abstract class Request {
+	public static final int UNINDEXED = -1;
 	
 	/* Time window parameters explanation:
 	 * @timeWindowStart - earliest possible request realization time
@@ -36,6 +37,14 @@ public abstract class Request {
 	protected Integer realizationTime;
 	protected Integer arrivalTime;
 	protected Request sibling;
+	
+	/* dense index of the request within the loaded
+	 * problem instance (UNINDEXED for requests which
+	 * were not read from the requests file, e.g. the
+	 * ones created by hand in tests); it is used to look up
+	 * precomputed data such as the distance matrix */
+	
+	protected int index;
     
     /* It is necessary not to make setter method
     for TYPE member available from this abstract 
@@ -67,6 +76,7 @@ public abstract class Request {
 		this.arrivalTime = 0;
 		this.realizationTime = timeWindowStart;
 		this.type = type;
+		this.index = UNINDEXED;
 	}
 	
 	public void setSibling(Request request) throws IllegalArgumentException {
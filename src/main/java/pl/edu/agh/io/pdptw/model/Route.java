@@ -1,19 +1,56 @@
 package pl.edu.agh.io.pdptw.model;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 @Getter
-@EqualsAndHashCode
+@EqualsAndHashCode(exclude = {"schedule", "hash", "modificationNo", "hashedModificationNo"})
 
 public class Route {
+	
+	/* source of the modification numbers, shared by all
+	 * the routes so that two copies of a route modified
+	 * in different ways never end up with the same number */
+	
+	private static final AtomicLong MODIFICATIONS = new AtomicLong();
+	
+	/* the requests must be modified only by addRequest()
+	 * and removeRequest(), a change of their realization
+	 * times must be followed by invalidateSchedule() */
+	
 	private List<Request> requests;
 	
+	/* changes on every modification of the route,
+	 * the data cached for the route is valid as long
+	 * as the number it was computed for is the current one */
+	
+	private long modificationNo = MODIFICATIONS.incrementAndGet();
+	
+	/* lazily built cache used to check the feasibility
+	 * of insertions (see RouteSchedule); it has to be
+	 * invalidated whenever the requests or their
+	 * realization times change */
+	
+	@Getter(AccessLevel.NONE)
+	private volatile RouteSchedule schedule;
+	
+	/* cached structural hash (see SolutionHash); it's updated
+	 * incrementally by addRequest() and removeRequest(),
+	 * hashedModificationNo is equal to -1 if it hasn't been calculated */
+	
+	@Getter(AccessLevel.NONE)
+	private long hash;
+	@Getter(AccessLevel.NONE)
+	private long hashedModificationNo = -1;
+	
 	public Route(List<Request> requests) {
 		super();
 
@@ -30,25 +67,105 @@ public class Route {
 				+ "]";
 	}
 	
+	RouteSchedule getSchedule(int maxCapacity) {
+		RouteSchedule cached = schedule;
+		
+		if (cached == null || !cached.isValidFor(modificationNo, maxCapacity)) {
+			cached = new RouteSchedule(requests, modificationNo, maxCapacity);
+			schedule = cached;
+		}
+		
+		return cached;
+	}
+	
+	/* the realization times don't affect the hash
+	 * so it remains valid */
+	
+	public void invalidateSchedule() {
+		schedule = null;
+		modified(hashedModificationNo == modificationNo);
+	}
+	
+	public long getHash() {
+		if (hashedModificationNo != modificationNo) {
+			hash = SolutionHash.calculate(requests);
+			hashedModificationNo = modificationNo;
+		}
+		
+		return hash;
+	}
+	
+	public void addRequest(int position, Request request) {
+		boolean hashed = (hashedModificationNo == modificationNo);
+		requests.add(position, request);
+		
+		if (hashed) {
+			hash ^= SolutionHash.calculateDelta(
+					getRequest(position - 1), request, getRequest(position + 1));
+		}
+		
+		modified(hashed);
+	}
+	
+	public Request removeRequest(int position) {
+		boolean hashed = (hashedModificationNo == modificationNo);
+		
+		if (hashed) {
+			hash ^= SolutionHash.calculateDelta(getRequest(position - 1), 
+					requests.get(position), getRequest(position + 1));
+		}
+		
+		Request removed = requests.remove(position);
+		modified(hashed);
+		
+		return removed;
+	}
+	
+	private void modified(boolean hashed) {
+		modificationNo = MODIFICATIONS.incrementAndGet();
+		
+		if (hashed) {
+			hashedModificationNo = modificationNo;
+		}
+	}
+	
+	/* null for positions outside the route
+	 * (i.e. the vehicle's start location) */
+	
+	private Request getRequest(int position) {
+		return (position >= 0 && position < requests.size())
+				? requests.get(position)
+				: null;
+	}
+	
+	/* copies the requests in a single pass; a copy waits
+	 * in the map only until the copy of its sibling is created;
+	 * the copy is equal to the route so it keeps its
+	 * modification number (and hash) until it's modified */
+	
 	public Route copy() {
-		Map<Integer, Request> requestsForIds = new HashMap<>();
-		List<Request> requestsCopies = requests.stream()
-				.map(r -> r.createShallowCopy())
-				.collect(Collectors.toList());
-		
-		requestsCopies.stream()
-				.filter(r -> r.getType() == RequestType.PICKUP)
-				.collect(Collectors.toList())
-				.forEach(p -> requestsForIds.put(p.getId(), p));
-		
-		requestsCopies.stream()
-				.filter(r -> r.getType() == RequestType.DELIVERY)
-				.collect(Collectors.toList())
-				.forEach(d -> {
-					Request p = requestsForIds.get(d.getSibling().getId());
-					d.setSibling(p);
-					p.setSibling(d);
-				});
-		return new Route(requestsCopies);
+		Map<Integer, Request> unpairedCopies = new HashMap<>();
+		List<Request> requestsCopies = new ArrayList<>(requests.size());
+		
+		for (Request r : requests) {
+			Request copy = r.createShallowCopy();
+			Request siblingCopy = unpairedCopies.remove(r.getSibling().getId());
+			
+			if (siblingCopy != null) {
+				copy.setSibling(siblingCopy);
+				siblingCopy.setSibling(copy);
+			} else {
+				unpairedCopies.put(r.getId(), copy);
+			}
+			
+			requestsCopies.add(copy);
+		}
+		
+		Route copy = new Route(requestsCopies);
+		copy.modificationNo = modificationNo;
+		copy.hash = hash;
+		copy.hashedModificationNo = hashedModificationNo;
+		
+		return copy;
 	}
 }
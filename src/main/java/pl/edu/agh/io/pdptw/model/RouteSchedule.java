@@ -0,0 +1,410 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.List;
+
+/* Cached schedule data of a route which allows to check
+ * the feasibility of a pickup - delivery insertion
+ * in constant time without touching the Request objects.
+ *
+ * It mirrors the drive-first policy: the realization
+ * of a request starts as soon as the vehicle arrives
+ * (but not before the time window start), the travel
+ * time is equal to the truncated distance.
+ *
+ * For each position k on the route we store:
+ * - earliest: the realization time obtained by
+ * propagating the drive-first rule from the first request
+ * - waitingTimes: total waiting time on the route up to k
+ * (the push forward of the realization time shrinks
+ * by the waiting times it meets on the way)
+ * - latest: the latest realization time of the k-th request
+ * such that all the requests from k on remain feasible
+ * - loads: the vehicle's load after serving the k-th request
+ *
+ * The conditions that have to hold for the whole
+ * segment between the pickup and the delivery
+ * are answered by sparse tables (range min/max queries). */
+
+final class RouteSchedule {
+	private static final int INFEASIBLE = Integer.MIN_VALUE;
+
+	private final long modificationNo;
+	private final Request[] nodes;
+	private final int size;
+	private final int maxCapacity;
+	private final int[] realizationTimes;
+	private final int[] serviceTimes;
+	private final int[] timeWindowStarts;
+	private final int[] timeWindowEnds;
+	private final int[] earliest;
+	private final int[] latest;
+	private final int[] waitingTimes;
+	private final int[] loads;
+
+	/* lateBefore[k] - number of requests before the position k
+	 * whose earliest realization time exceeds the time window end */
+
+	private final int[] lateBefore;
+
+	/* minRealizationFrom[k] - the least realization time
+	 * of the requests on the positions k, k + 1, ... */
+
+	private final int[] minRealizationFrom;
+	private final int firstOverloaded;
+	private final int lastOverloaded;
+
+	/* slack[k] = timeWindowEnd[k] - earliest[k] + waitingTimes[k] */
+
+	private final int[][] minSlack;
+	private final int[][] maxLoad;
+
+	RouteSchedule(List<Request> requests, long modificationNo, int maxCapacity) {
+		this.modificationNo = modificationNo;
+		this.nodes = requests.toArray(new Request[requests.size()]);
+		this.size = nodes.length;
+		this.maxCapacity = maxCapacity;
+		this.realizationTimes = new int[size];
+		this.serviceTimes = new int[size];
+		this.timeWindowStarts = new int[size];
+		this.timeWindowEnds = new int[size];
+		this.earliest = new int[size];
+		this.latest = new int[size];
+		this.waitingTimes = new int[size];
+		this.loads = new int[size];
+		this.lateBefore = new int[size + 1];
+		this.minRealizationFrom = new int[size];
+
+		int[] travelTimes = new int[size];
+		int[] slack = new int[size];
+		int first = size;
+		int last = -1;
+		int k = 0;
+		Request prev = null;
+
+		for (Request r : nodes) {
+			realizationTimes[k] = r.getRealizationTime();
+			serviceTimes[k] = r.getServiceTime();
+			timeWindowStarts[k] = r.getTimeWindowStart();
+			timeWindowEnds[k] = r.getTimeWindowEnd();
+			loads[k] = r.getVolume() + ((k > 0) ? loads[k - 1] : 0);
+
+			if (prev == null) {
+				earliest[k] = realizationTimes[k];
+			} else {
+				travelTimes[k - 1] = travelTime(prev, r);
+
+				int arrival = earliest[k - 1] + serviceTimes[k - 1] + travelTimes[k - 1];
+				earliest[k] = Math.max(timeWindowStarts[k], arrival);
+				waitingTimes[k] = waitingTimes[k - 1] + (earliest[k] - arrival);
+			}
+
+			lateBefore[k + 1] = lateBefore[k]
+					+ ((earliest[k] > timeWindowEnds[k]) ? 1 : 0);
+			slack[k] = timeWindowEnds[k] - earliest[k] + waitingTimes[k];
+
+			if (loads[k] > maxCapacity) {
+				first = Math.min(first, k);
+				last = k;
+			}
+
+			prev = r;
+			k++;
+		}
+
+		for (k = size - 1; k >= 0; k--) {
+			minRealizationFrom[k] = (k == size - 1)
+					? realizationTimes[k]
+					: Math.min(realizationTimes[k], minRealizationFrom[k + 1]);
+
+			if (k == size - 1) {
+				latest[k] = timeWindowEnds[k];
+			} else if (latest[k + 1] == INFEASIBLE
+					|| timeWindowStarts[k + 1] > latest[k + 1]) {
+				latest[k] = INFEASIBLE;
+			} else {
+				latest[k] = Math.min(timeWindowEnds[k],
+						latest[k + 1] - serviceTimes[k] - travelTimes[k]);
+			}
+		}
+
+		this.minSlack = buildSparseTable(slack, true);
+		this.maxLoad = buildSparseTable(loads, false);
+		this.firstOverloaded = first;
+		this.lastOverloaded = last;
+	}
+
+	/* see Route.getModificationNo() */
+
+	boolean isValidFor(long modificationNo, int maxCapacity) {
+		return this.modificationNo == modificationNo
+				&& this.maxCapacity == maxCapacity;
+	}
+
+	/* positions follow the convention used by Vehicle.insertRequest():
+	 * the pickup is placed at pickupPosition and the delivery
+	 * at deliveryPosition of the route containing the pickup
+	 * (so deliveryPosition - 1 requests of the original
+	 * route are visited before the delivery) */
+
+	boolean isInsertionPossible(PickupRequest pickup, int pickupPosition,
+			int deliveryPosition, Location startLocation) {
+
+		Request delivery = pickup.getSibling();
+		int segmentEnd = deliveryPosition - 2;
+		boolean segmentEmpty = segmentEnd < pickupPosition;
+
+		/* capacity: the original loads before the pickup and
+		 * after the delivery, the increased ones in between */
+
+		if (firstOverloaded < pickupPosition
+				|| lastOverloaded > segmentEnd) {
+			return false;
+		}
+
+		int load = (pickupPosition > 0) ? loads[pickupPosition - 1] : 0;
+
+		if (!segmentEmpty) {
+			load = Math.max(load, query(maxLoad, pickupPosition, segmentEnd, false));
+		}
+
+		if (load + pickup.getVolume() > maxCapacity) {
+			return false;
+		}
+
+		/* time windows */
+
+		int pickupTime;
+
+		if (pickupPosition > 0) {
+			int prev = pickupPosition - 1;
+			pickupTime = Math.max(pickup.getTimeWindowStart(),
+					realizationTimes[prev] + serviceTimes[prev]
+					+ travelTime(nodes[prev], pickup));
+		} else {
+			pickupTime = Math.max(pickup.getRealizationTime(),
+					(int) DistanceMatrix.calculateDistance(startLocation, pickup));
+		}
+
+		if (pickupTime > pickup.getTimeWindowEnd()) {
+			return false;
+		}
+
+		Request prev = pickup;
+		int prevTime = pickupTime;
+		int prevServiceTime = pickup.getServiceTime();
+
+		if (!segmentEmpty) {
+			Request first = nodes[pickupPosition];
+			int firstTime = Math.max(timeWindowStarts[pickupPosition],
+					pickupTime + prevServiceTime + travelTime(pickup, first));
+			int pushForward = firstTime - earliest[pickupPosition];
+
+			if (pushForward >= 0) {
+				if (lateBefore[segmentEnd + 1] - lateBefore[pickupPosition] > 0
+						|| query(minSlack, pickupPosition, segmentEnd, true)
+							< pushForward + waitingTimes[pickupPosition]) {
+					return false;
+				}
+
+				prevTime = earliest[segmentEnd] + Math.max(0, pushForward
+						- (waitingTimes[segmentEnd] - waitingTimes[pickupPosition]));
+			} else {
+
+				/* the insertion made the following requests
+				 * start earlier (it may happen due to the truncation
+				 * of the travel times); it's rare so we simply
+				 * propagate the change */
+
+				prevTime = firstTime;
+
+				for (int k = pickupPosition; k <= segmentEnd; k++) {
+					if (k > pickupPosition) {
+						prevTime = Math.max(timeWindowStarts[k],
+								prevTime + serviceTimes[k - 1]
+								+ travelTime(nodes[k - 1], nodes[k]));
+					}
+
+					if (prevTime > timeWindowEnds[k]) {
+						return false;
+					}
+				}
+			}
+
+			prev = nodes[segmentEnd];
+			prevServiceTime = serviceTimes[segmentEnd];
+		}
+
+		int deliveryTime = Math.max(delivery.getTimeWindowStart(),
+				prevTime + prevServiceTime + travelTime(prev, delivery));
+
+		if (deliveryTime > delivery.getTimeWindowEnd()) {
+			return false;
+		}
+
+		/* the rest of the route */
+
+		int next = deliveryPosition - 1;
+
+		if (next < size) {
+			int nextTime = Math.max(timeWindowStarts[next],
+					deliveryTime + delivery.getServiceTime()
+					+ travelTime(delivery, nodes[next]));
+
+			return latest[next] != INFEASIBLE
+					&& nextTime <= latest[next];
+		}
+
+		return true;
+	}
+
+	/* The bounds below allow to skip the positions which
+	 * can't be feasible without checking them one by one.
+	 * They rely on the conditions which, once violated, remain
+	 * violated for all the further positions: the realization
+	 * times and the load of the segment between the pickup
+	 * and the delivery can only grow as the segment grows.
+	 *
+	 * Returns the first pickup position such that
+	 * the insertion isn't possible for it and all the further
+	 * positions, O(log n) */
+
+	int findPickupPositionsEnd(PickupRequest pickup) {
+		int latestTime = Math.min(pickup.getTimeWindowEnd(),
+				pickup.getSibling().getTimeWindowEnd());
+
+		/* the pickup (and the delivery) can't be realized
+		 * before the request preceding the pickup */
+
+		int lo = 0;
+		int hi = size;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (minRealizationFrom[mid] > latestTime) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+
+		return Math.min(lo, firstOverloaded) + 1;
+	}
+
+	/* returns the first delivery position such that the insertion
+	 * (with the pickup on the given position) isn't possible for it
+	 * and all the further positions, O(log n) */
+
+	int findDeliveryPositionsEnd(PickupRequest pickup, int pickupPosition,
+			Location startLocation) {
+
+		Request delivery = pickup.getSibling();
+		int noDeliveryPositions = pickupPosition + 1;
+
+		if (firstOverloaded < pickupPosition
+				|| ((pickupPosition > 0) ? loads[pickupPosition - 1] : 0)
+					+ pickup.getVolume() > maxCapacity) {
+			return noDeliveryPositions;
+		}
+
+		int pickupTime;
+
+		if (pickupPosition > 0) {
+			int prev = pickupPosition - 1;
+			pickupTime = Math.max(pickup.getTimeWindowStart(),
+					realizationTimes[prev] + serviceTimes[prev]
+					+ travelTime(nodes[prev], pickup));
+		} else {
+			pickupTime = Math.max(pickup.getRealizationTime(),
+					(int) DistanceMatrix.calculateDistance(startLocation, pickup));
+		}
+
+		if (pickupTime > pickup.getTimeWindowEnd()) {
+			return noDeliveryPositions;
+		}
+
+		if (pickupPosition == size) {
+			return size + 2;
+		}
+
+		int firstTime = Math.max(timeWindowStarts[pickupPosition],
+				pickupTime + pickup.getServiceTime() + travelTime(pickup, nodes[pickupPosition]));
+		int pushForward = firstTime - earliest[pickupPosition];
+
+		/* see isInsertionPossible(), no pruning in this rare case */
+
+		if (pushForward < 0) {
+			return size + 2;
+		}
+
+		/* the last segment end (the position preceding
+		 * the delivery) for which the segment is feasible
+		 * and the delivery's time window isn't exceeded
+		 * by the time of the request preceding it */
+
+		int lo = pickupPosition - 1;
+		int hi = size - 1;
+
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+
+			if (isSegmentFeasible(pickup, pickupPosition, mid, pushForward, delivery)) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+
+		return lo + 3;
+	}
+
+	private boolean isSegmentFeasible(PickupRequest pickup, int pickupPosition, int segmentEnd,
+			int pushForward, Request delivery) {
+
+		return query(maxLoad, pickupPosition, segmentEnd, false) + pickup.getVolume() <= maxCapacity
+				&& lateBefore[segmentEnd + 1] - lateBefore[pickupPosition] == 0
+				&& query(minSlack, pickupPosition, segmentEnd, true)
+					>= pushForward + waitingTimes[pickupPosition]
+				&& earliest[segmentEnd] + Math.max(0, pushForward
+					- (waitingTimes[segmentEnd] - waitingTimes[pickupPosition]))
+					<= delivery.getTimeWindowEnd();
+	}
+
+	static int travelTime(Request from, Request to) {
+		return (int) DistanceMatrix.calculateDistance(from, to);
+	}
+
+	private static int[][] buildSparseTable(int[] values, boolean min) {
+		int levels = (values.length > 0)
+				? 32 - Integer.numberOfLeadingZeros(values.length)
+				: 1;
+		int[][] table = new int[levels][];
+		table[0] = values.clone();
+
+		for (int l = 1; l < levels; l++) {
+			int width = 1 << (l - 1);
+			int[] prev = table[l - 1];
+			int[] cur = new int[values.length - (1 << l) + 1];
+
+			for (int i = 0; i < cur.length; i++) {
+				cur[i] = min
+						? Math.min(prev[i], prev[i + width])
+						: Math.max(prev[i], prev[i + width]);
+			}
+
+			table[l] = cur;
+		}
+
+		return table;
+	}
+
+	/* min/max of the values on the positions [from, to] */
+
+	private static int query(int[][] table, int from, int to, boolean min) {
+		int l = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+		int a = table[l][from];
+		int b = table[l][to - (1 << l) + 1];
+
+		return min ? Math.min(a, b) : Math.max(a, b);
+	}
+}
@@ -1,16 +1,13 @@
 package pl.edu.agh.io.pdptw.model;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import lombok.Data;
-import lombok.EqualsAndHashCode;
-import lombok.ToString;
 import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
 
 @Data
-@ToString
-@EqualsAndHashCode
 
 public class Solution {
 	private List<Vehicle> vehicles;
@@ -37,6 +34,14 @@ public class Solution {
 				.collect(Collectors.toList());
 	}
 	
+	/* structural hash of the solution (see SolutionHash);
+	 * the hashes of the routes are cached so it costs
+	 * a single XOR per vehicle */
+	
+	public long getHash() {
+		return SolutionHash.calculate(this);
+	}
+	
 	public Solution copy() {
 		List<Vehicle> vehiclesCopies = vehicles.stream()
 				.map(v -> v.copy())
@@ -46,4 +51,42 @@ public class Solution {
 		
 		return copied;
 	}
+	
+	/* copy-on-write copy: the vehicles (with their routes
+	 * and requests) are shared by both solutions and copied
+	 * only when one of them asks for a vehicle to modify it;
+	 * shared vehicles must not be modified directly, use
+	 * getVehicleForUpdate() instead */
+	
+	public Solution createShallowCopy() {
+		Solution copied = new Solution(new ArrayList<>(vehicles));
+		copied.setObjectiveValue(objectiveValue);
+		vehicles.forEach(Vehicle::share);
+		
+		return copied;
+	}
+	
+	/* returns the vehicle at the given position which
+	 * can be safely modified: a shared vehicle is copied
+	 * and released, the last solution holding it (see
+	 * Vehicle.release()) modifies it in place */
+	
+	public Vehicle getVehicleForUpdate(int index) {
+		Vehicle vehicle = vehicles.get(index);
+		
+		if (vehicle.isShared()) {
+			
+			/* the copy must be made before the release,
+			 * the vehicle may be modified right afterwards */
+			
+			Vehicle copy = vehicle.copy();
+			
+			if (vehicle.release()) {
+				vehicles.set(index, copy);
+				vehicle = copy;
+			}
+		}
+		
+		return vehicle;
+	}
 }
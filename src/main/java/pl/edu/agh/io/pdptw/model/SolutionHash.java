@@ -0,0 +1,89 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.List;
+
+/* 64-bit Zobrist-like hash of the solution's structure.
+ *
+ * Each arc (from, to) between two consecutive stops of
+ * a route gets a pseudo-random 64-bit key; the start location
+ * of the vehicle is represented by the node 0 and the request
+ * by (id + 1). The hash of a route is the XOR of the keys of all
+ * its arcs (including the ones from and to the start location)
+ * and the hash of a solution is the XOR of the hashes of
+ * its routes, so:
+ * - it doesn't depend on the order of the vehicles
+ * - empty routes don't change it
+ * - inserting or removing a single request changes only three
+ * arcs and the hash can be updated in constant time
+ * (see Route.addRequest() and Route.removeRequest()).
+ *
+ * The keys are not stored anywhere - they are derived from
+ * the arc itself by the SplitMix64 finalizer, so they are
+ * the same for all the solutions (and all the runs). */
+
+public final class SolutionHash {
+	private static final int START_NODE = 0;
+
+	private SolutionHash() {
+	}
+
+	public static long getArcKey(int from, int to) {
+		long z = ((long) from << 32 | (to & 0xffffffffL)) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+
+	/* null stands for the start location */
+
+	static int getNode(Request request) {
+		return (request != null)
+				? request.getId() + 1
+				: START_NODE;
+	}
+
+	static long getArcKey(Request from, Request to) {
+		return getArcKey(getNode(from), getNode(to));
+	}
+
+	/* change of the hash caused by inserting (or removing, the XOR
+	 * is its own inverse) the request between prev and next;
+	 * note that an empty route has no arcs at all */
+
+	static long calculateDelta(Request prev, Request request, Request next) {
+		long delta = getArcKey(prev, request) ^ getArcKey(request, next);
+
+		if (prev != null || next != null) {
+			delta ^= getArcKey(prev, next);
+		}
+
+		return delta;
+	}
+
+	public static long calculate(List<Request> requests) {
+		long hash = 0;
+		Request prev = null;
+
+		if (requests.size() > 0) {
+			for (Request r : requests) {
+				hash ^= getArcKey(prev, r);
+				prev = r;
+			}
+
+			hash ^= getArcKey(prev, null);
+		}
+
+		return hash;
+	}
+
+	public static long calculate(Solution solution) {
+		long hash = 0;
+
+		for (Vehicle v : solution.getVehicles()) {
+			hash ^= v.getRoute().getHash();
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,412 @@
+package pl.edu.agh.io.pdptw.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/* Index of the items (requests, vehicles etc.) located
+ * on the plane. Supports:
+ *
+ * - the angular queries (the polar angle measured
+ *   from the given centre, e.g. the warehouse): the items
+ *   in an angle range, the items in the order of the
+ *   increasing angular distance from the given angle,
+ * - the radius and k-nearest queries (k-d tree).
+ *
+ * The items may be removed from the index (e.g. after
+ * being inserted into a route), the removed ones are
+ * skipped by all the queries. The angle order is kept
+ * in an array and the removed positions are skipped using
+ * the union-find "next alive" pointers, so the angular
+ * queries take O(log n + m) (amortized) time where m is
+ * the number of the returned items. The index is built
+ * in O(n log n) time. */
+
+public final class SpatialIndex<T> {
+	private final List<T> items;
+	private final Map<T, Integer> indicesForItems;
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] angles;
+	private int size;
+
+	/* byAngle - item indices sorted by the angle,
+	 * positions - position of each item in byAngle */
+
+	private final int[] byAngle;
+	private final int[] positions;
+
+	/* nextAlive[p] - (a path to) the first alive position >= p,
+	 * prevAlive[p + 1] - (a path to) the last alive position <= p;
+	 * the positions n and -1 are the sentinels */
+
+	private final int[] nextAlive;
+	private final int[] prevAlive;
+
+	/* item indices in the implicit k-d tree layout -
+	 * the root of the [lo, hi) range is in the middle */
+
+	private final int[] tree;
+
+	public SpatialIndex(List<T> items, Function<? super T, Location> locations, Location centre) {
+		int n = items.size();
+
+		this.items = new ArrayList<>(items);
+		this.indicesForItems = new IdentityHashMap<>(n * 2);
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.angles = new double[n];
+		this.size = n;
+
+		Integer[] sorted = new Integer[n];
+
+		for (int i = 0; i < n; i++) {
+			Location location = locations.apply(items.get(i));
+			xs[i] = location.getX();
+			ys[i] = location.getY();
+			angles[i] = Location.calculatePolarAngle(centre, location);
+			sorted[i] = i;
+
+			if (indicesForItems.put(items.get(i), i) != null) {
+				throw new IllegalArgumentException("Duplicated item: " + items.get(i));
+			}
+		}
+
+		/* the sort is stable so the items with
+		 * equal angles keep the order of the list */
+
+		Arrays.sort(sorted, (i1, i2) -> Double.compare(angles[i1], angles[i2]));
+		this.byAngle = new int[n];
+		this.positions = new int[n];
+		this.nextAlive = new int[n + 1];
+		this.prevAlive = new int[n + 1];
+
+		for (int p = 0; p < n; p++) {
+			byAngle[p] = sorted[p];
+			positions[sorted[p]] = p;
+		}
+
+		for (int p = 0; p <= n; p++) {
+			nextAlive[p] = p;
+			prevAlive[p] = p;
+		}
+
+		this.tree = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			tree[i] = i;
+		}
+
+		buildTree(0, n, 0);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(T item) {
+		Integer index = indicesForItems.get(item);
+
+		return index != null && isAlive(index);
+	}
+
+	/* returns false if the item hasn't been
+	 * indexed or it's already been removed */
+
+	public boolean remove(T item) {
+		Integer index = indicesForItems.get(item);
+
+		if (index == null || !isAlive(index)) {
+			return false;
+		}
+
+		int position = positions[index];
+		nextAlive[position] = position + 1;
+		prevAlive[position + 1] = position;
+		size--;
+
+		return true;
+	}
+
+	public double getAngle(T item) {
+		return angles[indicesForItems.get(item)];
+	}
+
+	/* the item with the least angle (null if the index is empty) */
+
+	public T first() {
+		int position = findNext(0);
+
+		return (position < byAngle.length)
+				? items.get(byAngle[position])
+				: null;
+	}
+
+	public List<T> getSortedByAngle() {
+		return findInAngleRange(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/* the items whose angles lie in [from, to], sorted by the angle */
+
+	public List<T> findInAngleRange(double from, double to) {
+		List<T> found = new ArrayList<>();
+
+		for (int p = findNext(lowerBound(from));
+				p < byAngle.length && angles[byAngle[p]] <= to;
+				p = findNext(p + 1)) {
+
+			found.add(items.get(byAngle[p]));
+		}
+
+		return found;
+	}
+
+	/* iterates over the items in the order of the increasing
+	 * |item angle - angle| (the angles aren't wrapped around, like
+	 * in the sweep algorithms); the items removed during the iteration
+	 * are skipped. O(log n) to start, amortized O(1) per item */
+
+	public Iterator<T> iterateByAngularDistance(double angle) {
+		return new Iterator<T>() {
+			private int right = lowerBound(angle);
+			private int left = right - 1;
+
+			@Override
+			public boolean hasNext() {
+				right = findNext(right);
+				left = findPrev(left);
+
+				return left >= 0 || right < byAngle.length;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				boolean takeLeft = (right >= byAngle.length)
+						|| (left >= 0 && angle - angles[byAngle[left]]
+								<= angles[byAngle[right]] - angle);
+
+				return (takeLeft)
+						? items.get(byAngle[left--])
+						: items.get(byAngle[right++]);
+			}
+		};
+	}
+
+	/* the items not further than the radius from the location */
+
+	public List<T> findInRadius(Location location, double radius) {
+		List<T> found = new ArrayList<>();
+		findInRadius(0, tree.length, 0, location.getX(), location.getY(), radius * radius, found);
+
+		return found;
+	}
+
+	/* k items nearest to the location, the nearest first */
+
+	public List<T> findNearest(Location location, int k) {
+
+		/* the head of the queue is the furthest
+		 * of the k items found so far */
+
+		PriorityQueue<double[]> found = new PriorityQueue<>(k + 1,
+				(r1, r2) -> Double.compare(r2[0], r1[0]));
+
+		if (k > 0) {
+			findNearest(0, tree.length, 0, location.getX(), location.getY(), k, found);
+		}
+
+		List<T> result = new ArrayList<>(found.size());
+
+		while (!found.isEmpty()) {
+			result.add(items.get((int) found.poll()[1]));
+		}
+
+		Collections.reverse(result);
+
+		return result;
+	}
+
+	private boolean isAlive(int index) {
+		return nextAlive[positions[index]] == positions[index];
+	}
+
+	/* the first alive position >= position */
+
+	private int findNext(int position) {
+		int root = position;
+
+		while (nextAlive[root] != root) {
+			root = nextAlive[root];
+		}
+
+		while (nextAlive[position] != root) {
+			int next = nextAlive[position];
+			nextAlive[position] = root;
+			position = next;
+		}
+
+		return root;
+	}
+
+	/* the last alive position <= position (-1 if there's none) */
+
+	private int findPrev(int position) {
+		int root = position + 1;
+
+		while (prevAlive[root] != root) {
+			root = prevAlive[root];
+		}
+
+		for (int p = position + 1; prevAlive[p] != root; ) {
+			int prev = prevAlive[p];
+			prevAlive[p] = root;
+			p = prev;
+		}
+
+		return root - 1;
+	}
+
+	/* the first position whose angle is >= angle */
+
+	private int lowerBound(double angle) {
+		int lo = 0;
+		int hi = byAngle.length;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (angles[byAngle[mid]] < angle) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+	private double coordinate(int index, int depth) {
+		return (depth % 2 == 0) ? xs[index] : ys[index];
+	}
+
+	private void buildTree(int lo, int hi, int depth) {
+		if (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			select(lo, hi - 1, mid, depth);
+			buildTree(lo, mid, depth + 1);
+			buildTree(mid + 1, hi, depth + 1);
+		}
+	}
+
+	/* moves the k-th smallest (by the depth's coordinate) item
+	 * of tree[lo..hi] to the k-th position, the smaller ones
+	 * before it and the greater ones after it (quickselect) */
+
+	private void select(int lo, int hi, int k, int depth) {
+		while (hi > lo) {
+			double pivot = coordinate(tree[(lo + hi) >>> 1], depth);
+			int i = lo;
+			int j = hi;
+
+			while (i <= j) {
+				while (coordinate(tree[i], depth) < pivot) {
+					i++;
+				}
+
+				while (coordinate(tree[j], depth) > pivot) {
+					j--;
+				}
+
+				if (i <= j) {
+					int tmp = tree[i];
+					tree[i] = tree[j];
+					tree[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void findInRadius(int lo, int hi, int depth,
+			double x, double y, double squaredRadius, List<T> found) {
+
+		if (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int index = tree[mid];
+			double dx = xs[index] - x;
+			double dy = ys[index] - y;
+			double difference = (depth % 2 == 0) ? dx : dy;
+
+			if (dx * dx + dy * dy <= squaredRadius && isAlive(index)) {
+				found.add(items.get(index));
+			}
+
+			if (difference >= 0 || difference * difference <= squaredRadius) {
+				findInRadius(lo, mid, depth + 1, x, y, squaredRadius, found);
+			}
+
+			if (difference <= 0 || difference * difference <= squaredRadius) {
+				findInRadius(mid + 1, hi, depth + 1, x, y, squaredRadius, found);
+			}
+		}
+	}
+
+	private void findNearest(int lo, int hi, int depth,
+			double x, double y, int k, PriorityQueue<double[]> found) {
+
+		if (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int index = tree[mid];
+			double dx = xs[index] - x;
+			double dy = ys[index] - y;
+			double squaredDistance = dx * dx + dy * dy;
+			double difference = (depth % 2 == 0) ? dx : dy;
+
+			if (isAlive(index)) {
+				if (found.size() < k) {
+					found.add(new double[] { squaredDistance, index });
+				} else if (squaredDistance < found.peek()[0]) {
+					found.poll();
+					found.add(new double[] { squaredDistance, index });
+				}
+			}
+
+			/* the nearer half first, the other one only
+			 * if it can contain a nearer item */
+
+			boolean leftFirst = difference >= 0;
+
+			findNearest((leftFirst) ? lo : mid + 1, (leftFirst) ? mid : hi,
+					depth + 1, x, y, k, found);
+
+			if (found.size() < k || difference * difference < found.peek()[0]) {
+				findNearest((leftFirst) ? mid + 1 : lo, (leftFirst) ? hi : mid,
+						depth + 1, x, y, k, found);
+			}
+		}
+	}
+}
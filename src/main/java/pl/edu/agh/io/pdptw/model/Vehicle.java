@@ -5,8 +5,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -17,7 +19,7 @@ import pl.edu.agh.io.pdptw.algorithm.scheduling.Scheduler;
 import pl.edu.agh.io.pdptw.logging.LoggingUtils;
 
 @Data
-@EqualsAndHashCode
+@EqualsAndHashCode(exclude = {"sharers"})
 @AllArgsConstructor
 
 public class Vehicle {
@@ -28,6 +30,14 @@ public class Vehicle {
     private Route route;
     private Set<Integer> servedRequestsIds;
     
+    /* number of the solutions holding the vehicle apart
+     * from the one which shared it (see Solution.createShallowCopy());
+     * a solution is dropped without releasing its vehicles so it's
+     * an upper bound - an overestimate costs just an extra copy */
+    
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger sharers = new AtomicInteger();
+    
     /* note the static keyword */
     @Setter @Getter private static Scheduler scheduler = new DriveFirstScheduler();
     
@@ -80,6 +90,7 @@ public class Vehicle {
 				})
 				.collect(Collectors.toList()));
 		scheduler.scheduleRequests(this, time);
+		route.invalidateSchedule();
 		return removedRequests;
 	}
 	
@@ -93,6 +104,61 @@ public class Vehicle {
 				.filter(r -> !requestsIds.contains(r.getId()))
 				.collect(Collectors.toList()));
 		scheduler.scheduleRequests(this, time);
+		route.invalidateSchedule();
+	}
+	
+	/* the feasibility of the insertion is checked in constant
+	 * time using the schedule cached by the route
+	 * (see RouteSchedule for the details); the cache mirrors
+	 * the drive-first policy so for other schedulers we fall
+	 * back to propagating the realization times */
+	
+	public boolean isInsertionPossible(PickupRequest pickupRequest, int pickupPosition, int deliveryPosition) {
+		List<Request> requests = route.getRequests();
+		
+		assert pickupPosition >= 0;
+		assert pickupPosition < deliveryPosition;
+		assert pickupPosition <= requests.size();
+		assert deliveryPosition <= requests.size() + 1;
+		
+		if (!(scheduler instanceof DriveFirstScheduler)) {
+			return isInsertionPossibleByPropagation(pickupRequest, pickupPosition, deliveryPosition);
+		}
+		
+		/* we must not allow to insert a new request
+		 * befor an already served one */
+		
+		if (pickupPosition < requests.size()
+				&& servedRequestsIds.contains(requests.get(pickupPosition).getId())) {
+			return false;
+		}
+		
+		return route.getSchedule(maxCapacity).isInsertionPossible(
+				pickupRequest, pickupPosition, deliveryPosition, startLocation);
+	}
+	
+	/* the insertion isn't possible for this pickup position
+	 * and all the further ones (see RouteSchedule); without the
+	 * cached schedule we can't tell so nothing is skipped */
+	
+	public int findPickupPositionsEnd(PickupRequest pickupRequest) {
+		if (!(scheduler instanceof DriveFirstScheduler)) {
+			return route.getRequests().size() + 1;
+		}
+		
+		return route.getSchedule(maxCapacity).findPickupPositionsEnd(pickupRequest);
+	}
+	
+	/* the insertion isn't possible for this delivery position 
+	 * and all the further ones (for the given pickup position) */
+	
+	public int findDeliveryPositionsEnd(PickupRequest pickupRequest, int pickupPosition) {
+		if (!(scheduler instanceof DriveFirstScheduler)) {
+			return route.getRequests().size() + 2;
+		}
+		
+		return route.getSchedule(maxCapacity).findDeliveryPositionsEnd(
+				pickupRequest, pickupPosition, startLocation);
 	}
 	
 	/* the feasibility of the insertion of the new request pair
@@ -111,15 +177,9 @@ public class Vehicle {
 	 * 
 	 * 5. continue propagating the changes */
 	
-	public boolean isInsertionPossible(PickupRequest pickupRequest, int pickupPosition, int deliveryPosition) {
+	boolean isInsertionPossibleByPropagation(PickupRequest pickupRequest, int pickupPosition, int deliveryPosition) {
 		List<Request> requests = route.getRequests();
 		
-		assert pickupPosition <= route.getRequests().size();
-		assert deliveryPosition <= route.getRequests().size();
-		assert pickupPosition < deliveryPosition;
-		assert pickupPosition <= requests.size();
-		assert deliveryPosition <= requests.size() + 1;
-		
 		/* Check whether:
 		 * - the total volume of packages
 		 * is less or equal to the maximum capacity of
@@ -171,8 +231,8 @@ public class Vehicle {
 			 * position and the request's location */
 			
 			scheduler.updateRequestRealizationTime(pickupCopy, 
-					(int) Location.calculateDistance(
-							this.startLocation, pickupCopy.getLocation()));
+					(int) DistanceMatrix.calculateDistance(
+							this.startLocation, pickupCopy));
 		}
 		
 		totalVolume += pickupCopy.getVolume();
@@ -241,12 +301,12 @@ public class Vehicle {
 	
 	public void updateRealizationTimes() {
 		scheduler.scheduleRequests(this, 0);
+		route.invalidateSchedule();
 	}
 	
 	public void insertRequest(PickupRequest pickupRequest, int pickupPosition, int deliveryPosition) {
-		List<Request> requests = route.getRequests();
-		requests.add(pickupPosition, pickupRequest);
-		requests.add(deliveryPosition, pickupRequest.getSibling());
+		route.addRequest(pickupPosition, pickupRequest);
+		route.addRequest(deliveryPosition, pickupRequest.getSibling());
 		updateRealizationTimes();
 	}
 	
@@ -258,7 +318,7 @@ public class Vehicle {
 		assert pickupPosition < requests.size();
 		assert deliveryPosition < requests.size();
 		
-		Request pickup = requests.remove(pickupPosition);
+		Request pickup = route.removeRequest(pickupPosition);
 		Request delivery = pickup.getSibling();
 		
 		pickup.setRealizationTime(pickup.getTimeWindowStart());
@@ -269,7 +329,7 @@ public class Vehicle {
 		 * by 1. Note that pickup request is always added
 		 * to the route before the corresponding delivery request. */
 		
-		requests.remove(deliveryPosition - 1);
+		route.removeRequest(deliveryPosition - 1);
 		updateRealizationTimes();
 		
 		return pickup;
@@ -287,14 +347,14 @@ public class Vehicle {
 		pickup.setRealizationTime(pickup.getTimeWindowStart());
 		delivery.setRealizationTime(delivery.getTimeWindowStart());
 
-		requests.remove(pickupPosition);
+		route.removeRequest(pickupPosition);
 		
 		/* [deliveryPosition -1] because after removing the pickup request
 		 * the position of the delivery request is decremented
 		 * by 1. Note that pickup request is always added
 		 * to the route before the corresponding delivery request. */
 		
-		requests.remove(delivery);
+		route.removeRequest(requests.indexOf(delivery));
 		updateRealizationTimes();
 		
 		return pickup;
@@ -308,8 +368,8 @@ public class Vehicle {
 		
 		int pickupPosition = requests.indexOf(pickupRequest);
 		int deliveryPosition = requests.indexOf(pickupRequest.getSibling());
-		requests.remove(pickupRequest);
-		requests.remove(pickupRequest.getSibling());
+		route.removeRequest(pickupPosition);
+		route.removeRequest(deliveryPosition - 1);
 		updateRealizationTimes();
 		
 		pickupRequest.setRealizationTime(pickupRequest.getTimeWindowStart());
@@ -336,6 +396,32 @@ public class Vehicle {
 		return representation;
 	}
 	
+	void share() {
+		sharers.incrementAndGet();
+	}
+	
+	public boolean isShared() {
+		return sharers.get() > 0;
+	}
+	
+	/* gives up the vehicle by one of the solutions holding it;
+	 * returns false if there's no other solution to give
+	 * it to, i.e. the caller is its only owner now */
+	
+	boolean release() {
+		int n;
+		
+		do {
+			n = sharers.get();
+			
+			if (n == 0) {
+				return false;
+			}
+		} while (!sharers.compareAndSet(n, n - 1));
+		
+		return true;
+	}
+	
 	public Vehicle createShallowCopy() {
 		Vehicle copy = new Vehicle(id, maxCapacity, startLocation);
 		copy.setLocation(location);
@@ -0,0 +1,194 @@
+package pl.edu.agh.io.pdptw.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import pl.edu.agh.io.pdptw.algorithm.optimization.AdaptiveMemory;
+import pl.edu.agh.io.pdptw.algorithm.optimization.OptimizationWorker;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.remote.SolutionCodec.Settings;
+
+/* Worker process optimizing the partial solutions
+ * sent by the RemoteWorkerPool.
+ *
+ * Usage: RemoteWorker <port> <token>
+ *
+ * The worker connects to the pool listening on the given
+ * local port, introduces itself with the token and
+ * serves the messages (see the constants below) until
+ * the connection is closed. A single partial solution
+ * is optimized at a time, by a separate thread, so that
+ * the STOP message can be received in the meantime. */
+
+public class RemoteWorker {
+
+	/* messages sent to the worker */
+
+	static final byte INSTANCE = 1;
+	static final byte OPTIMIZE = 2;
+	static final byte STOP = 3;
+	static final byte SHUTDOWN = 4;
+
+	/* replies to the OPTIMIZE message */
+
+	static final byte RESULT = 1;
+	static final byte ERROR = 2;
+
+	/* the partial solutions of all the groups the worker
+	 * gets are kept in a single adaptive memory (like in
+	 * DecompositionOptimizer), it's forgotten when a new
+	 * problem instance arrives */
+
+	private static final int MEMORY_SIZE = 64;
+
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private AdaptiveMemory memory;
+	private ProblemInstance instance;
+	private volatile OptimizationWorker currentWorker;
+	private Thread optimizationThread;
+
+	public RemoteWorker(Socket socket) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			LoggingUtils.error("Usage: RemoteWorker <port> <token>");
+			System.exit(1);
+		}
+
+		/* the worker's metrics are available in its own JVM */
+		
+		Metrics.registerMBean();
+		
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+			socket.setTcpNoDelay(true);
+			RemoteWorker worker = new RemoteWorker(socket);
+			worker.out.writeInt(Integer.parseInt(args[1]));
+			worker.out.flush();
+			worker.run();
+		} catch (IOException | InterruptedException e) {
+			LoggingUtils.logStackTrace(e);
+		}
+
+		/* the optimization thread may still be running */
+
+		System.exit(0);
+	}
+
+	public void run() throws IOException, InterruptedException {
+		try {
+			while (true) {
+				byte message = in.readByte();
+
+				if (message == INSTANCE) {
+					waitForOptimization();
+					instance = SolutionCodec.readInstance(in);
+					ProblemInstance.install(instance);
+					memory = null;
+				} else if (message == OPTIMIZE) {
+					waitForOptimization();
+
+					if (instance == null) {
+						throw new IOException("No problem instance received");
+					}
+
+					Settings settings = SolutionCodec.readConfiguration(in);
+					Solution solution = SolutionCodec.readSolution(in, instance);
+					startOptimization(solution, settings);
+				} else if (message == STOP) {
+					OptimizationWorker worker = currentWorker;
+
+					if (worker != null) {
+						worker.stopOptimization();
+					}
+				} else if (message == SHUTDOWN) {
+					break;
+				} else {
+					throw new IOException("Unknown message: " + message);
+				}
+			}
+		} catch (EOFException e) {
+
+			/* the pool has closed the connection */
+
+		} finally {
+			OptimizationWorker worker = currentWorker;
+
+			if (worker != null) {
+				worker.stopOptimization();
+			}
+		}
+	}
+
+	private void waitForOptimization() throws InterruptedException {
+		if (optimizationThread != null) {
+			optimizationThread.join();
+			optimizationThread = null;
+		}
+	}
+
+	private void startOptimization(Solution solution, Settings settings) {
+		Configuration configuration = settings.getConfiguration();
+		long timeLeft = settings.getTimeLeft();
+		long now = System.currentTimeMillis();
+		long deadline = (timeLeft < Long.MAX_VALUE - now)
+				? now + timeLeft
+				: Long.MAX_VALUE;
+
+		if (memory == null) {
+			memory = new AdaptiveMemory(MEMORY_SIZE, configuration);
+		}
+
+		Vehicle.setScheduler(configuration.getAlgorithms().getScheduler());
+		OptimizationWorker worker = new OptimizationWorker(solution, configuration, memory);
+		worker.getOptimization().setDeadline(deadline);
+		currentWorker = worker;
+
+		optimizationThread = new Thread(() -> {
+			try {
+				worker.run();
+				Solution optimized = worker.getSolution();
+
+				synchronized (out) {
+					out.writeByte(RESULT);
+					SolutionCodec.writeSolution(out, optimized);
+					out.flush();
+				}
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+			} catch (RuntimeException e) {
+				LoggingUtils.logStackTrace(e);
+				sendError(e);
+			} finally {
+				currentWorker = null;
+			}
+		});
+		optimizationThread.start();
+	}
+
+	private void sendError(Exception e) {
+		try {
+			synchronized (out) {
+				out.writeByte(ERROR);
+				out.writeUTF(String.valueOf(e));
+				out.flush();
+			}
+		} catch (IOException ioe) {
+			LoggingUtils.logStackTrace(ioe);
+		}
+	}
+}
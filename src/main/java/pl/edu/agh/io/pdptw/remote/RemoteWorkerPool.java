@@ -0,0 +1,415 @@
+package pl.edu.agh.io.pdptw.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import lombok.Getter;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.logging.LoggingUtils;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Solution;
+
+/* Pool of the worker processes (see RemoteWorker)
+ * optimizing the partial solutions of the decomposition.
+ *
+ * The workers are separate JVMs started on this machine
+ * (with the same class path and the given JVM options, e.g.
+ * the heap size); they connect back to the pool using
+ * a local socket. A worker gets the problem instance once
+ * and then the partial solutions with the optimization
+ * settings (see SolutionCodec for the encoding).
+ *
+ * A worker which crashes (or whose connection breaks)
+ * is replaced by a new one, the failed optimization is
+ * reported with an IOException so that the caller can
+ * optimize the partial solution by itself. */
+
+public class RemoteWorkerPool implements AutoCloseable {
+	private static final List<String> DEFAULT_JVM_OPTIONS =
+			Collections.unmodifiableList(Arrays.asList("-Xms256m", "-Xmx256m"));
+
+	/* how long we wait for a worker to connect
+	 * (or to become available) */
+
+	private static final long CONNECTION_TIMEOUT = 30000;
+
+	/* how long after the deadline we wait for the result
+	 * (the worker has to notice the deadline and send the
+	 * solution back) */
+
+	private static final long RESULT_TIMEOUT = 5000;
+
+	/* the crashed workers are restarted at most
+	 * MAX_RESTARTS_PER_WORKER times each (on average) */
+
+	private static final int MAX_RESTARTS_PER_WORKER = 3;
+
+	@Getter private final int workersNo;
+	private final List<String> jvmOptions;
+	private final ServerSocket serverSocket;
+
+	/* the jobs block their threads until the result
+	 * comes back so there's one thread per worker */
+
+	@Getter private final ExecutorService executor;
+
+	private final BlockingQueue<Connection> idleConnections = new LinkedBlockingQueue<>();
+	private final Set<Connection> busyConnections = ConcurrentHashMap.newKeySet();
+	private final Map<Integer, Process> startingProcesses = new ConcurrentHashMap<>();
+	private final List<Process> processes = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger tokens = new AtomicInteger();
+	private final AtomicInteger restartsLeft;
+	private final Thread shutdownHook = new Thread(this::close);
+	@Getter private volatile boolean closed;
+
+	public RemoteWorkerPool(int workersNo) throws IOException {
+		this(workersNo, DEFAULT_JVM_OPTIONS);
+	}
+
+	public RemoteWorkerPool(int workersNo, List<String> jvmOptions) throws IOException {
+		if (workersNo < 1) {
+			throw new IllegalArgumentException("Invalid number of workers. Should be positive");
+		}
+
+		this.workersNo = workersNo;
+		this.jvmOptions = new ArrayList<>(jvmOptions);
+		this.restartsLeft = new AtomicInteger(workersNo * MAX_RESTARTS_PER_WORKER);
+		this.serverSocket = new ServerSocket(0, workersNo, InetAddress.getLoopbackAddress());
+		this.executor = Executors.newFixedThreadPool(workersNo, r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+
+		Thread acceptor = new Thread(this::acceptConnections);
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		for (int i = 0; i < workersNo; i++) {
+			startWorker();
+		}
+
+		/* the workers exit when their connections are
+		 * closed anyway, but they may be busy at the moment */
+
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/* returns the optimized copy of the partial solution;
+	 * the solution's requests must belong to the current
+	 * problem instance (see SolutionCodec.isEncodable()) */
+
+	public Solution optimize(Solution solution, Configuration configuration,
+			long deadline, BooleanSupplier shouldStop) throws IOException {
+
+		ProblemInstance instance = ProblemInstance.getCurrent();
+
+		if (!SolutionCodec.isEncodable(solution, instance)) {
+			throw new IllegalArgumentException("The solution doesn't belong to the current problem instance");
+		}
+
+		Connection connection = takeConnection();
+		boolean isBroken = true;
+		busyConnections.add(connection);
+
+		try {
+			long now = System.currentTimeMillis();
+
+			synchronized (connection) {
+				if (connection.instance != instance) {
+					connection.out.writeByte(RemoteWorker.INSTANCE);
+					SolutionCodec.writeInstance(connection.out, instance);
+					connection.instance = instance;
+				}
+
+				connection.out.writeByte(RemoteWorker.OPTIMIZE);
+				SolutionCodec.writeConfiguration(connection.out, configuration,
+						(deadline == Long.MAX_VALUE) ? Long.MAX_VALUE : Math.max(0, deadline - now));
+				SolutionCodec.writeSolution(connection.out, solution);
+				connection.out.flush();
+			}
+
+			/* the connection is registered as busy before
+			 * checking the flag (see stopOptimization()) */
+
+			if (shouldStop.getAsBoolean()) {
+				stop(connection);
+			}
+
+			/* a worker which doesn't reply in time is
+			 * considered failed (and replaced) so that the
+			 * caller can optimize the solution by itself */
+
+			connection.socket.setSoTimeout(getResultTimeout(deadline));
+			byte reply;
+
+			try {
+				reply = connection.in.readByte();
+			} catch (SocketTimeoutException e) {
+				throw new IOException("The worker hasn't replied in time");
+			}
+
+			if (reply == RemoteWorker.RESULT) {
+				Solution optimized = SolutionCodec.readSolution(connection.in, instance);
+				isBroken = false;
+
+				return optimized;
+			} else if (reply == RemoteWorker.ERROR) {
+				String message = connection.in.readUTF();
+				isBroken = false;
+
+				throw new IOException("Remote optimization failed: " + message);
+			} else {
+				throw new IOException("Unknown reply: " + reply);
+			}
+		} finally {
+			busyConnections.remove(connection);
+
+			if (isBroken) {
+				discard(connection);
+			} else {
+				idleConnections.add(connection);
+			}
+		}
+	}
+
+	private static int getResultTimeout(long deadline) {
+		if (deadline == Long.MAX_VALUE) {
+			return 0;
+		}
+
+		long timeout = Math.max(0, deadline - System.currentTimeMillis()) + RESULT_TIMEOUT;
+
+		return (int) Math.min(Integer.MAX_VALUE, timeout);
+	}
+
+	/* stops the optimizations in progress (the workers
+	 * return the best solutions found so far) */
+
+	public void stopOptimization() {
+		for (Connection connection : busyConnections) {
+			stop(connection);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		/* the pool may be closed long before the JVM exits
+		 * (e.g. after each optimization run) */
+
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+
+			/* the JVM is shutting down already */
+
+		}
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			LoggingUtils.logStackTrace(e);
+		}
+
+		for (Connection connection : idleConnections) {
+			synchronized (connection) {
+				try {
+					connection.out.writeByte(RemoteWorker.SHUTDOWN);
+					connection.out.flush();
+				} catch (IOException e) {
+
+					/* it's being closed anyway */
+
+				}
+			}
+
+			connection.close();
+		}
+
+		for (Connection connection : busyConnections) {
+			connection.close();
+		}
+
+		synchronized (processes) {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+
+		executor.shutdown();
+	}
+
+	private void startWorker() throws IOException {
+		int token = tokens.incrementAndGet();
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(RemoteWorker.class.getName());
+		command.add(String.valueOf(serverSocket.getLocalPort()));
+		command.add(String.valueOf(token));
+
+		Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.start();
+		startingProcesses.put(token, process);
+		processes.add(process);
+
+		/* the output is passed to our log (and not inherited)
+		 * so that it ends up in the same place as ours */
+
+		Thread output = new Thread(() -> forwardOutput(process));
+		output.setDaemon(true);
+		output.start();
+	}
+
+	private static void forwardOutput(Process process) {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream()))) {
+
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				LoggingUtils.info(line);
+			}
+		} catch (IOException e) {
+
+			/* the worker has been killed */
+
+		}
+	}
+
+	private void acceptConnections() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout((int) CONNECTION_TIMEOUT);
+				Connection connection = new Connection(socket);
+				Process process = startingProcesses.remove(connection.in.readInt());
+				socket.setSoTimeout(0);
+
+				if (process == null) {
+					LoggingUtils.error("Unknown worker connected");
+					connection.close();
+				} else {
+					connection.process = process;
+					idleConnections.add(connection);
+				}
+			} catch (SocketException e) {
+
+				/* the server socket has been closed */
+
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+			}
+		}
+	}
+
+	private Connection takeConnection() throws IOException {
+		Connection connection;
+
+		try {
+			connection = idleConnections.poll(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a worker");
+		}
+
+		if (connection == null) {
+			throw new IOException("No worker available");
+		}
+
+		return connection;
+	}
+
+	private void stop(Connection connection) {
+		synchronized (connection) {
+			try {
+				connection.out.writeByte(RemoteWorker.STOP);
+				connection.out.flush();
+			} catch (IOException e) {
+
+				/* the job will fail while reading the result */
+
+			}
+		}
+	}
+
+	/* the worker is killed and replaced by a new one */
+
+	private void discard(Connection connection) {
+		LoggingUtils.error("A remote worker has failed");
+		connection.close();
+
+		if (connection.process != null) {
+			connection.process.destroy();
+			processes.remove(connection.process);
+		}
+
+		if (!closed && restartsLeft.getAndDecrement() > 0) {
+			try {
+				startWorker();
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+			}
+		}
+	}
+
+	private static final class Connection {
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		private Process process;
+
+		/* the problem instance the worker has got */
+
+		private ProblemInstance instance;
+
+		private Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				LoggingUtils.logStackTrace(e);
+			}
+		}
+	}
+}
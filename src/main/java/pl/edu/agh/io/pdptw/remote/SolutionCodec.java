@@ -0,0 +1,263 @@
+package pl.edu.agh.io.pdptw.remote;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import lombok.Value;
+import pl.edu.agh.io.pdptw.algorithm.decomposition.DecompositionAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.generation.GenerationAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.insertion.InsertionAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
+import pl.edu.agh.io.pdptw.algorithm.optimization.OptimizationAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.removal.RemovalAlgorithm;
+import pl.edu.agh.io.pdptw.algorithm.scheduling.Scheduler;
+import pl.edu.agh.io.pdptw.configuration.AlgorithmConfiguration;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.DeliveryRequest;
+import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Route;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* Binary encoding of the data sent to the remote workers
+ * (see RemoteWorkerPool).
+ *
+ * The problem instance is sent once per worker; afterwards
+ * a request is encoded as its index within the instance
+ * and its realization time (the only parameter which changes)
+ * so a partial solution takes 8 bytes per request plus
+ * a few dozens per vehicle. The algorithms are sent as
+ * the names of their classes (they're created using
+ * the no-arg constructors, just like by Guice). */
+
+public final class SolutionCodec {
+
+	private SolutionCodec() {
+
+	}
+
+	public static void writeInstance(DataOutput out, ProblemInstance instance) throws IOException {
+		writeLocation(out, instance.getWarehouseLocation());
+		out.writeInt(instance.getSize());
+
+		for (Request request : instance.getRequests()) {
+			out.writeInt(request.getId());
+			out.writeBoolean(request.getType() == RequestType.PICKUP);
+			writeLocation(out, request.getLocation());
+			out.writeInt(request.getVolume());
+			out.writeInt(request.getTimeWindowStart());
+			out.writeInt(request.getTimeWindowEnd());
+			out.writeInt(request.getServiceTime());
+			out.writeInt(request.getArrivalTime());
+		}
+
+		for (int i = 0; i < instance.getSize(); i++) {
+			out.writeInt(instance.getSibling(i));
+		}
+	}
+
+	public static ProblemInstance readInstance(DataInput in) throws IOException {
+		Location warehouseLocation = readLocation(in);
+		int size = in.readInt();
+		List<Request> requests = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			int id = in.readInt();
+			boolean isPickup = in.readBoolean();
+			Location location = readLocation(in);
+			int volume = in.readInt();
+			int timeWindowStart = in.readInt();
+			int timeWindowEnd = in.readInt();
+			int serviceTime = in.readInt();
+			Request request = (isPickup)
+					? new PickupRequest(id, location, volume, timeWindowStart, timeWindowEnd, serviceTime)
+					: new DeliveryRequest(id, location, volume, timeWindowStart, timeWindowEnd, serviceTime);
+			request.setArrivalTime(in.readInt());
+			requests.add(request);
+		}
+
+		for (int i = 0; i < size; i++) {
+			int sibling = in.readInt();
+
+			if (sibling != ProblemInstance.NO_SIBLING) {
+				requests.get(i).setSibling(requests.get(sibling));
+			}
+		}
+
+		try {
+			return new ProblemInstance(warehouseLocation, requests);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid problem instance: " + e.getMessage());
+		}
+	}
+
+	/* all the requests of the solution must belong to the instance */
+
+	public static boolean isEncodable(Solution solution, ProblemInstance instance) {
+		return instance != null
+				&& solution.getRequests().stream().allMatch(instance::contains);
+	}
+
+	public static void writeSolution(DataOutput out, Solution solution) throws IOException {
+		out.writeDouble(solution.getObjectiveValue());
+		out.writeInt(solution.getVehicles().size());
+
+		for (Vehicle vehicle : solution.getVehicles()) {
+			out.writeUTF(vehicle.getId());
+			out.writeInt(vehicle.getMaxCapacity());
+			writeLocation(out, vehicle.getLocation());
+			writeLocation(out, vehicle.getStartLocation());
+			out.writeInt(vehicle.getServedRequestsIds().size());
+
+			for (Integer id : vehicle.getServedRequestsIds()) {
+				out.writeInt(id);
+			}
+
+			List<Request> requests = vehicle.getRoute().getRequests();
+			out.writeInt(requests.size());
+
+			for (Request request : requests) {
+				out.writeInt(request.getIndex());
+				out.writeInt(request.getRealizationTime());
+			}
+		}
+	}
+
+	/* the requests are copies of the instance ones (like
+	 * in Solution.copy()), the siblings are linked if both
+	 * of them are in the solution */
+
+	public static Solution readSolution(DataInput in, ProblemInstance instance) throws IOException {
+		double objectiveValue = in.readDouble();
+		int vehiclesNo = in.readInt();
+		List<Vehicle> vehicles = new ArrayList<>(vehiclesNo);
+		Request[] copies = new Request[instance.getSize()];
+
+		for (int v = 0; v < vehiclesNo; v++) {
+			String id = in.readUTF();
+			int maxCapacity = in.readInt();
+			Location location = readLocation(in);
+			Location startLocation = readLocation(in);
+			int servedNo = in.readInt();
+			Set<Integer> servedRequestsIds = new HashSet<>(servedNo * 2);
+
+			for (int i = 0; i < servedNo; i++) {
+				servedRequestsIds.add(in.readInt());
+			}
+
+			int routeSize = in.readInt();
+			List<Request> requests = new ArrayList<>(routeSize);
+
+			for (int i = 0; i < routeSize; i++) {
+				int index = in.readInt();
+
+				if (index < 0 || index >= instance.getSize()) {
+					throw new IOException("Invalid request index: " + index);
+				}
+
+				Request copy = instance.getRequest(index).createShallowCopy();
+				copy.setRealizationTime(in.readInt());
+				copies[index] = copy;
+				requests.add(copy);
+
+				int siblingIndex = instance.getSibling(index);
+				Request sibling = (siblingIndex != ProblemInstance.NO_SIBLING)
+						? copies[siblingIndex]
+						: null;
+
+				if (sibling != null) {
+					copy.setSibling(sibling);
+					sibling.setSibling(copy);
+				}
+			}
+
+			vehicles.add(new Vehicle(id, maxCapacity, location, startLocation,
+					new Route(requests), servedRequestsIds));
+		}
+
+		Solution solution = new Solution(vehicles);
+		solution.setObjectiveValue(objectiveValue);
+
+		return solution;
+	}
+
+	/* the settings of a single optimization run; the time
+	 * left (Long.MAX_VALUE - no limit) is sent instead of
+	 * the deadline so that the clocks don't have to agree */
+
+	public static void writeConfiguration(DataOutput out, Configuration configuration,
+			long timeLeft) throws IOException {
+
+		AlgorithmConfiguration algorithms = configuration.getAlgorithms();
+		out.writeUTF(algorithms.getGenerationAlgorithm().getClass().getName());
+		out.writeUTF(algorithms.getInsertionAlgorithm().getClass().getName());
+		out.writeUTF(algorithms.getRemovalAlgorithm().getClass().getName());
+		out.writeUTF(algorithms.getOptimizationAlgorithm().getClass().getName());
+		out.writeUTF(algorithms.getObjective().getClass().getName());
+		out.writeUTF(algorithms.getScheduler().getClass().getName());
+		out.writeUTF(algorithms.getDecompositionAlgorithm().getClass().getName());
+		out.writeInt(configuration.getIterations());
+		out.writeInt(configuration.getGranularity());
+		out.writeInt(configuration.getGranularityWidening());
+		writeLocation(out, configuration.getWarehouseLocation());
+		out.writeLong(timeLeft);
+	}
+
+	/* returns the configuration (with no paths - the
+	 * worker doesn't read any files) and the time left */
+
+	public static Settings readConfiguration(DataInput in) throws IOException {
+		AlgorithmConfiguration algorithms = AlgorithmConfiguration.createBuilder()
+				.setGenerationAlgorithm(create(in.readUTF(), GenerationAlgorithm.class))
+				.setInsertionAlgorithm(create(in.readUTF(), InsertionAlgorithm.class))
+				.setRemovalAlgorithm(create(in.readUTF(), RemovalAlgorithm.class))
+				.setOptimizationAlgorithm(create(in.readUTF(), OptimizationAlgorithm.class))
+				.setObjective(create(in.readUTF(), Objective.class))
+				.setScheduler(create(in.readUTF(), Scheduler.class))
+				.setDecompositionAlgorithm(create(in.readUTF(), DecompositionAlgorithm.class))
+				.build();
+		int iterations = in.readInt();
+		int granularity = in.readInt();
+		int granularityWidening = in.readInt();
+		Location warehouseLocation = readLocation(in);
+		long timeLeft = in.readLong();
+		Configuration configuration = new Configuration("", "", "", false, iterations,
+				0, 0, 0, 0, granularity, granularityWidening, 0, warehouseLocation, algorithms);
+
+		return new Settings(configuration, timeLeft);
+	}
+
+	@Value
+
+	public static class Settings {
+		Configuration configuration;
+		long timeLeft;
+	}
+
+	private static <T> T create(String className, Class<T> type) throws IOException {
+		try {
+			return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IOException("Invalid algorithm: " + className);
+		}
+	}
+
+	private static void writeLocation(DataOutput out, Location location) throws IOException {
+		out.writeInt(location.getX());
+		out.writeInt(location.getY());
+		out.writeDouble(location.getPolarAngle());
+	}
+
+	private static Location readLocation(DataInput in) throws IOException {
+		return new Location(in.readInt(), in.readInt(), in.readDouble());
+	}
+}
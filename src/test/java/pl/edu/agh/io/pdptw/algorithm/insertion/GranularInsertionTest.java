@@ -0,0 +1,117 @@
+package pl.edu.agh.io.pdptw.algorithm.insertion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* lc204 has wide time windows so the routes are long
+ * enough for the granular mode to be used; the granular
+ * search should check fewer positions (counted by the
+ * feasibility checks) and find nearly as good ones */
+
+public class GranularInsertionTest {
+	private static final int GRANULARITY = 8;
+	private static final double TOLERANCE = 0.05;
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lc204.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration, 700);
+		GreedyInsertion insertion = new GreedyInsertion();
+		List<PickupRequest> removed = new ArrayList<>();
+		long fullChecks = 0;
+		long granularChecks = 0;
+		double fullIncrease = 0;
+		double granularIncrease = 0;
+		
+		/* each pickup of the long routes is taken out of a copy
+		 * of the route and the positions to put it back are looked
+		 * for; the granular search can't find a better position
+		 * than the full one */
+
+		for (Vehicle vehicle : solution.getVehicles()) {
+			List<Request> requests = vehicle.getRoute().getRequests();
+			
+			for (int i = 0; i < requests.size() && requests.size() > 2 * GRANULARITY + 2; i++) {
+				if (requests.get(i).getType() == RequestType.PICKUP) {
+					Vehicle copy = vehicle.copy();
+					PickupRequest pickup = (PickupRequest) copy.getRoute().getRequests().get(i);
+					copy.removeRequest(pickup);
+					double objective = configuration.getAlgorithms().getObjective().calculateForVehicle(copy);
+					
+					configuration.setGranularity(0);
+					long checks = countFeasibilityChecks();
+					RequestPositions full = insertion.findBestInsertionPositions(pickup, copy, configuration);
+					fullChecks += countFeasibilityChecks() - checks;
+					
+					configuration.setGranularity(GRANULARITY);
+					checks = countFeasibilityChecks();
+					RequestPositions granular = insertion.findBestInsertionPositions(pickup, copy, configuration);
+					granularChecks += countFeasibilityChecks() - checks;
+					
+					assertTrue(granular.getPickupPosition() != Integer.MAX_VALUE);
+					assertTrue(full.getObjectiveValue() <= granular.getObjectiveValue());
+					fullIncrease += full.getObjectiveValue() - objective;
+					granularIncrease += granular.getObjectiveValue() - objective;
+				}
+			}
+		}
+		
+		assertTrue(fullChecks + " / " + granularChecks, granularChecks < fullChecks);
+		assertTrue(fullIncrease + " / " + granularIncrease, 
+				granularIncrease <= (1 + TOLERANCE) * fullIncrease);
+		
+		/* the first pickups of the long routes are
+		 * removed and inserted back all at once */
+		
+		for (Vehicle vehicle : solution.getVehicles()) {
+			List<Request> requests = vehicle.getRoute().getRequests();
+			
+			if (requests.size() > 2 * GRANULARITY + 2) {
+				PickupRequest pickup = (PickupRequest) requests.stream()
+						.filter(r -> r.getType() == RequestType.PICKUP)
+						.findFirst()
+						.get();
+				vehicle.removeRequest(pickup);
+				removed.add(pickup);
+			}
+		}
+		
+		assertTrue(removed.size() > 0);
+		assertTrue(new RegretInsertion().insertRequestsToSolution(removed, solution, configuration));
+		assertEquals(instance.getSize(), solution.getRequests().size());
+
+		for (Request r : solution.getRequests()) {
+			assertTrue(r.getId() + ": " + r.getRealizationTime(),
+					r.getRealizationTime() <= r.getTimeWindowEnd());
+		}
+	}
+
+	private static long countFeasibilityChecks() {
+		return Metrics.snapshot().getCount(Counter.FEASIBILITY_CHECKS);
+	}
+}
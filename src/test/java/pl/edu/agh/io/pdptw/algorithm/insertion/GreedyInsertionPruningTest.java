@@ -0,0 +1,86 @@
+package pl.edu.agh.io.pdptw.algorithm.insertion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.Objective;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* for all the Li & Lim instances: no feasible insertion 
+ * may lie beyond the pruning bounds and the best positions
+ * must be the same as the ones found by the exhaustive scan */
+
+public class GreedyInsertionPruningTest {
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		String[] names = new File(InstanceFixture.DATA_PATH).list((dir, name) -> name.endsWith(".txt"));
+		Arrays.sort(names);
+		
+		assertTrue(names.length > 0);
+
+		for (String name : names) {
+			Configuration configuration = DataGenerator.generateConfiguration();
+			ProblemInstance instance = InstanceFixture.loadInstance(configuration, name);
+			Objective objective = configuration.getAlgorithms().getObjective();
+			GreedyInsertion insertion = new GreedyInsertion();
+
+			Solution solution = InstanceFixture.generateSolution(instance, configuration);
+			List<PickupRequest> pickups = solution.getRequests().stream()
+					.filter(r -> r.getType() == RequestType.PICKUP)
+					.map(r -> (PickupRequest) r.copy())
+					.collect(Collectors.toList());
+
+			for (Vehicle v : solution.getVehicles()) {
+				int size = v.getRoute().getRequests().size();
+				double curObjective = objective.calculateForVehicle(v);
+
+				for (PickupRequest p : pickups) {
+					int pickupPositionsEnd = v.findPickupPositionsEnd(p);
+					double minObjective = Integer.MAX_VALUE;
+					
+					for (int pPos = 0; pPos <= size; pPos++) {
+						int deliveryPositionsEnd = v.findDeliveryPositionsEnd(p, pPos);
+						
+						for (int dPos = pPos + 1; dPos <= size + 1; dPos++) {
+							if (v.isInsertionPossible(p, pPos, dPos)) {
+								String message = name + ", " + v.getId() + ", " + p.getId() + ": " + pPos + ", " + dPos;
+								assertTrue(message, pPos < pickupPositionsEnd);
+								assertTrue(message, dPos < deliveryPositionsEnd);
+								
+								minObjective = Math.min(minObjective, curObjective 
+										+ objective.calculateInsertionDelta(v, p, pPos, dPos));
+							}
+						}
+					}
+					
+					RequestPositions found = insertion.findBestInsertionPositions(p, v, configuration);
+					
+					assertEquals(name + ", " + v.getId() + ", " + p.getId(), 
+							minObjective, found.getObjectiveValue(), 0.0);
+				}
+			}
+		}
+	}
+}
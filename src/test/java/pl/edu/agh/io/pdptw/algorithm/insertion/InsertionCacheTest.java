@@ -0,0 +1,83 @@
+package pl.edu.agh.io.pdptw.algorithm.insertion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.metrics.Counter;
+import pl.edu.agh.io.pdptw.metrics.Metrics;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.RequestPositions;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* the cached positions must be the same as the computed
+ * ones; a modified route is a miss, a copied one is a hit */
+
+public class InsertionCacheTest {
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		List<PickupRequest> pickups = solution.getRequests().stream()
+				.filter(r -> r.getType() == RequestType.PICKUP)
+				.map(r -> (PickupRequest) r.copy())
+				.collect(Collectors.toList());
+		InsertionAlgorithm insertion = new GreedyInsertion();
+		InsertionCache cache = new InsertionCache();
+		
+		for (int repeat = 0; repeat < 2; repeat++) {
+			for (Vehicle v : solution.getVehicles()) {
+				for (PickupRequest p : pickups) {
+					RequestPositions expected = insertion.findBestInsertionPositions(p, v, configuration);
+					assertEquals(expected, cache.findBestInsertionPositions(insertion, p, v, configuration));
+				}
+			}
+		}
+		
+		/* the colliding entries are overwritten
+		 * so some of the repeats may be missed */
+		
+		long evaluationsNo = solution.getVehicles().size() * pickups.size();
+		assertEquals(2 * evaluationsNo, cache.getHitsNo() + cache.getMissesNo());
+		assertTrue(cache.getHitsNo() > evaluationsNo / 2);
+		
+		/* the copy of a route has the same version */
+		
+		cache = new InsertionCache();
+		Vehicle vehicle = solution.getVehicles().get(0);
+		cache.findBestInsertionPositions(insertion, pickups.get(0), vehicle, configuration);
+		assertEquals(1, cache.getMissesNo());
+		
+		vehicle = vehicle.copy();
+		long evaluations = Metrics.snapshot().getCount(Counter.INSERTION_EVALUATIONS);
+		cache.findBestInsertionPositions(insertion, pickups.get(0), vehicle, configuration);
+		assertEquals(1, cache.getHitsNo());
+		
+		if (Metrics.ENABLED) {
+			assertEquals(evaluations + 1, Metrics.snapshot().getCount(Counter.INSERTION_EVALUATIONS));
+		}
+		
+		vehicle.removeRequest(0);
+		RequestPositions expected = insertion.findBestInsertionPositions(pickups.get(0), vehicle, configuration);
+		assertEquals(expected, cache.findBestInsertionPositions(insertion, pickups.get(0), vehicle, configuration));
+		assertEquals(2, cache.getMissesNo());
+	}
+}
@@ -0,0 +1,111 @@
+package pl.edu.agh.io.pdptw.algorithm.insertion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.DeliveryRequest;
+import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* removes some requests from a solution and inserts
+ * them back, the routes must remain feasible; the request
+ * with the highest regret must be inserted first */
+
+public class RegretInsertionTest {
+	private static final int REMOVED_NO = 20;
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		List<PickupRequest> removed = new ArrayList<>();
+		Random random = new Random(0);
+
+		while (removed.size() < REMOVED_NO) {
+			Vehicle vehicle = solution.getVehicles().get(random.nextInt(solution.getVehicles().size()));
+			List<Request> requests = vehicle.getRoute().getRequests();
+
+			if (requests.size() > 0) {
+				Request request = requests.get(random.nextInt(requests.size()));
+				PickupRequest pickup = (PickupRequest) ((request.getType() == RequestType.PICKUP)
+						? request
+						: request.getSibling());
+				vehicle.removeRequest(pickup);
+				removed.add(pickup);
+			}
+		}
+
+		assertTrue(new RegretInsertion().insertRequestsToSolution(removed, solution, configuration));
+		assertEquals(instance.getSize(), solution.getRequests().size());
+
+		for (Request r : solution.getRequests()) {
+			assertTrue(r.getId() + ": " + r.getRealizationTime(),
+					r.getRealizationTime() <= r.getTimeWindowEnd());
+		}
+	}
+
+	@Test
+	public void highestRegretFirstTest() {
+		Vehicle.setScheduler(new DriveFirstScheduler());
+		List<PickupRequest> inserted = new ArrayList<>();
+		List<Vehicle> vehicles = Arrays.asList(
+				createRecordingVehicle("left", new Location(0, 0), inserted),
+				createRecordingVehicle("right", new Location(100, 0), inserted));
+		Solution solution = new Solution(new ArrayList<>(vehicles));
+
+		/* the first request costs the same in both vehicles (no regret),
+		 * the second one is more expensive but much cheaper 
+		 * in the left vehicle than in the right one */
+
+		PickupRequest cheap = createRequest(1, new Location(50, 0));
+		PickupRequest regretted = createRequest(3, new Location(0, 60));
+
+		assertTrue(new RegretInsertion(2).insertRequestsToSolution(
+				Arrays.asList(cheap, regretted), solution, DataGenerator.generateConfiguration()));
+		assertEquals(Arrays.asList(regretted, cheap), inserted);
+	}
+
+	private static PickupRequest createRequest(int id, Location location) {
+		PickupRequest pickup = new PickupRequest(id, location, 10, 0, 10000, 0);
+		DeliveryRequest delivery = new DeliveryRequest(id + 1, location, -10, 0, 10000, 0);
+		pickup.setSibling(delivery);
+		delivery.setSibling(pickup);
+
+		return pickup;
+	}
+
+	private static Vehicle createRecordingVehicle(String id, Location location, 
+			List<PickupRequest> inserted) {
+		
+		return new Vehicle(id, 200, location) {
+			@Override
+			public void insertRequest(PickupRequest pickup, int pickupPosition, int deliveryPosition) {
+				inserted.add(pickup);
+				super.insertRequest(pickup, pickupPosition, deliveryPosition);
+			}
+		};
+	}
+}
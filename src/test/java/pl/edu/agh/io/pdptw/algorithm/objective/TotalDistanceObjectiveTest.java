@@ -1,11 +1,19 @@
 package pl.edu.agh.io.pdptw.algorithm.objective;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.junit.Test;
 
+import pl.edu.agh.io.pdptw.model.DeliveryRequest;
 import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.PickupRequest;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
 import pl.edu.agh.io.pdptw.model.Route;
+import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 import pl.edu.agh.io.pdptw.test.util.DataGenerator;
 
@@ -22,4 +30,78 @@ public class TotalDistanceObjectiveTest {
 		
 		assertEquals(expected, actual, 0.001);
 	}
+	
+	@Test
+	public void calculateInsertionDeltaTest() {
+		Route route = DataGenerator.generateRoute(10);
+		Vehicle vehicle = new Vehicle("truck", 200, new Location(0, 0));
+		vehicle.setRoute(route);
+		PickupRequest pickup = new PickupRequest(5000, new Location(17, 3), 10, 0, 100000, 10);
+		DeliveryRequest delivery = new DeliveryRequest(5001, new Location(-4, 8), -10, 0, 100000, 10);
+		pickup.setSibling(delivery);
+		delivery.setSibling(pickup);
+		int size = route.getRequests().size();
+		int checked = 0;
+		
+		for (int pPos = 0; pPos <= size; pPos++) {
+			for (int dPos = pPos + 1; dPos <= size + 1; dPos++) {
+				if (!vehicle.isInsertionPossible(pickup, pPos, dPos)) {
+					continue;
+				}
+				
+				double before = objective.calculateForVehicle(vehicle);
+				double delta = objective.calculateInsertionDelta(vehicle, pickup, pPos, dPos);
+				
+				vehicle.insertRequest(pickup, pPos, dPos);
+				double expected = objective.calculateForVehicle(vehicle) - before;
+				vehicle.removeRequest(pickup);
+				
+				assertEquals(expected, delta, 0.001);
+				checked++;
+			}
+		}
+		
+		assertTrue(checked > 0);
+	}
+	
+	/* compared with the default implementation
+	 * (the removal performed on a copy) */
+	
+	@Test
+	public void calculateRemovalDeltaTest() {
+		Route route = DataGenerator.generateRoute(10);
+		Vehicle vehicle = new Vehicle("truck", 200, new Location(0, 0));
+		vehicle.setRoute(route);
+		Objective copyingObjective = new Objective() {
+			
+			@Override
+			public double calculate(Solution solution) {
+				return objective.calculate(solution);
+			}
+			
+			@Override
+			public double calculateForVehicle(Vehicle vehicle) {
+				return objective.calculateForVehicle(vehicle);
+			}
+		};
+		List<Request> requests = route.getRequests();
+		long modificationNo = route.getModificationNo();
+		int checked = 0;
+		
+		for (int pPos = 0; pPos < requests.size(); pPos++) {
+			if (requests.get(pPos).getType() != RequestType.PICKUP) {
+				continue;
+			}
+			
+			int dPos = requests.indexOf(requests.get(pPos).getSibling());
+			double expected = copyingObjective.calculateRemovalDelta(vehicle, pPos, dPos);
+			double delta = objective.calculateRemovalDelta(vehicle, pPos, dPos);
+			
+			assertEquals(expected, delta, 0.001);
+			checked++;
+		}
+		
+		assertTrue(checked > 0);
+		assertEquals(modificationNo, route.getModificationNo());
+	}
 }
@@ -0,0 +1,59 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+/* several threads add the same solutions (in different
+ * orders), the memory should end up with the best ones */
+
+public class AdaptiveMemoryConcurrentAddTest {
+	private static final int SIZE = 16;
+	private static final int SOLUTIONS_NO = 100;
+	private static final int THREADS_NO = 4;
+
+	@Test
+	public void test() throws Exception {
+		List<Solution> solutions = new ArrayList<>();
+
+		for (int i = 0; i < SOLUTIONS_NO; i++) {
+			Solution s = DataGenerator.generateSolution(5);
+			s.setObjectiveValue(i);
+			solutions.add(s);
+		}
+
+		AdaptiveMemory memory = new AdaptiveMemory(SIZE, DataGenerator.generateConfiguration());
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS_NO);
+		List<Future<?>> results = new ArrayList<>();
+
+		for (int i = 0; i < THREADS_NO; i++) {
+			List<Solution> shuffled = new ArrayList<>(solutions);
+			Collections.shuffle(shuffled);
+			results.add(executor.submit(() -> shuffled.forEach(memory::addSolution)));
+		}
+
+		for (Future<?> f : results) {
+			f.get();
+		}
+
+		executor.shutdown();
+
+		List<Solution> stored = memory.getSolutions();
+		assertEquals(SIZE, stored.size());
+
+		for (int i = 0; i < SIZE; i++) {
+			assertEquals(i, stored.get(i).getObjectiveValue(), 0.0);
+			assertEquals(solutions.get(i).getHash(), stored.get(i).getHash());
+		}
+	}
+}
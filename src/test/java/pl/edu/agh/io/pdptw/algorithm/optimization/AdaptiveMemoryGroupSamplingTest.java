@@ -0,0 +1,81 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+/* the memory holds partial solutions of several groups,
+ * the solution created for one of them must be made
+ * of its own routes only */
+
+public class AdaptiveMemoryGroupSamplingTest {
+	private static final int GROUPS_NO = 4;
+	private static final int VEHICLES_NO = 3;
+
+	@Test
+	public void test() {
+		AdaptiveMemory memory = new AdaptiveMemory(32, DataGenerator.generateConfiguration());
+		Set<Integer> usedIds = new HashSet<>();
+		Solution group = null;
+
+		for (int i = 0; i < GROUPS_NO; i++) {
+			Solution s = generateGroup(usedIds);
+			s.setObjectiveValue(i);
+			memory.addSolution(s);
+			group = s;
+		}
+
+		Set<Integer> groupIds = getIds(group);
+		int requestsNo = group.getRequests().size();
+		Solution created = memory.createRandomSolution(0.5, 1, group);
+
+		assertEquals(groupIds, getIds(created));
+
+		for (Vehicle v : created.getVehicles()) {
+			assertTrue(groupIds.containsAll(v.getRoute().getRequests().stream()
+					.map(Request::getId)
+					.collect(Collectors.toList())));
+		}
+
+		/* the base solution is left intact */
+
+		assertEquals(requestsNo, group.getRequests().size());
+	}
+
+	/* the generated ids are random, the requests
+	 * of different groups mustn't share them */
+
+	private static Solution generateGroup(Set<Integer> usedIds) {
+		Solution group;
+		List<Integer> ids;
+
+		do {
+			group = DataGenerator.generateSolution(VEHICLES_NO);
+			ids = group.getRequests().stream()
+					.map(Request::getId)
+					.collect(Collectors.toList());
+		} while (new HashSet<>(ids).size() < ids.size()
+				|| ids.stream().anyMatch(usedIds::contains));
+
+		usedIds.addAll(ids);
+
+		return group;
+	}
+
+	private static Set<Integer> getIds(Solution solution) {
+		return solution.getRequests().stream()
+				.map(Request::getId)
+				.collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,40 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.TotalDistanceObjective;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+public class AlnsOptimizationTest {
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		configuration.setIterations(300);
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		double startObjective = new TotalDistanceObjective().calculate(solution);
+		Solution result = new AlnsOptimization()
+				.setConfiguration(configuration)
+				.setSolution(solution)
+				.setAdaptiveMemory(new AdaptiveMemory(32, configuration))
+				.optimize();
+
+		assertEquals(instance.getSize(), result.getRequests().size());
+		assertEquals(new TotalDistanceObjective().calculate(result), result.getObjectiveValue(), 1e-6);
+		assertTrue(result.getObjectiveValue() <= startObjective);
+	}
+}
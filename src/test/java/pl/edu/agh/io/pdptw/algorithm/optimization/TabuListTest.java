@@ -1,15 +1,21 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
+import pl.edu.agh.io.pdptw.model.Location;
+import pl.edu.agh.io.pdptw.model.Request;
 import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
 import pl.edu.agh.io.pdptw.test.util.DataGenerator;
 
 public class TabuListTest {
 
 	@Test
 	public void test() {
-		TabuList tabu = new TabuList(100, DataGenerator.generateConfiguration());
+		TabuList tabu = new TabuList(100);
 		Solution s1 = DataGenerator.generateSolution(10);
 		
 		for (int i = 0; i < 5000; i++) {
@@ -20,5 +26,21 @@ public class TabuListTest {
 			}
 		}
 	}
-
+	
+	@Test
+	public void moveTest() {
+		TabuList tabu = new TabuList(100);
+		Vehicle v1 = new Vehicle("truck", 200, new Location(0, 0));
+		Vehicle v2 = new Vehicle("plane", 200, new Location(0, 0));
+		v1.setRoute(DataGenerator.generateRoute(4));
+		Request r = v1.getRoute().getRequests().get(0);
+		
+		tabu.setAsTabu(r, v1, 10);
+		
+		assertTrue(tabu.isForbidden(r, v1, 9));
+		assertTrue(tabu.isForbidden(r, v1.copy(), 0));
+		assertFalse(tabu.isForbidden(r, v1, 10));
+		assertFalse(tabu.isForbidden(r, v2, 0));
+		assertFalse(tabu.isForbidden(v1.getRoute().getRequests().get(2), v1, 0));
+	}
 }
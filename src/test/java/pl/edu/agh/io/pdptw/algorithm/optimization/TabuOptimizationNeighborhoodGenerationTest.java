@@ -1,12 +1,21 @@
 package pl.edu.agh.io.pdptw.algorithm.optimization;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
+import pl.edu.agh.io.pdptw.algorithm.removal.ShawRemoval;
 import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.AlgorithmConfiguration;
 import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
 import pl.edu.agh.io.pdptw.model.Solution;
 import pl.edu.agh.io.pdptw.model.Vehicle;
 import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
 
 public class TabuOptimizationNeighborhoodGenerationTest {
 
@@ -18,4 +27,44 @@ public class TabuOptimizationNeighborhoodGenerationTest {
 		Configuration configuration = DataGenerator.generateConfiguration();
 		TabuOptimization.generateNeighbors(solution, 3, 10, configuration);
 	}
+	
+	@Test
+	public void deterministicTest() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		long hash = solution.getHash();
+		
+		/* the shaw removal draws the removed requests at random
+		 * so the seed must be passed to it as well; the second
+		 * neighborhood is generated in parallel */
+		
+		configuration.setAlgorithms(AlgorithmConfiguration.createBuilder()
+				.setRemovalAlgorithm(new ShawRemoval())
+				.build());
+		NeighborhoodOptions options = new NeighborhoodOptions(configuration)
+				.setNeighborsNo(20)
+				.setMaxChainLength(10)
+				.setSeed(42);
+		List<Neighbor> first = TabuOptimization.generateNeighborMoves(solution, options);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		List<Neighbor> second = pool.submit(
+				() -> TabuOptimization.generateNeighborMoves(solution, options)).get();
+		pool.shutdown();
+		
+		assertEquals(hash, solution.getHash());
+		assertEquals(first.size(), second.size());
+		
+		for (int i = 0; i < first.size(); i++) {
+			Solution materialized = first.get(i).materialize();
+			
+			assertEquals(first.get(i).getHash(), second.get(i).getHash());
+			assertEquals(first.get(i).getHash(), materialized.getHash());
+			assertEquals(configuration.getAlgorithms().getObjective().calculate(materialized), 
+					first.get(i).getObjectiveValue(), 0.001);
+		}
+		
+		assertEquals(hash, solution.getHash());
+		ProblemInstance.install(null);
+	}
 }
@@ -0,0 +1,47 @@
+package pl.edu.agh.io.pdptw.algorithm.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* the number of iterations is far too big to
+ * finish in time so the deadline has to stop the search */
+
+public class TabuOptimizationTimeLimitTest {
+	private static final long TIME_LIMIT = 300;
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		configuration.setIterations(1000000);
+		configuration.setTimeLimit(TIME_LIMIT);
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		TabuOptimization optimization = new TabuOptimization();
+		optimization.setConfiguration(configuration)
+			.setSolution(solution)
+			.setAdaptiveMemory(new AdaptiveMemory(32, configuration));
+
+		long start = System.currentTimeMillis();
+		Solution result = optimization.optimize();
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue("elapsed: " + elapsed, elapsed < TIME_LIMIT + 1000);
+		assertEquals(instance.getSize(), result.getRequests().size());
+		assertEquals(result.getObjectiveValue(),
+				optimization.getBestSolution().getObjectiveValue(), 0.0);
+	}
+}
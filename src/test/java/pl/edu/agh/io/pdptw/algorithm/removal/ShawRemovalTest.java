@@ -0,0 +1,71 @@
+package pl.edu.agh.io.pdptw.algorithm.removal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* the removed requests must be distinct pickups
+ * which are no longer present in the solution */
+
+public class ShawRemovalTest {
+	private static final int REMOVED_NO = 20;
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		List<Request> removed = new ShawRemoval().removeRequestsFromSolution(
+				solution, REMOVED_NO, configuration);
+		Set<Integer> removedIds = new HashSet<>();
+
+		assertEquals(REMOVED_NO, removed.size());
+		assertEquals(instance.getSize() - 2 * REMOVED_NO, solution.getRequests().size());
+
+		for (Request r : removed) {
+			assertEquals(RequestType.PICKUP, r.getType());
+			assertTrue(removedIds.add(r.getId()));
+		}
+
+		for (Request r : solution.getRequests()) {
+			assertFalse(removedIds.contains(r.getId()));
+			assertFalse(removedIds.contains(r.getSibling().getId()));
+		}
+	}
+
+	/* without the problem instance the random removal is used */
+
+	@Test
+	public void fallbackTest() {
+		Vehicle.setScheduler(new DriveFirstScheduler());
+		Solution s = DataGenerator.generateSolution(6);
+		int requestsNo = s.getRequests().size();
+		Request pickup = new ShawRemoval().removeRequestFromSolution(
+				s, DataGenerator.generateConfiguration());
+
+		assertEquals(RequestType.PICKUP, pickup.getType());
+		assertEquals(requestsNo - 2, s.getRequests().size());
+	}
+}
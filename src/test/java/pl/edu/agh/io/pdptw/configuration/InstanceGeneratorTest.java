@@ -0,0 +1,96 @@
+package pl.edu.agh.io.pdptw.configuration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.generation.GreedyGeneration;
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.InstanceGenerator.Layout;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.Route;
+import pl.edu.agh.io.pdptw.model.RequestType;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class InstanceGeneratorTest {
+	private final File directory = new File("target/generated-instances");
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		directory.mkdirs();
+
+		for (Layout layout : Layout.values()) {
+			String requestsPath = directory + "/" + layout + ".txt";
+			String vehiclesPath = directory + "/" + layout + "_vehicles.json";
+			new InstanceGenerator(7).setLayout(layout).setTightness(0.8)
+					.generate(1000, requestsPath, vehiclesPath);
+
+			Configuration configuration = DataGenerator.generateConfiguration();
+			configuration.setRequestsPath(requestsPath);
+			configuration.setVehiclesPath(vehiclesPath);
+			configuration.setDynamic(true);
+			DefaultConfigReader reader = new DefaultConfigReader();
+			ProblemInstance instance = reader.loadProblemInstance(configuration);
+			List<Vehicle> vehicles = reader.loadVehicles(configuration);
+
+			assertEquals(1000, instance.getSize());
+			assertEquals(250, vehicles.size());
+			assertTrue(instance.getRequests().stream()
+					.allMatch(r -> r.getSibling() != null
+							&& r.getArrivalTime() <= r.getTimeWindowStart()
+							&& r.getTimeWindowStart() <= r.getTimeWindowEnd()));
+
+			/* each pair can be served (the generation fails otherwise) */
+
+			Vehicle.setScheduler(new DriveFirstScheduler());
+			ProblemInstance.install(instance);
+			configuration.setDynamic(false);
+
+			for (Vehicle vehicle : vehicles) {
+				vehicle.setRoute(new Route(new ArrayList<>()));
+			}
+
+			Solution solution = new GreedyGeneration().generateSolution(
+					instance.getRequests(), vehicles, configuration);
+			assertEquals(1000, solution.getRequests().size());
+			assertTrue(solution.getRequests().stream()
+					.filter(r -> r.getType() == RequestType.PICKUP)
+					.map(Request::getSibling)
+					.allMatch(d -> d.getRealizationTime() <= d.getTimeWindowEnd()));
+		}
+	}
+
+	@Test
+	public void sameSeedTest() throws Exception {
+		directory.mkdirs();
+		String[] paths = new String[4];
+
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = directory + "/seed" + i;
+		}
+
+		new InstanceGenerator(11).generate(200, paths[0], paths[1]);
+		new InstanceGenerator(11).generate(200, paths[2], paths[3]);
+
+		assertArrayEquals(Files.readAllBytes(new File(paths[0]).toPath()),
+				Files.readAllBytes(new File(paths[2]).toPath()));
+		assertArrayEquals(Files.readAllBytes(new File(paths[0] + ".arrival_times").toPath()),
+				Files.readAllBytes(new File(paths[2] + ".arrival_times").toPath()));
+	}
+}
@@ -0,0 +1,134 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class ConvergenceTraceTest {
+
+	@Test
+	public void recordsTest() throws IOException, InterruptedException {
+		final int THREADS_NO = 4;
+		final int ITERATIONS = 5000;
+		Path file = Files.createTempFile("trace", ".csv");
+		
+		try {
+			ConvergenceTrace trace = new ConvergenceTrace(file, 1024);
+			List<Thread> threads = new ArrayList<>();
+			
+			for (int t = 0; t < THREADS_NO; t++) {
+				Thread thread = new Thread(() -> {
+					int searchId = trace.startSearch();
+					
+					for (int i = 0; i < ITERATIONS; i++) {
+						trace.record(searchId, i, 2000 - i * 0.1, 1000, 10);
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			
+			trace.close();
+			
+			/* the records may be dropped only if
+			 * the writer can't keep up */
+			
+			List<String> lines = Files.readAllLines(file);
+			List<String[]> records = lines.subList(1, lines.size()).stream()
+					.map(l -> l.split(","))
+					.collect(Collectors.toList());
+			
+			assertEquals(ConvergenceTrace.HEADER, lines.get(0));
+			assertEquals(THREADS_NO * ITERATIONS, records.size() + trace.getDroppedNo());
+			assertTrue(records.size() > 0);
+			
+			/* the iterations of each search are in order */
+			
+			int[] lastIterations = new int[THREADS_NO];
+			Arrays.fill(lastIterations, -1);
+			
+			for (String[] record : records) {
+				int search = Integer.parseInt(record[2]);
+				int worker = Integer.parseInt(record[3]);
+				int iteration = Integer.parseInt(record[4]);
+				
+				assertEquals(8, record.length);
+				assertEquals(ConvergenceTrace.RecordType.SEARCH.getName(), record[1]);
+				assertTrue(search >= 0 && search < THREADS_NO);
+				assertTrue(worker >= 0 && worker < THREADS_NO);
+				assertTrue(iteration > lastIterations[search]);
+				assertEquals(2000 - iteration * 0.1, Double.parseDouble(record[5]), 1e-9);
+				assertEquals(1000, Double.parseDouble(record[6]), 1e-9);
+				assertEquals(10, Integer.parseInt(record[7]));
+				lastIterations[search] = iteration;
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+	
+	@Test
+	public void sequentialRecordsTest() throws IOException {
+		Path file = Files.createTempFile("trace", ".csv");
+		
+		try (ConvergenceTrace trace = new ConvergenceTrace(file, 4)) {
+			int searchId = trace.startSearch();
+			
+			for (int i = 0; i < 100; i++) {
+				
+				/* a tiny buffer may get full, wait for the writer */
+				
+				long droppedNo = trace.getDroppedNo();
+				trace.record(searchId, i, i, i, 1);
+				
+				while (trace.getDroppedNo() > droppedNo) {
+					Thread.yield();
+					droppedNo = trace.getDroppedNo();
+					trace.record(searchId, i, i, i, 1);
+				}
+			}
+			
+			/* the complete solutions of a decomposition run */
+			
+			int runId = trace.startSearch();
+			long droppedNo = trace.getDroppedNo();
+			trace.recordSolution(runId, 1, 10, 10, 2);
+			
+			while (trace.getDroppedNo() > droppedNo) {
+				Thread.yield();
+				droppedNo = trace.getDroppedNo();
+				trace.recordSolution(runId, 1, 10, 10, 2);
+			}
+			
+			trace.close();
+			List<String> lines = Files.readAllLines(file);
+			
+			assertEquals(102, lines.size());
+			
+			for (int i = 0; i < 100; i++) {
+				assertEquals(String.valueOf(i), lines.get(i + 1).split(",")[4]);
+			}
+			
+			String[] solution = lines.get(101).split(",");
+			
+			assertEquals(ConvergenceTrace.RecordType.SOLUTION.getName(), solution[1]);
+			assertEquals(String.valueOf(runId), solution[2]);
+			assertTrue(runId != searchId);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package pl.edu.agh.io.pdptw.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@Test
+	public void shardedCountingTest() throws InterruptedException {
+		final int THREADS_NO = 4;
+		final int EVENTS_NO = 10000;
+		MetricsSnapshot before = Metrics.snapshot();
+		List<Thread> threads = new ArrayList<>();
+		
+		for (int t = 0; t < THREADS_NO; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < EVENTS_NO; i++) {
+					Metrics.increment(Counter.TABU_HITS);
+					Metrics.record(Histogram.DECOMPOSITION_GROUP_SIZE, 100);
+				}
+				
+				Metrics.add(Counter.TABU_HITS, EVENTS_NO);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		/* the shards of the finished threads are folded
+		 * into the retired one, nothing may be lost */
+		
+		MetricsSnapshot after = Metrics.snapshot();
+		MetricsSnapshot again = Metrics.snapshot();
+		
+		assertEquals(2 * THREADS_NO * EVENTS_NO, 
+				after.getCount(Counter.TABU_HITS) - before.getCount(Counter.TABU_HITS));
+		assertEquals(after.getCount(Counter.TABU_HITS), again.getCount(Counter.TABU_HITS));
+		assertEquals(THREADS_NO * EVENTS_NO, 
+				after.getCount(Histogram.DECOMPOSITION_GROUP_SIZE) 
+				- before.getCount(Histogram.DECOMPOSITION_GROUP_SIZE));
+	}
+	
+	/* the shards of the finished threads are folded when
+	 * another thread starts recording, without any snapshots */
+	
+	@Test
+	public void finishedShardsRetiredTest() throws InterruptedException {
+		final int THREADS_NO = 8;
+		Metrics.increment(Counter.TABU_HITS);
+		int before = Metrics.getShardsNo();
+		
+		for (int t = 0; t < THREADS_NO + 1; t++) {
+			Thread thread = new Thread(() -> Metrics.increment(Counter.TABU_HITS));
+			thread.start();
+			thread.join();
+		}
+		
+		/* only the last thread's shard may be left */
+		
+		assertTrue(Metrics.getShardsNo() <= before + 1);
+	}
+	
+	@Test
+	public void percentileTest() {
+		final int HISTOGRAMS_NO = Histogram.values().length;
+		long[][] buckets = new long[HISTOGRAMS_NO][Metrics.BUCKETS_NO];
+		long[] sums = new long[HISTOGRAMS_NO];
+		long[] maxima = new long[HISTOGRAMS_NO];
+		int h = Histogram.NEIGHBORHOOD_TIME.ordinal();
+		
+		/* 90 x 10 (the bucket [8, 15]) and 10 x 1000 ([512, 1023]) */
+		
+		buckets[h][4] = 90;
+		buckets[h][10] = 10;
+		sums[h] = 90 * 10 + 10 * 1000;
+		maxima[h] = 1000;
+		
+		MetricsSnapshot snapshot = new MetricsSnapshot(0, 0, 
+				new long[Counter.values().length], buckets, sums, maxima, new HashMap<>());
+		
+		assertEquals(100, snapshot.getCount(Histogram.NEIGHBORHOOD_TIME));
+		assertEquals(109, snapshot.getMean(Histogram.NEIGHBORHOOD_TIME), 1e-9);
+		assertEquals(15, snapshot.getPercentile(Histogram.NEIGHBORHOOD_TIME, 50));
+		assertEquals(15, snapshot.getPercentile(Histogram.NEIGHBORHOOD_TIME, 90));
+		assertEquals(1000, snapshot.getPercentile(Histogram.NEIGHBORHOOD_TIME, 99));
+		assertEquals(0, snapshot.getPercentile(Histogram.INSERTION_EVALUATION_TIME, 99));
+	}
+	
+	@Test
+	public void exportTest() throws Exception {
+		Metrics.increment(Counter.MEMORY_INSERTS);
+		assertTrue(Metrics.registerMBean());
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+		
+		assertTrue((Long) server.getAttribute(name, Counter.MEMORY_INSERTS.getName()) >= 1);
+		assertTrue((Double) server.getAttribute(name, "NeighborsPerSecond") >= 0);
+		
+		try {
+			server.invoke(name, "reset", new Object[0], new String[0]);
+			fail();
+		} catch (ReflectionException e) {
+			
+			/* there are no operations */
+			
+		}
+		
+		Path file = Files.createTempFile("metrics", ".txt");
+		
+		try (MetricsReporter reporter = new MetricsReporter(file, 60000)) {
+			reporter.report();
+			List<String> lines = Files.readAllLines(file);
+			
+			assertTrue(lines.stream().anyMatch(l -> l.startsWith(Counter.MEMORY_INSERTS.getName() + " ")));
+			assertTrue(lines.stream().anyMatch(l -> l.startsWith(Histogram.NEIGHBORHOOD_TIME.getName() + " count=")));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
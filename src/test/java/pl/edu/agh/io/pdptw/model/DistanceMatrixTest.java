@@ -0,0 +1,61 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.configuration.DefaultConfigReader;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class DistanceMatrixTest {
+
+	@After
+	public void clear() {
+		DistanceMatrix.setCurrent(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		configuration.setRequestsPath("resources/test/data/lc101.txt");
+		List<Request> requests = new DefaultConfigReader().loadRequests(configuration);
+		Location depot = configuration.getWarehouseLocation();
+		DistanceMatrix packed = new DistanceMatrix(depot, requests, true);
+		DistanceMatrix full = new DistanceMatrix(depot, requests, false);
+
+		for (Request r1 : requests) {
+			assertEquals(Location.calculateDistance(depot, r1.getLocation()),
+					packed.getDistance(0, r1.getIndex() + 1), 0.0);
+
+			for (Request r2 : requests) {
+				double expected = Location.calculateDistance(r1.getLocation(), r2.getLocation());
+				assertEquals(expected, packed.getDistance(r1.getIndex() + 1, r2.getIndex() + 1), 0.0);
+				assertEquals(expected, full.getDistance(r1.getIndex() + 1, r2.getIndex() + 1), 0.0);
+			}
+		}
+
+		/* requests not covered by the matrix
+		 * must fall back to the direct calculation */
+
+		DistanceMatrix.setCurrent(packed);
+		Request outside = DataGenerator.generateRequestsPool(2).get(0);
+		Request inside = requests.get(0);
+		assertEquals(Location.calculateDistance(outside.getLocation(), inside.getLocation()),
+				DistanceMatrix.calculateDistance(outside, inside), 0.0);
+		assertEquals(Location.calculateDistance(depot, inside.getLocation()),
+				DistanceMatrix.calculateDistance(depot, inside), 0.0);
+
+		/* the same index doesn't make a request
+		 * of another instance a covered one */
+
+		outside.setIndex(inside.getIndex() + 1);
+		assertFalse(packed.contains(outside));
+		assertEquals(Location.calculateDistance(outside.getLocation(), inside.getLocation()),
+				DistanceMatrix.calculateDistance(outside, inside), 0.0);
+	}
+}
@@ -0,0 +1,70 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.insertion.GreedyInsertion;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+public class MoveJournalTest {
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		String before = describe(solution);
+		GreedyInsertion insertion = new GreedyInsertion();
+		MoveJournal journal = new MoveJournal();
+		Random random = new Random(0);
+
+		for (int i = 0; i < 50; i++) {
+			Vehicle from = solution.getVehicles().get(random.nextInt(solution.getVehicles().size()));
+			Vehicle to = solution.getVehicles().get(random.nextInt(solution.getVehicles().size()));
+			List<Request> requests = from.getRoute().getRequests();
+
+			if (requests.size() == 0) {
+				continue;
+			}
+
+			PickupRequest pickup = (PickupRequest) requests.get(0);
+			PickupRequest removed = journal.removeRequest(from,
+					0, requests.indexOf(pickup.getSibling()));
+			RequestPositions positions = insertion.findBestInsertionPositions(
+					removed, to, configuration);
+
+			if (positions.getPickupPosition() != Integer.MAX_VALUE) {
+				journal.insertRequest(to, removed,
+						positions.getPickupPosition(), positions.getDeliveryPosition());
+			} else {
+				journal.undoTo(journal.size() - 1);
+			}
+		}
+
+		journal.undo();
+
+		assertEquals(0, journal.size());
+		assertEquals(before, describe(solution));
+	}
+
+	private static String describe(Solution solution) {
+		return solution.getVehicles().stream()
+				.map(v -> v.getRoute().getRequests().stream()
+						.map(r -> r.getId() + "@" + r.getRealizationTime())
+						.collect(Collectors.joining(" ")))
+				.collect(Collectors.joining("\n"));
+	}
+}
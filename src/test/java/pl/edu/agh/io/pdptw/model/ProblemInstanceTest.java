@@ -0,0 +1,42 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.configuration.DefaultConfigReader;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class ProblemInstanceTest {
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		configuration.setRequestsPath("resources/test/data/lr101.txt");
+		ProblemInstance instance = new DefaultConfigReader().loadProblemInstance(configuration);
+
+		assertEquals(instance.getRequests().size(), instance.getSize());
+
+		for (int i = 0; i < instance.getSize(); i++) {
+			Request r = instance.getRequest(i);
+
+			assertEquals(i, r.getIndex());
+			assertEquals(i, instance.getIndex(r.getId()));
+			assertTrue(instance.contains(r));
+			assertEquals(r.getLocation().getX(), instance.getX(i));
+			assertEquals(r.getLocation().getY(), instance.getY(i));
+			assertEquals((int) r.getVolume(), instance.getVolume(i));
+			assertEquals((int) r.getTimeWindowStart(), instance.getTimeWindowStart(i));
+			assertEquals((int) r.getTimeWindowEnd(), instance.getTimeWindowEnd(i));
+			assertEquals((int) r.getServiceTime(), instance.getServiceTime(i));
+			assertEquals(r.getType(), instance.getType(i));
+			assertEquals(r.getSibling().getIndex(), instance.getSibling(i));
+			assertEquals(i, instance.getSibling(instance.getSibling(i)));
+			assertEquals(Location.calculateDistance(
+					configuration.getWarehouseLocation(), r.getLocation()),
+					instance.getDistanceFromWarehouse(i), 0.0);
+		}
+	}
+}
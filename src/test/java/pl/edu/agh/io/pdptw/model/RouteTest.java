@@ -0,0 +1,53 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class RouteTest {
+
+	@Test
+	public void sameSizeModificationTest() {
+		Vehicle vehicle = new Vehicle("truck", 200, new Location(0, 0));
+		Route route = vehicle.getRoute();
+		List<Request> pool = DataGenerator.generateRequestsPool(3);
+
+		route.addRequest(0, pool.get(0));
+		route.addRequest(1, pool.get(1));
+
+		RouteSchedule schedule = route.getSchedule(200);
+		long modificationNo = route.getModificationNo();
+		long hash = route.getHash();
+
+		assertSame(schedule, route.getSchedule(200));
+
+		/* replacing a request keeps the size of the route
+		 * but the cached data mustn't be reused */
+
+		route.removeRequest(1);
+		route.addRequest(1, pool.get(2));
+
+		assertTrue(modificationNo != route.getModificationNo());
+		assertNotSame(schedule, route.getSchedule(200));
+		assertTrue(hash != route.getHash());
+		assertEquals(SolutionHash.calculate(route.getRequests()), route.getHash());
+
+		/* a copy is equal until one of them is modified */
+
+		Route copy = route.copy();
+
+		assertEquals(route.getModificationNo(), copy.getModificationNo());
+
+		copy.removeRequest(0);
+		route.removeRequest(1);
+
+		assertTrue(route.getModificationNo() != copy.getModificationNo());
+	}
+}
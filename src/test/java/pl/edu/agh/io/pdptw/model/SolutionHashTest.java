@@ -0,0 +1,58 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class SolutionHashTest {
+
+	@Test
+	public void incrementalUpdateTest() {
+		Random random = new Random(0);
+		Vehicle vehicle = new Vehicle("truck", 200, new Location(0, 0));
+		Route route = vehicle.getRoute();
+		List<Request> pool = DataGenerator.generateRequestsPool(20);
+		
+		assertEquals(0, route.getHash());
+		
+		for (int i = 0; i < 200; i++) {
+			Request r = pool.get(random.nextInt(pool.size()));
+			
+			if (route.getRequests().contains(r)) {
+				route.removeRequest(route.getRequests().indexOf(r));
+			} else {
+				route.addRequest(random.nextInt(route.getRequests().size() + 1), r);
+			}
+			
+			assertEquals(SolutionHash.calculate(route.getRequests()), route.getHash());
+		}
+	}
+	
+	@Test
+	public void solutionHashTest() {
+		Solution solution = DataGenerator.generateSolution(5);
+		Solution copy = solution.copy();
+		long hash = solution.getHash();
+		
+		assertEquals(hash, copy.getHash());
+		
+		Collections.reverse(copy.getVehicles());
+		copy.getVehicles().add(new Vehicle("empty", 200, new Location(0, 0)));
+		
+		assertEquals(hash, copy.getHash());
+		
+		List<Request> requests = new ArrayList<>(copy.getVehicles().get(0).getRoute().getRequests());
+		Collections.swap(requests, 0, 1);
+		copy.getVehicles().get(0).setRoute(new Route(requests));
+		
+		assertTrue(hash != copy.getHash());
+	}
+}
@@ -0,0 +1,44 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+
+public class SolutionTest {
+
+	@Test
+	public void createShallowCopyTest() {
+		Solution solution = DataGenerator.generateSolution(5);
+		Solution copy = solution.createShallowCopy();
+		Vehicle original = solution.getVehicles().get(2);
+		int size = original.getRoute().getRequests().size();
+		
+		assertSame(original, copy.getVehicles().get(2));
+		assertTrue(original.isShared());
+		
+		Vehicle updated = copy.getVehicleForUpdate(2);
+		updated.removeRequest(0);
+		
+		assertNotSame(original, updated);
+		assertSame(updated, copy.getVehicleForUpdate(2));
+		assertEquals(size, original.getRoute().getRequests().size());
+		assertEquals(size - 2, updated.getRoute().getRequests().size());
+		assertSame(solution.getVehicles().get(0), copy.getVehicles().get(0));
+		
+		/* the copy has given the vehicle up so the original
+		 * solution modifies it in place, the other vehicles
+		 * remain shared */
+		
+		assertFalse(original.isShared());
+		assertSame(original, solution.getVehicleForUpdate(2));
+		assertTrue(solution.getVehicles().get(0).isShared());
+		assertNotSame(copy.getVehicles().get(0), solution.getVehicleForUpdate(0));
+		assertSame(copy.getVehicles().get(0), copy.getVehicleForUpdate(0));
+	}
+}
@@ -0,0 +1,86 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/* the results of the queries are compared 
+ * with the ones found by scanning all the locations */
+
+public class SpatialIndexTest {
+	private static final int SIZE = 500;
+	private static final int REMOVED_NO = 200;
+	private static final Location CENTRE = new Location(50, 50);
+
+	@Test
+	public void test() {
+		Random random = new Random(0);
+		List<Location> locations = new ArrayList<>();
+
+		for (int i = 0; i < SIZE; i++) {
+			locations.add(new Location(random.nextInt(100), random.nextInt(100)));
+		}
+
+		SpatialIndex<Location> index = new SpatialIndex<>(locations, l -> l, CENTRE);
+		List<Location> alive = new ArrayList<>(locations);
+
+		for (int i = 0; i < REMOVED_NO; i++) {
+			Location removed = alive.remove(random.nextInt(alive.size()));
+			assertTrue(index.remove(removed));
+			assertFalse(index.remove(removed));
+		}
+
+		assertEquals(alive.size(), index.size());
+
+		List<Location> sorted = alive.stream()
+				.sorted(Comparator.comparingDouble(l -> Location.calculatePolarAngle(CENTRE, l)))
+				.collect(Collectors.toList());
+		assertEquals(sorted.get(0), index.first());
+		assertEquals(sorted, index.getSortedByAngle());
+		
+		assertEquals(alive.stream()
+				.filter(l -> Location.calculatePolarAngle(CENTRE, l) >= 1.0
+						&& Location.calculatePolarAngle(CENTRE, l) <= 2.5)
+				.count(),
+				index.findInAngleRange(1.0, 2.5).size());
+
+		Iterator<Location> it = index.iterateByAngularDistance(3.0);
+		double lastDistance = 0;
+		int iterated = 0;
+		
+		while (it.hasNext()) {
+			double distance = Math.abs(Location.calculatePolarAngle(CENTRE, it.next()) - 3.0);
+			assertTrue(distance >= lastDistance);
+			lastDistance = distance;
+			iterated++;
+		}
+		
+		assertEquals(alive.size(), iterated);
+		
+		Location query = new Location(30, 70);
+		assertEquals(alive.stream()
+				.filter(l -> Location.calculateDistance(l, query) <= 15)
+				.count(),
+				index.findInRadius(query, 15).size());
+
+		List<Location> nearest = index.findNearest(query, 10);
+		List<Double> expected = alive.stream()
+				.map(l -> Location.calculateDistance(l, query))
+				.sorted()
+				.limit(10)
+				.collect(Collectors.toList());
+		
+		assertEquals(expected, nearest.stream()
+				.map(l -> Location.calculateDistance(l, query))
+				.collect(Collectors.toList()));
+	}
+}
@@ -0,0 +1,53 @@
+package pl.edu.agh.io.pdptw.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* compares the constant time feasibility check
+ * with the original one propagating the realization
+ * times through the whole route */
+
+public class VehicleInsertionFeasibilityTest {
+	private static final String[] INSTANCES = { "lc101", "lr101", "lrc101", "lc201", "lr205" };
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		for (String name : INSTANCES) {
+			Configuration configuration = DataGenerator.generateConfiguration();
+			ProblemInstance instance = InstanceFixture.loadInstance(configuration, name + ".txt");
+			Solution solution = InstanceFixture.generateSolution(instance, configuration);
+			List<PickupRequest> pickups = solution.getRequests().stream()
+					.filter(r -> r.getType() == RequestType.PICKUP)
+					.map(r -> (PickupRequest) r.copy())
+					.collect(Collectors.toList());
+
+			for (Vehicle v : solution.getVehicles()) {
+				int size = v.getRoute().getRequests().size();
+
+				for (PickupRequest p : pickups) {
+					for (int pPos = 0; pPos <= size; pPos++) {
+						for (int dPos = pPos + 1; dPos <= size + 1; dPos++) {
+							assertEquals(name + ", " + v.getId() + ", " + p.getId() + ": " + pPos + ", " + dPos,
+									v.isInsertionPossibleByPropagation(p, pPos, dPos),
+									v.isInsertionPossible(p, pPos, dPos));
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package pl.edu.agh.io.pdptw.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.TotalDistanceObjective;
+import pl.edu.agh.io.pdptw.algorithm.optimization.DecompositionOptimizer;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+/* spawns the worker JVMs on localhost */
+
+public class RemoteWorkerPoolTest {
+	private DecompositionOptimizer optimizer;
+
+	@After
+	public void clear() {
+		if (optimizer != null) {
+			optimizer.close();
+			
+			if (optimizer.getWorkerPool() != null) {
+				optimizer.getWorkerPool().close();
+			}
+		}
+
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		configuration.setIterations(20);
+		configuration.setDecompositionCycles(3);
+		configuration.setIterationsPerDecomposition(1);
+		configuration.setRemoteWorkers(2);
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		solution.updateOjectiveValue(new TotalDistanceObjective());
+		double startObjective = solution.getObjectiveValue();
+
+		optimizer = new DecompositionOptimizer(solution, configuration);
+		optimizer.run();
+		Solution result = optimizer.getBestSolution();
+
+		assertNotNull(optimizer.getWorkerPool());
+		assertTrue(optimizer.getWorkerPool().isClosed());
+		assertEquals(instance.getSize(), result.getRequests().size());
+		assertEquals(instance.getRequests().stream().map(Request::getId).collect(Collectors.toSet()),
+				result.getRequests().stream().map(Request::getId).collect(Collectors.toSet()));
+		assertEquals(new TotalDistanceObjective().calculate(result), result.getObjectiveValue(), 1e-6);
+		assertTrue(result.getObjectiveValue() <= startObjective);
+	}
+}
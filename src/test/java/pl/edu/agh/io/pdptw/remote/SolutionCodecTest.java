@@ -0,0 +1,72 @@
+package pl.edu.agh.io.pdptw.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import pl.edu.agh.io.pdptw.algorithm.objective.TotalDistanceObjective;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Request;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.test.util.DataGenerator;
+import pl.edu.agh.io.pdptw.test.util.InstanceFixture;
+
+public class SolutionCodecTest {
+
+	@After
+	public void clear() {
+		ProblemInstance.install(null);
+	}
+
+	@Test
+	public void test() throws Exception {
+		Configuration configuration = DataGenerator.generateConfiguration();
+		ProblemInstance instance = InstanceFixture.loadInstance(configuration, "lr101.txt");
+		Solution solution = InstanceFixture.generateSolution(instance, configuration);
+		solution.updateOjectiveValue(new TotalDistanceObjective());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		SolutionCodec.writeInstance(out, instance);
+		SolutionCodec.writeConfiguration(out, configuration, 1000);
+		SolutionCodec.writeSolution(out, solution);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		ProblemInstance decodedInstance = SolutionCodec.readInstance(in);
+		SolutionCodec.Settings settings = SolutionCodec.readConfiguration(in);
+		Solution decoded = SolutionCodec.readSolution(in, decodedInstance);
+
+		assertEquals(instance.getSize(), decodedInstance.getSize());
+		assertEquals(configuration.getIterations(), settings.getConfiguration().getIterations());
+		assertEquals(1000, settings.getTimeLeft());
+		assertSame(configuration.getAlgorithms().getOptimizationAlgorithm().getClass(),
+				settings.getConfiguration().getAlgorithms().getOptimizationAlgorithm().getClass());
+		assertEquals(solution.getObjectiveValue(), decoded.getObjectiveValue(), 0);
+		assertEquals(solution.getVehicles().size(), decoded.getVehicles().size());
+
+		/* the same requests (copies) in the same order,
+		 * with the siblings linked within the solution */
+
+		List<Request> requests = solution.getRequests();
+		List<Request> decodedRequests = decoded.getRequests();
+		assertEquals(requests, decodedRequests);
+
+		for (Request request : decodedRequests) {
+			assertNotSame(decodedInstance.getRequest(request.getIndex()), request);
+			assertSame(request, request.getSibling().getSibling());
+		}
+
+		assertEquals(new TotalDistanceObjective().calculate(solution),
+				new TotalDistanceObjective().calculate(decoded), 1e-6);
+	}
+}
@@ -79,7 +79,7 @@ public class DataGenerator {
 	
 	public static Configuration generateConfiguration() {
 		return new Configuration("", "", "",
-				false, 1000, 3, 3, 5,
+				false, 1000, 3, 3, 5, 0, 0, 2, 0,
 				new Location(0, 0),
 				AlgorithmConfiguration.createDefault());
 	}
@@ -0,0 +1,58 @@
+package pl.edu.agh.io.pdptw.test.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.edu.agh.io.pdptw.algorithm.generation.GreedyGeneration;
+import pl.edu.agh.io.pdptw.algorithm.scheduling.DriveFirstScheduler;
+import pl.edu.agh.io.pdptw.configuration.Configuration;
+import pl.edu.agh.io.pdptw.configuration.DefaultConfigReader;
+import pl.edu.agh.io.pdptw.configuration.exception.InvalidFileFormatException;
+import pl.edu.agh.io.pdptw.model.ProblemInstance;
+import pl.edu.agh.io.pdptw.model.Solution;
+import pl.edu.agh.io.pdptw.model.Vehicle;
+
+/* The instances from the test data directory
+ * along with the initial solutions built for them
+ * the same way the application does it. */
+
+public class InstanceFixture {
+	public static final String DATA_PATH = "resources/test/data/";
+	public static final int VEHICLE_CAPACITY = 200;
+
+	/* sets the drive-first scheduler, loads the instance
+	 * from the given file of the test data directory and
+	 * installs it (it has to be uninstalled after the test) */
+
+	public static ProblemInstance loadInstance(Configuration configuration, String fileName)
+			throws IOException, InvalidFileFormatException {
+
+		Vehicle.setScheduler(new DriveFirstScheduler());
+		configuration.setRequestsPath(DATA_PATH + fileName);
+		ProblemInstance instance = new DefaultConfigReader().loadProblemInstance(configuration);
+		ProblemInstance.install(instance);
+
+		return instance;
+	}
+
+	public static Solution generateSolution(ProblemInstance instance, Configuration configuration) {
+		return generateSolution(instance, configuration, VEHICLE_CAPACITY);
+	}
+
+	/* the greedy generation with a vehicle
+	 * for each pickup - delivery pair */
+
+	public static Solution generateSolution(ProblemInstance instance,
+			Configuration configuration, int capacity) {
+
+		List<Vehicle> vehicles = new ArrayList<>();
+
+		for (int i = 0; i < instance.getSize() / 2; i++) {
+			vehicles.add(new Vehicle("truck" + i, capacity, configuration.getWarehouseLocation()));
+		}
+
+		return new GreedyGeneration().generateSolution(
+				instance.getRequests(), vehicles, configuration);
+	}
+}